@@ -0,0 +1,54 @@
+package de.jeffreygroneberg.pixooj.benchmarks;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of images into the RGB bytes sent to the device.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"16", "32", "64"})
+    private int size;
+
+    private BufferedImage frame;
+    private BufferedImage source;
+
+    @Setup
+    public void setup() {
+        frame = Images.gradient(size, size);
+        source = Images.gradient(256, 256);
+    }
+
+    /** An image already at the device size. */
+    @Benchmark
+    public byte[] toRgbBytes() {
+        return ImageUtils.toRgbBytes(frame);
+    }
+
+    /** A 256 px image scaled to the device size first, as for GIF frames and image sequences. */
+    @Benchmark
+    public byte[] toDeviceRgbBytes() {
+        return ImageUtils.toDeviceRgbBytes(source, size, true);
+    }
+}
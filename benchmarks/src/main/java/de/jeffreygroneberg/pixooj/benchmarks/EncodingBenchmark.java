@@ -0,0 +1,72 @@
+package de.jeffreygroneberg.pixooj.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request encoding of {@code Pixoo.sendBuffer()}: frame buffer to bytes, Base64 and the JSON body.
+ * The steps are repeated here because the method itself also sends the request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+
+    @Param({"16", "32", "64"})
+    private int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private int[] buffer;
+
+    @Setup
+    public void setup() {
+        buffer = new int[size * size * 3];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = (i * 31) & 0xFF;
+        }
+    }
+
+    @Benchmark
+    public String base64() {
+        return Base64.getEncoder().encodeToString(toBytes(buffer));
+    }
+
+    @Benchmark
+    public String requestBody() {
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("Command", "Draw/SendHttpGif");
+        request.put("PicNum", 1);
+        request.put("PicWidth", size);
+        request.put("PicOffset", 0);
+        request.put("PicID", 1);
+        request.put("PicSpeed", 1000);
+        request.put("PicData", Base64.getEncoder().encodeToString(toBytes(buffer)));
+        return request.toString();
+    }
+
+    private static byte[] toBytes(int[] buffer) {
+        byte[] bytes = new byte[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            bytes[i] = (byte) (buffer[i] & 0xFF);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,28 @@
+package de.jeffreygroneberg.pixooj.benchmarks;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Test images shared by the benchmarks.
+ */
+final class Images {
+
+    private Images() {
+    }
+
+    /**
+     * Creates an image with a color gradient, so scaling and encoding see varying pixels.
+     */
+    static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = x * 255 / Math.max(1, width - 1);
+                int g = y * 255 / Math.max(1, height - 1);
+                int b = (x + y) & 0xFF;
+                image.setRGB(x, y, 0xFF000000 | r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+}
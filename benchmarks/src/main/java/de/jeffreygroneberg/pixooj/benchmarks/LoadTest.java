@@ -0,0 +1,455 @@
+package de.jeffreygroneberg.pixooj.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.jeffreygroneberg.pixooj.configurations.EmulatorConfiguration;
+import de.jeffreygroneberg.pixooj.constants.Palette;
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.enums.ImageResampleMode;
+import de.jeffreygroneberg.pixooj.metrics.LatencyHistogram;
+import de.jeffreygroneberg.pixooj.metrics.PixooMetrics;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+import de.jeffreygroneberg.pixooj.utilities.MathUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives many devices at a fixed frame rate against local {@link PixooEmulator}s and reports the
+ * achieved frame rate, latency percentiles, CPU usage and allocation rate.
+ * <p>
+ * Every device gets its own emulator, {@link Pixoo} and driver thread. On every tick a driver
+ * draws a frame of the configured content and runs one command picked from the command mix,
+ * so a mix of {@code push=100} pushes at the frame rate. Ticks that are missed because the
+ * previous one ran late are skipped, not caught up, so the achieved frame rate drops below the
+ * target once a limit is reached. The emulators run in the same JVM, so CPU and allocation
+ * figures include their share; the driver thread figures cover the library alone.
+ * <p>
+ * With {@code --baseline} the run fails if the frame rate, the p99 push latency or the driver
+ * allocation per frame are worse than the baseline by more than the tolerance.
+ * Run {@code LoadTest --help} for the options.
+ */
+public class LoadTest {
+
+    /**
+     * What is drawn before every tick.
+     */
+    enum Content {
+        /** One fill, the cheapest frame. */
+        SOLID,
+        /** A fill and two lines of text. */
+        TEXT,
+        /** Random pixels, the worst case for encoding. */
+        NOISE,
+        /** A 256 px image scaled down to the device size. */
+        IMAGE
+    }
+
+    /**
+     * The commands a tick can run.
+     */
+    enum Command {
+        PUSH, BRIGHTNESS, CONFIG, TIME
+    }
+
+    /**
+     * Command line options.
+     */
+    static class Options {
+        int devices = 4;
+        int size = 64;
+        double fps = 10;
+        int durationSeconds = 30;
+        int warmupSeconds = 5;
+        Content content = Content.IMAGE;
+        Map<Command, Integer> mix = new EnumMap<>(Map.of(Command.PUSH, 100));
+        long latencyMillis;
+        long jitterMillis;
+        double errorRate;
+        File output;
+        File baseline;
+        double tolerance = 0.2;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (name.equals("--help")) {
+                    usage();
+                    System.exit(0);
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--devices" -> options.devices = Integer.parseInt(value);
+                    case "--size" -> options.size = Integer.parseInt(value);
+                    case "--fps" -> options.fps = Double.parseDouble(value);
+                    case "--duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "--warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "--content" -> options.content = Content.valueOf(value.toUpperCase());
+                    case "--mix" -> options.mix = parseMix(value);
+                    case "--latency" -> options.latencyMillis = Long.parseLong(value);
+                    case "--jitter" -> options.jitterMillis = Long.parseLong(value);
+                    case "--errors" -> options.errorRate = Double.parseDouble(value);
+                    case "--out" -> options.output = new File(value);
+                    case "--baseline" -> options.baseline = new File(value);
+                    case "--tolerance" -> options.tolerance = Double.parseDouble(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            return options;
+        }
+
+        private static Map<Command, Integer> parseMix(String value) {
+            Map<Command, Integer> mix = new EnumMap<>(Command.class);
+            for (String entry : value.split(",")) {
+                String[] parts = entry.split("=");
+                mix.put(Command.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+            }
+            return mix;
+        }
+
+        private static void usage() {
+            System.out.println("""
+                    Usage: LoadTest [options]
+                      --devices N        Simulated devices, each with its own emulator (default 4)
+                      --size N           Device size 16, 32 or 64 (default 64)
+                      --fps N            Ticks per second per device (default 10)
+                      --duration S       Measured seconds (default 30)
+                      --warmup S         Seconds before measuring (default 5)
+                      --content C        solid, text, noise or image (default image)
+                      --mix M            Command weights, e.g. push=90,brightness=5,config=3,time=2 (default push=100)
+                      --latency MS       Emulated device latency (default 0)
+                      --jitter MS        Emulated latency jitter (default 0)
+                      --errors RATE      Emulated error rate between 0 and 1 (default 0)
+                      --out FILE         Write the results as JSON
+                      --baseline FILE    Compare against earlier results and fail on a regression
+                      --tolerance RATE   Allowed regression against the baseline (default 0.2)""");
+        }
+    }
+
+    private final Options options;
+    private final PixooEmulator[] emulators;
+    private final Pixoo[] pixoos;
+    private final Thread[] drivers;
+    private final Map<Command, LongAdder> commandCounts = new EnumMap<>(Command.class);
+    private final LongAdder missedTicks = new LongAdder();
+    private volatile boolean running = true;
+
+    LoadTest(Options options) {
+        this.options = options;
+        this.emulators = new PixooEmulator[options.devices];
+        this.pixoos = new Pixoo[options.devices];
+        this.drivers = new Thread[options.devices];
+        for (Command command : Command.values()) {
+            commandCounts.put(command, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // The emulators answer in about 40 ms without it, see PixooEmulator
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        Options options = Options.parse(args);
+        ObjectNode result = new LoadTest(options).run();
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (options.output != null) {
+            mapper.writeValue(options.output, result);
+            System.out.println("Results written to " + options.output);
+        }
+        if (options.baseline != null && !compare(mapper.readTree(options.baseline), result, options.tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    ObjectNode run() throws IOException, InterruptedException {
+        for (int i = 0; i < options.devices; i++) {
+            EmulatorConfiguration emulatorConfiguration = new EmulatorConfiguration(
+                    options.latencyMillis, options.jitterMillis, options.errorRate, 0);
+            // Every device fails on its own schedule, but runs can be repeated
+            emulatorConfiguration.setSeed(i);
+            emulators[i] = new PixooEmulator(options.size, emulatorConfiguration).start();
+            pixoos[i] = new Pixoo(emulators[i].getAddress(), options.size, false, true, false, null);
+        }
+
+        try {
+            CountDownLatch started = new CountDownLatch(options.devices);
+            for (int i = 0; i < options.devices; i++) {
+                int device = i;
+                drivers[i] = new Thread(() -> drive(device, started), "pixoo-load-" + i);
+                drivers[i].start();
+            }
+            started.await();
+
+            System.out.printf("Warming up %d devices at %.1f fps for %d s%n",
+                    options.devices, options.fps, options.warmupSeconds);
+            Thread.sleep(options.warmupSeconds * 1000L);
+
+            return measure();
+        } finally {
+            running = false;
+            for (Thread driver : drivers) {
+                if (driver != null) driver.join();
+            }
+            for (int i = 0; i < options.devices; i++) {
+                if (pixoos[i] != null) pixoos[i].close();
+                if (emulators[i] != null) emulators[i].close();
+            }
+        }
+    }
+
+    private ObjectNode measure() throws InterruptedException {
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] driverIds = new long[drivers.length];
+        for (int i = 0; i < drivers.length; i++) {
+            driverIds[i] = drivers[i].threadId();
+        }
+
+        PixooMetrics measured = new PixooMetrics();
+        for (Pixoo pixoo : pixoos) {
+            pixoo.setMetricsRegistry(measured);
+        }
+        for (LongAdder count : commandCounts.values()) {
+            count.reset();
+        }
+        missedTicks.reset();
+
+        long cpuStart = os.getProcessCpuTime();
+        long driverCpuStart = sum(threads.getThreadCpuTime(driverIds));
+        long allocatedStart = threads.getTotalThreadAllocatedBytes();
+        long driverAllocatedStart = sum(threads.getThreadAllocatedBytes(driverIds));
+        long[] gcStart = gcTotals();
+        long start = System.nanoTime();
+
+        System.out.printf("Measuring for %d s%n", options.durationSeconds);
+        long previousFrames = 0;
+        for (int second = 1; second <= options.durationSeconds; second++) {
+            long due = start + second * 1_000_000_000L;
+            long remaining = due - System.nanoTime();
+            if (remaining > 0) {
+                Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            }
+            long frames = measured.getFramesPushed();
+            System.out.printf("%4d s  %8.1f fps  p50 %6d us  p99 %6d us  failures %d%n", second,
+                    (double) (frames - previousFrames), measured.getPushLatencyP50Micros(),
+                    measured.getPushLatencyP99Micros(), measured.getPushFailures() + measured.getRequestFailures());
+            previousFrames = frames;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long cpuNanos = os.getProcessCpuTime() - cpuStart;
+        long driverCpuNanos = sum(threads.getThreadCpuTime(driverIds)) - driverCpuStart;
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedStart;
+        long driverAllocated = sum(threads.getThreadAllocatedBytes(driverIds)) - driverAllocatedStart;
+        long[] gcEnd = gcTotals();
+
+        long frames = measured.getFramesPushed();
+        long ticks = commandCounts.values().stream().mapToLong(LongAdder::sum).sum();
+        LatencyHistogram push = measured.getPushLatency();
+        ObjectNode result = new ObjectMapper().createObjectNode();
+
+        ObjectNode config = result.putObject("configuration");
+        config.put("devices", options.devices);
+        config.put("size", options.size);
+        config.put("targetFps", options.fps);
+        config.put("content", options.content.name().toLowerCase());
+        config.put("mix", options.mix.toString());
+        config.put("latencyMillis", options.latencyMillis);
+        config.put("jitterMillis", options.jitterMillis);
+        config.put("errorRate", options.errorRate);
+        config.put("seconds", seconds);
+        config.put("processors", Runtime.getRuntime().availableProcessors());
+
+        result.put("fps", frames / seconds);
+        result.put("fpsPerDevice", frames / seconds / options.devices);
+        result.put("ticks", ticks);
+        result.put("missedTicks", missedTicks.sum());
+        result.put("frames", frames);
+        result.put("failures", measured.getPushFailures() + measured.getRequestFailures());
+
+        ObjectNode latency = result.putObject("pushLatencyMicros");
+        latency.put("p50", push.getPercentileMicros(50));
+        latency.put("p90", push.getPercentileMicros(90));
+        latency.put("p99", push.getPercentileMicros(99));
+        latency.put("p999", push.getPercentileMicros(99.9));
+        latency.put("max", push.getMaxMicros());
+        latency.put("mean", push.getMeanMicros());
+        ObjectNode requests = result.putObject("requestLatencyP99Micros");
+        measured.getRequestLatencyP99Micros().forEach(requests::put);
+
+        ObjectNode cpu = result.putObject("cpu");
+        cpu.put("processCores", cpuNanos / 1e9 / seconds);
+        cpu.put("processPercent", 100.0 * cpuNanos / 1e9 / seconds / Runtime.getRuntime().availableProcessors());
+        cpu.put("driverCores", driverCpuNanos / 1e9 / seconds);
+        cpu.put("driverMicrosPerTick", ticks == 0 ? 0 : driverCpuNanos / 1000.0 / ticks);
+
+        ObjectNode allocation = result.putObject("allocation");
+        allocation.put("processMBPerSecond", allocated / 1e6 / seconds);
+        allocation.put("driverBytesPerTick", ticks == 0 ? 0 : driverAllocated / ticks);
+        allocation.put("gcCount", gcEnd[0] - gcStart[0]);
+        allocation.put("gcMillis", gcEnd[1] - gcStart[1]);
+
+        report(result);
+        return result;
+    }
+
+    private void drive(int device, CountDownLatch started) {
+        Pixoo pixoo = pixoos[device];
+        Random random = new Random(device);
+        BufferedImage image = Images.gradient(256, 256);
+        byte[] noise = new byte[options.size * options.size * 3];
+        long periodNanos = (long) (1_000_000_000L / options.fps);
+        int totalWeight = options.mix.values().stream().mapToInt(Integer::intValue).sum();
+        // Spread the devices over the first period, so ticks do not all arrive at once
+        long next = System.nanoTime() + periodNanos * device / options.devices;
+        started.countDown();
+
+        long tick = 0;
+        while (running) {
+            long remaining = next - System.nanoTime();
+            if (remaining > 0) {
+                try {
+                    Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            draw(pixoo, random, image, noise, tick);
+            Command command = pick(random, totalWeight);
+            execute(pixoo, command, random);
+            commandCounts.get(command).increment();
+            tick++;
+
+            next += periodNanos;
+            long now = System.nanoTime();
+            if (now - next > periodNanos) {
+                long missed = (now - next) / periodNanos;
+                missedTicks.add(missed);
+                next += missed * periodNanos;
+            }
+        }
+    }
+
+    private void draw(Pixoo pixoo, Random random, BufferedImage image, byte[] noise, long tick) {
+        switch (options.content) {
+            case SOLID -> pixoo.fillRgb((int) tick & 0xFF, 0, 0);
+            case TEXT -> {
+                pixoo.fillRgb(0, 0, 0);
+                pixoo.drawText("TICK", 1, 1, new Palette.Color(255, 255, 255));
+                pixoo.drawText(Long.toString(tick), 1, 8, new Palette.Color(0, 255, 0));
+            }
+            case NOISE -> {
+                random.nextBytes(noise);
+                pixoo.drawRgbFrame(noise);
+            }
+            case IMAGE -> pixoo.drawImage(image, new MathUtils.Point(0, 0), ImageResampleMode.PIXEL_ART, false);
+        }
+    }
+
+    private Command pick(Random random, int totalWeight) {
+        int value = random.nextInt(totalWeight);
+        for (Map.Entry<Command, Integer> entry : options.mix.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) return entry.getKey();
+        }
+        return Command.PUSH;
+    }
+
+    private static void execute(Pixoo pixoo, Command command, Random random) {
+        switch (command) {
+            case PUSH -> pixoo.push();
+            case BRIGHTNESS -> pixoo.setBrightness(random.nextInt(101), true);
+            case CONFIG -> pixoo.getAllDeviceConfigurations(true);
+            case TIME -> pixoo.getDeviceTime(true);
+        }
+    }
+
+    private void report(ObjectNode result) {
+        JsonNode latency = result.get("pushLatencyMicros");
+        JsonNode cpu = result.get("cpu");
+        JsonNode allocation = result.get("allocation");
+        System.out.println();
+        System.out.printf("Devices          %d x %d px, %s content, mix %s%n",
+                options.devices, options.size, options.content.name().toLowerCase(), options.mix);
+        System.out.printf("Frame rate       %.1f fps (%.1f per device, target %.1f), %d missed ticks%n",
+                result.get("fps").asDouble(), result.get("fpsPerDevice").asDouble(), options.fps,
+                result.get("missedTicks").asLong());
+        System.out.printf("Push latency     p50 %d us, p90 %d us, p99 %d us, p99.9 %d us, max %d us%n",
+                latency.get("p50").asLong(), latency.get("p90").asLong(), latency.get("p99").asLong(),
+                latency.get("p999").asLong(), latency.get("max").asLong());
+        System.out.printf("Failures         %d%n", result.get("failures").asLong());
+        System.out.printf("CPU              %.2f cores (%.1f%%), drivers %.2f cores, %.0f us per tick%n",
+                cpu.get("processCores").asDouble(), cpu.get("processPercent").asDouble(),
+                cpu.get("driverCores").asDouble(), cpu.get("driverMicrosPerTick").asDouble());
+        System.out.printf("Allocation       %.1f MB/s, drivers %d bytes per tick, %d GCs taking %d ms%n",
+                allocation.get("processMBPerSecond").asDouble(), allocation.get("driverBytesPerTick").asLong(),
+                allocation.get("gcCount").asLong(), allocation.get("gcMillis").asLong());
+    }
+
+    /**
+     * Compares results against a baseline.
+     * @return Whether no metric regressed by more than the tolerance
+     */
+    static boolean compare(JsonNode baseline, JsonNode result, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        check(regressions, "fps", baseline.path("fps").asDouble(), result.path("fps").asDouble(), tolerance, false);
+        check(regressions, "push p99 (us)", baseline.path("pushLatencyMicros").path("p99").asDouble(),
+                result.path("pushLatencyMicros").path("p99").asDouble(), tolerance, true);
+        check(regressions, "driver bytes per tick", baseline.path("allocation").path("driverBytesPerTick").asDouble(),
+                result.path("allocation").path("driverBytesPerTick").asDouble(), tolerance, true);
+        if (regressions.isEmpty()) {
+            System.out.println("No regression against the baseline");
+            return true;
+        }
+        regressions.forEach(regression -> System.out.println("Regression: " + regression));
+        return false;
+    }
+
+    private static void check(List<String> regressions, String name, double baseline, double value,
+                              double tolerance, boolean lowerIsBetter) {
+        if (baseline <= 0) return;
+        boolean regressed = lowerIsBetter
+                ? value > baseline * (1 + tolerance)
+                : value < baseline * (1 - tolerance);
+        if (regressed) {
+            regressions.add(String.format("%s %.1f against %.1f in the baseline", name, value, baseline));
+        }
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            if (value > 0) sum += value;
+        }
+        return sum;
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] {count, millis};
+    }
+}
@@ -0,0 +1,58 @@
+package de.jeffreygroneberg.pixooj.benchmarks;
+
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.enums.ImageResampleMode;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+import de.jeffreygroneberg.pixooj.utilities.MathUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@code push()} over HTTP against a local {@link PixooEmulator} without injected faults.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class PushBenchmark {
+
+    @Param({"16", "32", "64"})
+    private int size;
+
+    private PixooEmulator emulator;
+    private Pixoo pixoo;
+
+    @Setup
+    public void setup() throws IOException {
+        emulator = new PixooEmulator(size).start();
+        pixoo = new Pixoo(emulator.getAddress(), size, false, true, false, null);
+        pixoo.drawImage(Images.gradient(size, size), new MathUtils.Point(0, 0), ImageResampleMode.PIXEL_ART, false);
+    }
+
+    @Benchmark
+    public void push() {
+        pixoo.push();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pixoo.close();
+        emulator.close();
+    }
+}
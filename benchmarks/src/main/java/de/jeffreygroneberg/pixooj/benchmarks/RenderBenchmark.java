@@ -0,0 +1,72 @@
+package de.jeffreygroneberg.pixooj.benchmarks;
+
+import de.jeffreygroneberg.pixooj.constants.Palette;
+import de.jeffreygroneberg.pixooj.enums.ImageResampleMode;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+import de.jeffreygroneberg.pixooj.utilities.MathUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drawing into the frame buffer of a simulated device. Nothing is pushed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"16", "32", "64"})
+    private int size;
+
+    private Pixoo pixoo;
+    private BufferedImage image;
+    private final MathUtils.Point origin = new MathUtils.Point(0, 0);
+
+    @Setup
+    public void setup() {
+        pixoo = new Pixoo(null, size, false, false, true, null);
+        image = Images.gradient(256, 256);
+    }
+
+    @Benchmark
+    public void fill() {
+        pixoo.fill(Palette.RED);
+    }
+
+    /** Sets every pixel of the frame one by one. */
+    @Benchmark
+    public void drawPixelFullFrame() {
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                pixoo.drawPixel(x, y, Palette.GREEN);
+            }
+        }
+    }
+
+    @Benchmark
+    public void drawText() {
+        pixoo.drawText("PIXOO 1234", 0, 0, Palette.WHITE);
+    }
+
+    /** Scales a 256 px image down to the device size and draws it. */
+    @Benchmark
+    public void drawImage() {
+        pixoo.drawImage(image, origin, ImageResampleMode.SMOOTH, false);
+    }
+}
@@ -0,0 +1,68 @@
+package de.jeffreygroneberg.pixooj.benchmarks;
+
+import de.jeffreygroneberg.pixooj.constants.Palette;
+import de.jeffreygroneberg.pixooj.objects.FrameBuffer;
+import de.jeffreygroneberg.pixooj.scene.GroupNode;
+import de.jeffreygroneberg.pixooj.scene.ImageNode;
+import de.jeffreygroneberg.pixooj.scene.RectNode;
+import de.jeffreygroneberg.pixooj.scene.Scene;
+import de.jeffreygroneberg.pixooj.scene.TextNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A dashboard scene where one value changes per update, rendered incrementally and redrawn
+ * in full. Nothing is pushed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneBenchmark {
+
+    @Param({"16", "32", "64"})
+    private int size;
+
+    private Scene scene;
+    private TextNode value;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        scene = new Scene(new FrameBuffer(size));
+        GroupNode root = scene.getRoot();
+        root.add(new ImageNode(0, 0, Images.gradient(size, size)));
+        root.add(new RectNode(0, 0, size, 7, Palette.BLUE));
+        root.add(new TextNode(1, 1, "CPU", Palette.WHITE));
+        value = root.add(new TextNode(1, 9, "0", Palette.YELLOW));
+        scene.render();
+    }
+
+    @Benchmark
+    public List<?> incremental() {
+        value.setText(Integer.toString(counter++ % 100));
+        return scene.render();
+    }
+
+    @Benchmark
+    public List<?> fullRedraw() {
+        value.setText(Integer.toString(counter++ % 100));
+        scene.invalidateAll();
+        return scene.render();
+    }
+}
@@ -0,0 +1,192 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of fully encoded animations, keyed by file content, device size and scaling mode.
+ * <p>
+ * Recently used animations are kept in memory. If a directory is configured, every
+ * animation is also written to a compact file there and memory-mapped when it is read
+ * back, so repeated sends survive restarts without decoding the GIF again.
+ */
+public class AnimationCache {
+    public static final int DEFAULT_MEMORY_ENTRIES = 32;
+    private static final String FILE_EXTENSION = ".pxc";
+
+    private final Path directory;
+    private final int memoryEntries;
+    private final Map<String, EncodedAnimation> memory;
+    private final Map<String, FileFingerprint> fingerprints = new HashMap<>();
+
+    /**
+     * Creates a memory-only cache.
+     */
+    public AnimationCache() {
+        this(null, DEFAULT_MEMORY_ENTRIES);
+    }
+
+    /**
+     * Creates a cache.
+     * @param directory Directory for cache files, or null to keep animations in memory only
+     * @param memoryEntries Number of animations kept in memory
+     */
+    public AnimationCache(Path directory, int memoryEntries) {
+        this.directory = directory;
+        this.memoryEntries = memoryEntries;
+        // Access-ordered, so the eldest entry is the least recently used one
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EncodedAnimation> eldest) {
+                return size() > AnimationCache.this.memoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Builds the cache key for a file.
+     * The content hash is remembered while the file's size and modification time are unchanged.
+     * @param file The animation file
+     * @param size The device size in pixels
+     * @param highQuality The scaling mode used when encoding
+     * @return The cache key
+     * @throws IOException If the file cannot be read
+     */
+    public String key(File file, int size, boolean highQuality) throws IOException {
+        String path = file.getCanonicalPath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        String hash;
+        synchronized (fingerprints) {
+            FileFingerprint fingerprint = fingerprints.get(path);
+            if (fingerprint != null && fingerprint.length == length && fingerprint.lastModified == lastModified) {
+                hash = fingerprint.hash;
+            } else {
+                hash = hashContent(file);
+                fingerprints.put(path, new FileFingerprint(length, lastModified, hash));
+            }
+        }
+        return hash + "-" + size + "-" + (highQuality ? "hq" : "std");
+    }
+
+    /**
+     * Looks up an animation in memory, then on disk.
+     * @param key The cache key
+     * @return The encoded animation or null if it is not cached
+     */
+    public EncodedAnimation get(String key) {
+        synchronized (memory) {
+            EncodedAnimation animation = memory.get(key);
+            if (animation != null) return animation;
+        }
+        if (directory == null) return null;
+
+        Path file = directory.resolve(key + FILE_EXTENSION);
+        if (!Files.isRegularFile(file)) return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            EncodedAnimation animation = EncodedAnimation.wrap(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            remember(key, animation);
+            return animation;
+        } catch (IOException e) {
+            // Corrupt or unreadable cache files are treated as a miss and overwritten later
+            return null;
+        }
+    }
+
+    /**
+     * Stores the payloads of an animation.
+     * @param key The cache key
+     * @param payloads The Base64 payload of each frame
+     * @return The stored animation
+     * @throws IOException If the cache file cannot be written
+     */
+    public EncodedAnimation put(String key, List<String> payloads) throws IOException {
+        ByteBuffer data = EncodedAnimation.encode(payloads);
+        EncodedAnimation animation = EncodedAnimation.wrap(data);
+        remember(key, animation);
+
+        if (directory != null) {
+            Files.createDirectories(directory);
+            Path target = directory.resolve(key + FILE_EXTENSION);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer out = animation.getData();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+            // Readers never see a partially written file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return animation;
+    }
+
+    /**
+     * Removes all animations from memory. Cache files are kept.
+     */
+    public void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    public Path getDirectory() { return directory; }
+
+    private void remember(String key, EncodedAnimation animation) {
+        synchronized (memory) {
+            memory.put(key, animation);
+        }
+    }
+
+    private static String hashContent(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static class FileFingerprint {
+        final long length;
+        final long lastModified;
+        final String hash;
+
+        FileFingerprint(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+/**
+ * A device-ready animation frame: RGB bytes at the device size and the time to show it.
+ */
+public class AnimationFrame {
+    private final byte[] rgb;
+    private final int delayMs;
+
+    public AnimationFrame(byte[] rgb, int delayMs) {
+        this.rgb = rgb;
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * Returns the pixel data in row-major RGB order. The array is shared, do not modify it.
+     * @return The RGB bytes
+     */
+    public byte[] getRgb() { return rgb; }
+
+    public int getDelayMs() { return delayMs; }
+}
@@ -0,0 +1,207 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prepares animation frames for the device, which plays every frame of an animation
+ * with the same speed.
+ * <ol>
+ *   <li>Identical or near-identical consecutive frames are merged and their delays added up.</li>
+ *   <li>The sequence is resampled onto a tick, the greatest common divisor of the delays. A
+ *       frame that is shown longer than one tick is repeated, so per-frame GIF delays are kept.</li>
+ *   <li>No more frames are uploaded than the maximum frame count, or than the merged frames
+ *       if no maximum is set. If the resampled sequence does not fit, each merged frame is
+ *       uploaded once at the median delay. If even the merged frames do not fit, the tick is
+ *       lengthened until the resampled sequence does.</li>
+ * </ol>
+ */
+public class AnimationOptimizer {
+    public static final int MIN_SPEED_MS = 20;
+    // Browsers show GIF frames with very short delays for 100 ms, and so do we
+    private static final int SHORT_DELAY_MS = 20;
+    private static final int SHORT_DELAY_REPLACEMENT_MS = 100;
+
+    private double tolerance;
+    private int speed;
+    private int maxFrames;
+
+    /**
+     * Creates an optimizer that merges only identical frames, picks the speed from the
+     * frame delays and uploads at most the merged frames.
+     */
+    public AnimationOptimizer() {
+        this(0, 0, 0);
+    }
+
+    /**
+     * Creates an optimizer.
+     * @param tolerance Mean absolute difference per color channel (0-255) below which
+     *                  consecutive frames are merged, 0 for identical frames only
+     * @param speed Duration of each device frame in milliseconds, 0 to derive it from the frame delays
+     * @param maxFrames Maximum number of frames to upload, 0 for at most the merged frames, or no
+     *                  limit if a speed is set
+     */
+    public AnimationOptimizer(double tolerance, int speed, int maxFrames) {
+        this.tolerance = tolerance;
+        this.speed = speed;
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Optimizes a sequence of frames.
+     * @param frames The frames with their original delays
+     * @return The frames to upload and the speed to play them with
+     */
+    public Result optimize(List<AnimationFrame> frames) {
+        if (frames.isEmpty()) {
+            return new Result(List.of(), Math.max(speed, MIN_SPEED_MS), 0, 0);
+        }
+
+        List<AnimationFrame> merged = merge(frames);
+        long duration = 0;
+        int divisor = 0;
+        for (AnimationFrame frame : merged) {
+            duration += frame.getDelayMs();
+            divisor = gcd(divisor, frame.getDelayMs());
+        }
+
+        // A fixed speed without a frame limit is resampled as asked, however many frames it takes
+        int budget = maxFrames > 0 ? maxFrames : speed > 0 ? Integer.MAX_VALUE : merged.size();
+        int tick = Math.max(MIN_SPEED_MS, speed > 0 ? speed : divisor);
+        if (countTicks(duration, tick) > budget) {
+            if (speed <= 0 && merged.size() <= budget) {
+                // Exact timing needs repeated frames the budget has no room for
+                int median = medianDelay(merged);
+                List<AnimationFrame> retimed = new ArrayList<>(merged.size());
+                for (AnimationFrame frame : merged) {
+                    retimed.add(new AnimationFrame(frame.getRgb(), median));
+                }
+                return new Result(retimed, median, frames.size(), merged.size());
+            }
+            tick = (int) Math.max(tick, (duration + budget - 1) / budget);
+        }
+
+        List<AnimationFrame> resampled = resample(merged, tick);
+        return new Result(resampled, tick, frames.size(), merged.size());
+    }
+
+    private List<AnimationFrame> merge(List<AnimationFrame> frames) {
+        List<AnimationFrame> merged = new ArrayList<>(frames.size());
+        AnimationFrame current = null;
+        int currentDelay = 0;
+        for (AnimationFrame frame : frames) {
+            int delay = frame.getDelayMs() < SHORT_DELAY_MS ? SHORT_DELAY_REPLACEMENT_MS : frame.getDelayMs();
+            if (current != null && similar(current.getRgb(), frame.getRgb())) {
+                currentDelay += delay;
+                continue;
+            }
+            if (current != null) {
+                merged.add(new AnimationFrame(current.getRgb(), currentDelay));
+            }
+            current = frame;
+            currentDelay = delay;
+        }
+        merged.add(new AnimationFrame(current.getRgb(), currentDelay));
+        return merged;
+    }
+
+    /**
+     * Samples the timeline at the middle of each tick, so every frame is shown for
+     * the number of ticks closest to its delay.
+     */
+    private static List<AnimationFrame> resample(List<AnimationFrame> frames, int tick) {
+        long duration = 0;
+        for (AnimationFrame frame : frames) {
+            duration += frame.getDelayMs();
+        }
+        int ticks = countTicks(duration, tick);
+
+        List<AnimationFrame> resampled = new ArrayList<>(ticks);
+        int index = 0;
+        long frameEnd = frames.get(0).getDelayMs();
+        for (int t = 0; t < ticks; t++) {
+            long time = (long) t * tick + tick / 2;
+            while (time >= frameEnd && index < frames.size() - 1) {
+                index++;
+                frameEnd += frames.get(index).getDelayMs();
+            }
+            resampled.add(new AnimationFrame(frames.get(index).getRgb(), tick));
+        }
+        return resampled;
+    }
+
+    private static int medianDelay(List<AnimationFrame> frames) {
+        int[] delays = new int[frames.size()];
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = frames.get(i).getDelayMs();
+        }
+        Arrays.sort(delays);
+        return Math.max(MIN_SPEED_MS, delays[delays.length / 2]);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    private static int countTicks(long duration, int tick) {
+        return (int) Math.max(1, Math.round((double) duration / tick));
+    }
+
+    private boolean similar(byte[] a, byte[] b) {
+        if (a.length != b.length) return false;
+        if (tolerance <= 0) return Arrays.equals(a, b);
+
+        long limit = (long) (tolerance * a.length);
+        long difference = 0;
+        for (int i = 0; i < a.length; i++) {
+            difference += Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+            if (difference > limit) return false;
+        }
+        return true;
+    }
+
+    public double getTolerance() { return tolerance; }
+    public void setTolerance(double tolerance) { this.tolerance = tolerance; }
+    public int getSpeed() { return speed; }
+    public void setSpeed(int speed) { this.speed = speed; }
+    public int getMaxFrames() { return maxFrames; }
+    public void setMaxFrames(int maxFrames) { this.maxFrames = maxFrames; }
+
+    /**
+     * Outcome of an optimization.
+     */
+    public static class Result {
+        private final List<AnimationFrame> frames;
+        private final int speed;
+        private final int sourceFrames;
+        private final int uniqueFrames;
+
+        public Result(List<AnimationFrame> frames, int speed, int sourceFrames, int uniqueFrames) {
+            this.frames = frames;
+            this.speed = speed;
+            this.sourceFrames = sourceFrames;
+            this.uniqueFrames = uniqueFrames;
+        }
+
+        /** The frames to upload, each shown for {@link #getSpeed()} milliseconds. */
+        public List<AnimationFrame> getFrames() { return frames; }
+        /** The speed to upload the frames with, in milliseconds per frame. */
+        public int getSpeed() { return speed; }
+        public int getSourceFrames() { return sourceFrames; }
+        /** Number of frames left after merging consecutive duplicates. */
+        public int getUniqueFrames() { return uniqueFrames; }
+
+        @Override
+        public String toString() {
+            return String.format("%d source frames, %d unique, %d uploaded at %d ms",
+                    sourceFrames, uniqueFrames, frames.size(), speed);
+        }
+    }
+}
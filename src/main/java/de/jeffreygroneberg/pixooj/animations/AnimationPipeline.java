@@ -0,0 +1,304 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageDecoder;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Three-stage pipeline that prepares and uploads the frames of a GIF animation.
+ * <ol>
+ *   <li>Decode: a background thread reads the frames in order and composites them at the
+ *       resolution of the GIF with a {@link GifCompositor}. Decoding has to be serial, since
+ *       optimized GIFs draw every frame over the previous one.</li>
+ *   <li>Prepare: frames are scaled to the device size, converted to RGB and Base64-encoded in
+ *       parallel on a fork-join pool. Their futures are queued in frame order.</li>
+ *   <li>Upload: the calling thread sends frame N while later frames are still being prepared.</li>
+ * </ol>
+ * The queue between the decode and upload stages is bounded, so at most a few frames
+ * are held in memory at once. The time spent in each stage is reported in {@link StageTimings}.
+ */
+public class AnimationPipeline {
+
+    /**
+     * Receives encoded frames in order.
+     */
+    public interface FrameUploader {
+        /**
+         * Uploads one frame.
+         * @param index The frame index
+         * @param frameCount The total number of frames
+         * @param payload The Base64 {@code PicData} payload
+         * @return false to abort the upload
+         */
+        boolean upload(int index, int frameCount, String payload) throws IOException, InterruptedException;
+    }
+
+    private static final CompletableFuture<String> END = CompletableFuture.completedFuture(null);
+
+    private final int size;
+    private final boolean highQuality;
+    private final ExecutorService encodeExecutor;
+    private final int queueCapacity;
+
+    /**
+     * Creates a pipeline that encodes on the common fork-join pool.
+     * @param size The device size in pixels
+     * @param highQuality Use bicubic instead of bilinear interpolation when scaling
+     */
+    public AnimationPipeline(int size, boolean highQuality) {
+        this(size, highQuality, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a pipeline.
+     * @param size The device size in pixels
+     * @param highQuality Use bicubic instead of bilinear interpolation when scaling
+     * @param encodeExecutor Executor for the parallel scale, convert and encode stage
+     */
+    public AnimationPipeline(int size, boolean highQuality, ExecutorService encodeExecutor) {
+        this.size = size;
+        this.highQuality = highQuality;
+        this.encodeExecutor = encodeExecutor;
+        int parallelism = encodeExecutor instanceof ForkJoinPool
+                ? ((ForkJoinPool) encodeExecutor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = Math.max(2, parallelism * 2);
+    }
+
+    /**
+     * Runs the pipeline for a GIF file without keeping the payloads.
+     * @param gifFile The GIF file
+     * @param uploader Receives the encoded frames in order
+     * @return The result
+     * @throws IOException If the GIF cannot be decoded or an upload fails
+     * @throws InterruptedException If interrupted while waiting for a stage
+     */
+    public Result run(File gifFile, FrameUploader uploader) throws IOException, InterruptedException {
+        return run(gifFile, uploader, false);
+    }
+
+    /**
+     * Runs the pipeline for a GIF file.
+     * @param gifFile The GIF file
+     * @param uploader Receives the encoded frames in order
+     * @param keepPayloads Keep the payloads of all frames, e.g. to cache them
+     * @return The result, with all payloads if they were kept and every frame was uploaded
+     * @throws IOException If the GIF cannot be decoded or an upload fails
+     * @throws InterruptedException If interrupted while waiting for a stage
+     */
+    public Result run(File gifFile, FrameUploader uploader, boolean keepPayloads) throws IOException, InterruptedException {
+        return run(gifFile, 0, uploader, keepPayloads);
+    }
+
+    /**
+     * Runs the pipeline for a GIF file from a given frame, e.g. to resume an upload. Earlier
+     * frames are decoded, since later frames are drawn over them, but not prepared or uploaded.
+     * @param gifFile The GIF file
+     * @param firstFrame The index of the first frame to upload
+     * @param uploader Receives the encoded frames in order, starting with the first frame
+     * @param keepPayloads Keep the payloads of all frames, e.g. to cache them
+     * @return The result, with all payloads if they were kept, the run started at the first
+     *         frame of the GIF and every frame was uploaded
+     * @throws IOException If the GIF cannot be decoded or an upload fails
+     * @throws InterruptedException If interrupted while waiting for a stage
+     */
+    public Result run(File gifFile, int firstFrame, FrameUploader uploader, boolean keepPayloads)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        StageTimings timings = new StageTimings();
+
+        ImageInputStream input = ImageIO.createImageInputStream(gifFile);
+        if (input == null) {
+            throw new IOException("Cannot open GIF file: " + gifFile);
+        }
+        ImageReader reader = ImageDecoder.acquire(input);
+        if (reader == null) {
+            input.close();
+            throw new IOException("No GIF ImageReaders found in ImageIO.");
+        }
+        reader.setInput(input);
+
+        int frameCount;
+        try {
+            // Every upload request carries the frame count, so it is needed before the first one
+            frameCount = reader.getNumImages(true);
+        } catch (IOException | RuntimeException e) {
+            ImageDecoder.release(reader);
+            input.close();
+            throw e;
+        }
+
+        BlockingQueue<CompletableFuture<String>> encoded = new ArrayBlockingQueue<>(queueCapacity);
+        Thread decoder = new Thread(() -> decode(reader, input, firstFrame, frameCount, encoded, timings),
+                "gif-pipeline-" + gifFile.getName());
+        decoder.setDaemon(true);
+        decoder.start();
+
+        // Without a cache to fill, each payload can be collected once it is uploaded
+        List<String> payloads = keepPayloads && firstFrame == 0 ? new ArrayList<>(frameCount) : null;
+        boolean complete = false;
+        try {
+            for (int i = firstFrame; ; i++) {
+                long waitStart = System.nanoTime();
+                CompletableFuture<String> next = encoded.take();
+                String payload;
+                try {
+                    payload = next.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw cause instanceof IOException
+                            ? (IOException) cause
+                            : new IOException("Error preparing frame " + i + ": " + cause.getMessage(), cause);
+                }
+                timings.uploadWaitNanos += System.nanoTime() - waitStart;
+                if (next == END) {
+                    complete = true;
+                    break;
+                }
+
+                long uploadStart = System.nanoTime();
+                boolean uploaded = uploader.upload(i, frameCount, payload);
+                timings.uploadNanos += System.nanoTime() - uploadStart;
+                if (!uploaded) {
+                    break;
+                }
+                if (payloads != null) {
+                    payloads.add(payload);
+                }
+                timings.frames++;
+            }
+        } finally {
+            // Stops the decoder if the upload was aborted; it will not block on the full queue
+            decoder.interrupt();
+            timings.wallNanos = System.nanoTime() - start;
+        }
+
+        return new Result(complete, complete ? payloads : null, timings);
+    }
+
+    private void decode(ImageReader reader, ImageInputStream input, int firstFrame, int frameCount,
+                        BlockingQueue<CompletableFuture<String>> encoded, StageTimings timings) {
+        GifCompositor compositor = null;
+        try {
+            compositor = new GifCompositor(reader, size, highQuality);
+            for (int i = 0; i < frameCount; i++) {
+                long decodeStart = System.nanoTime();
+                if (i < firstFrame) {
+                    if (!compositor.skip()) {
+                        throw new IOException("GIF ended after " + i + " of " + frameCount + " frames");
+                    }
+                    timings.decodeNanos += System.nanoTime() - decodeStart;
+                    continue;
+                }
+                // Each frame owns a copy of the canvas, so it can be prepared while the compositor moves on
+                GifCompositor.SourceFrame frame = compositor.nextSource();
+                if (frame == null) {
+                    throw new IOException("GIF ended after " + i + " of " + frameCount + " frames");
+                }
+                timings.decodeNanos += System.nanoTime() - decodeStart;
+
+                encoded.put(CompletableFuture.supplyAsync(() -> prepare(frame, timings), encodeExecutor));
+            }
+            encoded.put(END);
+        } catch (InterruptedException e) {
+            // The upload stage has stopped
+        } catch (Throwable e) {
+            // Errors as well, e.g. running out of memory on a large GIF, or the upload stage would wait forever
+            try {
+                encoded.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException ignored) {
+                // The upload stage has stopped
+            }
+        } finally {
+            if (compositor != null) {
+                compositor.dispose();
+            }
+            ImageDecoder.release(reader);
+            try {
+                input.close();
+            } catch (IOException ignored) {
+                // Nothing left to read
+            }
+        }
+    }
+
+    private String prepare(GifCompositor.SourceFrame frame, StageTimings timings) {
+        long encodeStart = System.nanoTime();
+        String payload = Base64.getEncoder().encodeToString(frame.toDeviceRgb(size, highQuality));
+        timings.encodeNanos.addAndGet(System.nanoTime() - encodeStart);
+        return payload;
+    }
+
+    /**
+     * Outcome of a pipeline run.
+     */
+    public static class Result {
+        private final boolean complete;
+        private final List<String> payloads;
+        private final StageTimings timings;
+
+        public Result(boolean complete, List<String> payloads, StageTimings timings) {
+            this.complete = complete;
+            this.payloads = payloads;
+            this.timings = timings;
+        }
+
+        /**
+         * Returns the payloads of all frames.
+         * @return The payloads in frame order, or null if they were not kept or the upload did not complete
+         */
+        public List<String> getPayloads() { return payloads; }
+
+        public boolean isComplete() { return complete; }
+
+        public StageTimings getTimings() { return timings; }
+    }
+
+    /**
+     * Time spent in each stage of a pipeline run.
+     * Encode time covers scaling, RGB conversion and Base64 encoding. It is summed over all
+     * workers, so it can exceed the wall time.
+     */
+    public static class StageTimings {
+        private volatile long decodeNanos;
+        private final AtomicLong encodeNanos = new AtomicLong();
+        private long uploadNanos;
+        private long uploadWaitNanos;
+        private long wallNanos;
+        private int frames;
+
+        /** Time spent decoding and compositing frames. */
+        public long getDecodeNanos() { return decodeNanos; }
+        /** Time spent scaling, converting and encoding frames, summed over all workers. */
+        public long getEncodeNanos() { return encodeNanos.get(); }
+        public long getUploadNanos() { return uploadNanos; }
+        /** Time the upload stage spent waiting for frames to be prepared. */
+        public long getUploadWaitNanos() { return uploadWaitNanos; }
+        public long getWallNanos() { return wallNanos; }
+        public int getFrames() { return frames; }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames in %.1f ms (decode %.1f ms, encode %.1f ms, upload %.1f ms, upload waiting %.1f ms)",
+                    frames, wallNanos / 1e6, decodeNanos / 1e6, encodeNanos.get() / 1e6,
+                    uploadNanos / 1e6, uploadWaitNanos / 1e6);
+        }
+    }
+}
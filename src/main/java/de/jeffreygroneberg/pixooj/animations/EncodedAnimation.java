@@ -0,0 +1,122 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Fully encoded animation: the Base64 {@code PicData} payload of every frame.
+ * <p>
+ * The payloads are stored back to back in one buffer, which is either on the heap or a
+ * memory-mapped cache file. The layout is also the cache file format:
+ * <pre>
+ * int    magic ("PXC1")
+ * int    frame count (n)
+ * int[n + 1] payload offsets, relative to the start of the payload data
+ * byte[] payload data (Base64 ASCII)
+ * </pre>
+ * All integers are big-endian.
+ */
+public class EncodedAnimation {
+    static final int MAGIC = 0x50584331; // "PXC1"
+
+    private final ByteBuffer data;
+    private final int frameCount;
+    private final int dataStart;
+
+    private EncodedAnimation(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.remaining() < 8 || data.getInt(0) != MAGIC) {
+            throw new IOException("Not an encoded animation");
+        }
+        this.frameCount = data.getInt(4);
+        // Computed in long, so a corrupt frame count cannot overflow past the check
+        long headerLength = 8 + ((long) frameCount + 1) * 4;
+        if (frameCount < 0 || headerLength > data.limit()) {
+            throw new IOException("Truncated encoded animation");
+        }
+        this.dataStart = (int) headerLength;
+
+        int dataLength = data.limit() - dataStart;
+        int previous = 0;
+        for (int i = 0; i <= frameCount; i++) {
+            int offset = offset(i);
+            if (offset < previous || offset > dataLength) {
+                throw new IOException("Corrupt payload offset of frame " + i);
+            }
+            previous = offset;
+        }
+    }
+
+    /**
+     * Wraps a buffer in the format described above, e.g. a memory-mapped cache file.
+     * @param data The buffer, positioned at the magic number
+     * @return The animation
+     * @throws IOException If the buffer does not hold a valid animation
+     */
+    public static EncodedAnimation wrap(ByteBuffer data) throws IOException {
+        return new EncodedAnimation(data.slice());
+    }
+
+    /**
+     * Encodes a list of payloads into the format described above.
+     * @param payloads The Base64 payload of each frame
+     * @return A heap buffer holding the animation
+     */
+    public static ByteBuffer encode(List<String> payloads) {
+        int dataLength = 0;
+        for (String payload : payloads) {
+            dataLength += payload.length();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(8 + (payloads.size() + 1) * 4 + dataLength);
+        buffer.putInt(MAGIC);
+        buffer.putInt(payloads.size());
+        int offset = 0;
+        for (String payload : payloads) {
+            buffer.putInt(offset);
+            offset += payload.length();
+        }
+        buffer.putInt(offset);
+        for (String payload : payloads) {
+            // Base64 is pure ASCII, so one byte per character
+            buffer.put(payload.getBytes(StandardCharsets.US_ASCII));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public int getFrameCount() { return frameCount; }
+
+    /**
+     * Returns the Base64 payload of a frame.
+     * @param index The frame index
+     * @return The payload ready to be used as {@code PicData}
+     */
+    public String getPayload(int index) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+        }
+        int start = offset(index);
+        byte[] payload = new byte[offset(index + 1) - start];
+        data.get(dataStart + start, payload);
+        return new String(payload, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the total size of the encoded animation in bytes.
+     * @return The size in bytes
+     */
+    public int getByteSize() {
+        return data.limit();
+    }
+
+    ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    private int offset(int index) {
+        return data.getInt(8 + index * 4);
+    }
+}
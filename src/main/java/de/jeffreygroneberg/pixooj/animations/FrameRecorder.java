@@ -0,0 +1,183 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends the frames sent to a device to a recording file, which can be read with
+ * {@link FrameRecording}.
+ * <p>
+ * Every record holds a timestamp and the frame, run-length encoded like {@code .pxa} frames
+ * and stored as a delta against the previous record when that is smaller. Records are
+ * flushed as they are written, so a recording stays readable up to the last complete record
+ * if the process dies. Recording into an existing file appends to it, starting with a key frame.
+ * <p>
+ * The caller only copies the frame and takes its timestamp; encoding and writing happen on a
+ * background thread, so a slow disk does not delay pushes. If the writer falls behind, records
+ * are dropped instead and counted in {@link #getDroppedRecords()}. A write error is reported by
+ * the next call and by {@link #close()}, which also writes the records still queued.
+ * Attach a recorder with {@link de.jeffreygroneberg.pixooj.objects.Pixoo#setFrameRecorder(FrameRecorder)}.
+ */
+public class FrameRecorder implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final int size;
+    private final DataOutputStream out;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong droppedRecords = new AtomicLong();
+    // Maps System.nanoTime() onto the wall clock, so timestamps are monotonic within a session
+    private final long startEpochNanos;
+    private final long startNanoTime;
+
+    private byte[] previous;
+    private long records;
+    private long bytesWritten;
+    private volatile IOException writeError;
+
+    /**
+     * Opens a recording file, creating it if it does not exist.
+     * @param file The recording file
+     * @param size The device size in pixels
+     * @throws IOException If the file cannot be opened or was recorded at another size
+     */
+    public FrameRecorder(Path file, int size) throws IOException {
+        this.size = size;
+        if (Files.exists(file) && Files.size(file) > 0) {
+            // Appending to a recording of another size would make it unreadable
+            FrameRecording existing = FrameRecording.open(file);
+            if (existing.getSize() != size) {
+                throw new IOException("Recording " + file + " has size " + existing.getSize() + ", expected " + size);
+            }
+            // Drop an incomplete record left by a crash, so new records start at a record boundary
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(existing.getValidLength());
+            }
+            this.out = open(file);
+            bytesWritten = existing.getValidLength();
+        } else {
+            this.out = open(file);
+            out.writeInt(FrameRecording.MAGIC);
+            out.writeShort(size);
+            out.flush();
+            bytesWritten = FrameRecording.HEADER_SIZE;
+        }
+        this.startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+        this.startNanoTime = System.nanoTime();
+
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pixoo-frame-recorder");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> droppedRecords.incrementAndGet());
+    }
+
+    /**
+     * Records a frame pushed with {@code push()}.
+     * @param rgb RGB bytes in row-major order
+     * @throws IOException If the recorder was closed or an earlier record could not be written
+     */
+    public void recordPush(byte[] rgb) throws IOException {
+        enqueue(FrameRecording.PUSH, 0, 1, 0, rgb);
+    }
+
+    /**
+     * Records a frame of an animation upload.
+     * @param index The {@code PicOffset} of the frame
+     * @param frameCount The number of frames of the animation
+     * @param speed The frame duration in milliseconds
+     * @param rgb RGB bytes in row-major order
+     * @throws IOException If the recorder was closed or an earlier record could not be written
+     */
+    public void recordAnimationFrame(int index, int frameCount, int speed, byte[] rgb) throws IOException {
+        enqueue(FrameRecording.ANIMATION_FRAME, index, frameCount, speed, rgb);
+    }
+
+    /** Records written so far; queued records are not counted until they are written. */
+    public synchronized long getRecords() { return records; }
+    public synchronized long getBytesWritten() { return bytesWritten; }
+
+    /** Records dropped because the writer fell behind. */
+    public long getDroppedRecords() { return droppedRecords.get(); }
+
+    /**
+     * Writes the records still queued and closes the file.
+     * @throws IOException If a record or the file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            out.close();
+        }
+        checkWriteError();
+    }
+
+    private void enqueue(int type, int index, int frameCount, int speed, byte[] rgb) throws IOException {
+        if (rgb.length != size * size * 3) {
+            throw new IllegalArgumentException("Frame has " + rgb.length + " bytes, expected " + (size * size * 3));
+        }
+        checkWriteError();
+        if (writer.isShutdown()) {
+            throw new IOException("Recorder is closed");
+        }
+        long timestamp = startEpochNanos + (System.nanoTime() - startNanoTime);
+        // The caller may reuse its array for the next frame
+        byte[] copy = rgb.clone();
+        writer.execute(() -> {
+            try {
+                write(type, timestamp, index, frameCount, speed, copy);
+            } catch (IOException e) {
+                writeError = e;
+            }
+        });
+    }
+
+    private void checkWriteError() throws IOException {
+        IOException error = writeError;
+        if (error != null) {
+            throw new IOException("Error writing recording: " + error.getMessage(), error);
+        }
+    }
+
+    private synchronized void write(int type, long timestamp, int index, int frameCount, int speed, byte[] rgb)
+            throws IOException {
+        if (writeError != null) return;
+        byte[] frame = PxaWriter.encodeRgbFrame(rgb, previous);
+
+        // The first record of every recorder starts a session with its own clock
+        out.writeByte(previous == null ? type | FrameRecording.SESSION_START : type);
+        out.writeLong(timestamp);
+        out.writeShort(index);
+        out.writeShort(frameCount);
+        out.writeShort(speed);
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+
+        previous = rgb;
+        records++;
+        bytesWritten += FrameRecording.RECORD_HEADER_SIZE + frame.length;
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+    }
+}
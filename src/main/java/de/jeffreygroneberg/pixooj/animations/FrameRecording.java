@@ -0,0 +1,163 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A recording written by {@link FrameRecorder}.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int    magic "PXR1"
+ * short  size
+ * then per record:
+ * byte   type (push or animation frame), with the high bit set on the first record of a recording session
+ * long   timestamp in nanoseconds since the epoch
+ * short  PicOffset, short frame count, short speed (animation frames only, otherwise 0, 1, 0)
+ * int    length of the frame data
+ * byte[] frame data: a key or delta frame byte followed by run-length operations as in {@code .pxa} files
+ * </pre>
+ * Timestamps of different sessions, e.g. after appending to a recording, come from different clocks.
+ * An incomplete record at the end of the file, e.g. after a crash, is ignored.
+ * Files are memory-mapped, so records are read without copying the file onto the heap.
+ */
+public class FrameRecording {
+    static final int MAGIC = 0x50585231; // "PXR1"
+    static final int HEADER_SIZE = 6;
+    static final int RECORD_HEADER_SIZE = 19;
+    static final int SESSION_START = 0x80;
+
+    public static final int PUSH = 0;
+    public static final int ANIMATION_FRAME = 1;
+
+    private final ByteBuffer data;
+    private final int size;
+    private final int recordCount;
+    private final int validLength;
+
+    private FrameRecording(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a frame recording");
+        }
+        this.size = data.getShort(4);
+
+        int count = 0;
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= data.limit()) {
+            int length = data.getInt(position + RECORD_HEADER_SIZE - 4);
+            if (length < 1 || position + RECORD_HEADER_SIZE + length > data.limit()) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+            count++;
+        }
+        this.recordCount = count;
+        this.validLength = position;
+    }
+
+    /**
+     * Maps a recording file into memory.
+     * @param file The recording file
+     * @return The recording
+     * @throws IOException If the file cannot be read or is not a recording
+     */
+    public static FrameRecording open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new FrameRecording(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Wraps a buffer holding a recording.
+     * @param data The buffer, positioned at the magic number
+     * @return The recording
+     * @throws IOException If the buffer does not hold a recording
+     */
+    public static FrameRecording wrap(ByteBuffer data) throws IOException {
+        return new FrameRecording(data.slice());
+    }
+
+    public int getSize() { return size; }
+    public int getRecordCount() { return recordCount; }
+
+    /** The length of the file up to the end of the last complete record. */
+    public int getValidLength() { return validLength; }
+
+    /**
+     * Iterates over the records, decoding their frames one after another.
+     * @return An iterator over the records
+     */
+    public Iterator<Record> records() {
+        return new Iterator<>() {
+            private final byte[] canvas = new byte[size * size * 3];
+            private int position = HEADER_SIZE;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < recordCount;
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int flags = data.get(position) & 0xFF;
+                long timestamp = data.getLong(position + 1);
+                int picOffset = data.getShort(position + 9) & 0xFFFF;
+                int frameCount = data.getShort(position + 11) & 0xFFFF;
+                int speed = data.getShort(position + 13) & 0xFFFF;
+                int length = data.getInt(position + 15);
+                int start = position + RECORD_HEADER_SIZE;
+                // Key frames cover every pixel, delta frames apply on top of the previous record
+                PxaAnimation.decodeOps(data, start + 1, start + length, null, canvas);
+                position = start + length;
+                index++;
+                return new Record(flags & ~SESSION_START, (flags & SESSION_START) != 0, timestamp,
+                        picOffset, frameCount, speed, canvas.clone());
+            }
+        };
+    }
+
+    /**
+     * A recorded frame.
+     */
+    public static class Record {
+        private final int type;
+        private final boolean sessionStart;
+        private final long timestampNanos;
+        private final int index;
+        private final int frameCount;
+        private final int speed;
+        private final byte[] rgb;
+
+        public Record(int type, boolean sessionStart, long timestampNanos, int index, int frameCount, int speed,
+                      byte[] rgb) {
+            this.type = type;
+            this.sessionStart = sessionStart;
+            this.timestampNanos = timestampNanos;
+            this.index = index;
+            this.frameCount = frameCount;
+            this.speed = speed;
+            this.rgb = rgb;
+        }
+
+        /** {@link #PUSH} or {@link #ANIMATION_FRAME}. */
+        public int getType() { return type; }
+
+        /** Whether the record was the first one of a recording session, whose timestamps use a new clock. */
+        public boolean isSessionStart() { return sessionStart; }
+        public long getTimestampNanos() { return timestampNanos; }
+
+        /** The {@code PicOffset} of an animation frame. */
+        public int getIndex() { return index; }
+        public int getFrameCount() { return frameCount; }
+        public int getSpeed() { return speed; }
+        public byte[] getRgb() { return rgb; }
+    }
+}
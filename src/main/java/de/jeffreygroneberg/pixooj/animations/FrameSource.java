@@ -0,0 +1,61 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Pull-based source of device-ready animation frames.
+ * <p>
+ * Sources produce frames at the device size one at a time, so playback and upload never
+ * need to hold the whole animation in memory. Implementations exist for GIF files
+ * ({@link GifFrameStream}), image sequences ({@link ImageSequenceSource}), sprite sheets
+ * ({@link SpriteSheetSource}), procedurally generated frames ({@link GeneratedFrameSource})
+ * and {@code .pxa} files ({@link PxaAnimation#toFrameSource()}).
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /**
+     * Returns the next frame.
+     * @return The next frame or null at the end of the animation
+     * @throws IOException If the frame cannot be read
+     * @throws InterruptedException If interrupted while waiting for the frame
+     */
+    AnimationFrame next() throws IOException, InterruptedException;
+
+    /**
+     * Restarts the source from the first frame.
+     * @throws IOException If the source cannot be restarted
+     */
+    void rewind() throws IOException;
+
+    /**
+     * Returns the number of frames, if it is known without reading the whole source.
+     * @return The frame count or -1 if it is unknown
+     */
+    default int getFrameCount() {
+        return -1;
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Opens a source for a file: GIF files are streamed, directories are read as
+     * numbered image sequences and other files as a single still image.
+     * @param file The file or directory
+     * @param size The device size in pixels
+     * @return The source
+     * @throws IOException If the directory contains no images
+     */
+    static FrameSource open(File file, int size) throws IOException {
+        if (file.isDirectory()) {
+            return ImageSequenceSource.fromDirectory(file, size, ImageSequenceSource.DEFAULT_DELAY_MS);
+        }
+        if (file.getName().toLowerCase().endsWith(".gif")) {
+            return new GifFrameStream(file, size);
+        }
+        return new ImageSequenceSource(List.of(file), size, ImageSequenceSource.DEFAULT_DELAY_MS);
+    }
+}
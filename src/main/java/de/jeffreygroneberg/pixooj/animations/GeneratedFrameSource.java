@@ -0,0 +1,75 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageUtils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Frame source that draws each frame with a {@link Generator}, e.g. for plasma effects,
+ * clocks or charts. Frames are drawn at the device size on demand.
+ */
+public class GeneratedFrameSource implements FrameSource {
+
+    /**
+     * Draws one frame of a generated animation.
+     */
+    public interface Generator {
+        /**
+         * Draws a frame. The canvas is cleared to black before each call.
+         * @param index The frame index
+         * @param g2d Graphics of a canvas at the device size
+         * @param size The device size in pixels
+         */
+        void draw(int index, Graphics2D g2d, int size);
+    }
+
+    private final Generator generator;
+    private final int frameCount;
+    private final int size;
+    private final int delayMs;
+    private final BufferedImage canvas;
+    private int nextIndex;
+
+    /**
+     * Creates a generated source.
+     * @param generator Draws the frames
+     * @param frameCount The number of frames, or -1 for an endless animation
+     * @param size The device size in pixels
+     * @param delayMs The delay of every frame in milliseconds
+     */
+    public GeneratedFrameSource(Generator generator, int frameCount, int size, int delayMs) {
+        this.generator = generator;
+        this.frameCount = frameCount;
+        this.size = size;
+        this.delayMs = delayMs;
+        this.canvas = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Override
+    public AnimationFrame next() {
+        if (frameCount >= 0 && nextIndex >= frameCount) {
+            return null;
+        }
+        Graphics2D g2d = canvas.createGraphics();
+        try {
+            g2d.setColor(Color.BLACK);
+            g2d.fillRect(0, 0, size, size);
+            generator.draw(nextIndex++, g2d, size);
+        } finally {
+            g2d.dispose();
+        }
+        return new AnimationFrame(ImageUtils.toRgbBytes(canvas), delayMs);
+    }
+
+    @Override
+    public void rewind() {
+        nextIndex = 0;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+}
@@ -0,0 +1,404 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageDecoder;
+import de.jeffreygroneberg.pixooj.utilities.ImageUtils;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Composites the frames of a GIF and scales them to the device size.
+ * <p>
+ * Optimized GIFs store most frames as small patches that are drawn over the previous
+ * frame. The compositor copies each patch to its {@code imageLeftPosition} and
+ * {@code imageTopPosition} on a canvas at the resolution of the GIF, keeps the pixels below
+ * transparent patch pixels and applies the disposal method of the previous frame (none,
+ * restore to background or restore to previous) before drawing the next one. Only the region
+ * of the canvas that changed is scaled to the device size and converted into the RGB output.
+ * <p>
+ * Restoring to background fills with the background color of the GIF, or clears to black if
+ * the frame uses transparency, since nothing shows through on the device. GIFs much larger
+ * than the device are composited on a subsampled canvas (see {@link ImageDecoder}).
+ */
+public class GifCompositor {
+    private static final int DEFAULT_DELAY_MS = 100;
+    // Shown where the GIF is transparent or has no background color
+    private static final int BACKDROP = 0x000000;
+    // Canvas pixels around a changed pixel that the bicubic kernel reads when scaling
+    private static final int SCALING_MARGIN = 2;
+
+    private final ImageReader reader;
+    private final int size;
+    private final boolean highQuality;
+    private final int screenWidth;
+    private final int screenHeight;
+    private final int step;
+    private final ImageReadParam readParam;
+    private final int backgroundColor;
+    private final BufferedImage canvas;
+    private final int[] pixels;
+    private final Rectangle canvasBounds;
+    private final BufferedImage device;
+    private final byte[] rgb;
+
+    private int nextIndex;
+    private int delayMs;
+    private String previousDisposal = "none";
+    private boolean previousTransparent;
+    private Rectangle previousArea;
+    private int[] savedBeforePrevious;
+    // Canvas area changed by skipped frames, scaled with the next frame
+    private Rectangle skippedArea;
+
+    /**
+     * Creates a compositor for a reader whose input has been set.
+     * @param reader The GIF reader
+     * @param size The device size in pixels
+     * @param highQuality Use bicubic instead of bilinear interpolation when scaling
+     * @throws IOException If the stream metadata cannot be read
+     */
+    public GifCompositor(ImageReader reader, int size, boolean highQuality) throws IOException {
+        this.reader = reader;
+        this.size = size;
+        this.highQuality = highQuality;
+
+        IIOMetadata streamMetadata = reader.getStreamMetadata();
+        IIOMetadataNode streamRoot = streamMetadata != null
+                ? (IIOMetadataNode) streamMetadata.getAsTree(streamMetadata.getNativeMetadataFormatName())
+                : null;
+        int[] screen = readLogicalScreen(reader, streamRoot);
+        this.screenWidth = screen[0];
+        this.screenHeight = screen[1];
+        this.backgroundColor = readBackgroundColor(streamRoot);
+
+        this.readParam = reader.getDefaultReadParam();
+        this.step = ImageDecoder.subsampling(screenWidth, screenHeight, size, size);
+
+        // The canvas holds the columns and rows of the logical screen that are multiples of the step
+        int canvasWidth = (screenWidth + step - 1) / step;
+        int canvasHeight = (screenHeight + step - 1) / step;
+        this.canvas = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+        this.canvasBounds = new Rectangle(0, 0, canvasWidth, canvasHeight);
+        this.device = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        this.rgb = new byte[size * size * 3];
+    }
+
+    /**
+     * Decodes and composites the next frame.
+     * @return The composited frame, or null after the last frame
+     * @throws IOException If the frame cannot be decoded
+     */
+    public Frame next() throws IOException {
+        Rectangle changed = composite();
+        if (changed == null) {
+            return null;
+        }
+
+        if (skippedArea != null) {
+            changed = changed.isEmpty() ? skippedArea : changed.union(skippedArea);
+            skippedArea = null;
+        }
+
+        Rectangle dirty = new Rectangle();
+        if (!changed.isEmpty()) {
+            dirty = toDevice(changed);
+            ImageUtils.scaleRegion(canvas, device, dirty, highQuality);
+            updateRgb(dirty);
+        }
+        return new Frame(rgb.clone(), delayMs, dirty);
+    }
+
+    /**
+     * Decodes and composites the next frame without scaling it, so it can be scaled on
+     * another thread.
+     * @return A copy of the canvas at the resolution of the GIF (subsampled for large GIFs),
+     *         or null after the last frame
+     * @throws IOException If the frame cannot be decoded
+     */
+    public SourceFrame nextSource() throws IOException {
+        if (composite() == null) {
+            return null;
+        }
+        BufferedImage copy = new BufferedImage(canvasBounds.width, canvasBounds.height, BufferedImage.TYPE_INT_RGB);
+        System.arraycopy(pixels, 0, ((DataBufferInt) copy.getRaster().getDataBuffer()).getData(), 0, pixels.length);
+        return new SourceFrame(copy, delayMs);
+    }
+
+    /**
+     * Decodes and composites the next frame without returning it, e.g. to resume after
+     * frames that were already uploaded. Later frames are drawn over it, so it cannot be
+     * left out of decoding.
+     * @return false after the last frame
+     * @throws IOException If the frame cannot be decoded
+     */
+    public boolean skip() throws IOException {
+        Rectangle changed = composite();
+        if (changed == null) {
+            return false;
+        }
+        if (!changed.isEmpty()) {
+            skippedArea = union(skippedArea, changed);
+        }
+        return true;
+    }
+
+    /**
+     * Releases resources held by the compositor. The reader is not disposed.
+     */
+    public void dispose() {
+        savedBeforePrevious = null;
+    }
+
+    public int getScreenWidth() { return screenWidth; }
+    public int getScreenHeight() { return screenHeight; }
+
+    /**
+     * Draws the next frame onto the canvas.
+     * @return The changed region of the canvas, or null after the last frame
+     */
+    private Rectangle composite() throws IOException {
+        int index = nextIndex;
+        IIOMetadataNode root;
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(index);
+            root = (IIOMetadataNode) metadata.getAsTree(metadata.getNativeMetadataFormatName());
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+        IIOMetadataNode descriptor = getNode(root, "ImageDescriptor");
+        IIOMetadataNode control = getNode(root, "GraphicControlExtension");
+        int left = intAttribute(descriptor, "imageLeftPosition", 0);
+        int top = intAttribute(descriptor, "imageTopPosition", 0);
+        int width = intAttribute(descriptor, "imageWidth", reader.getWidth(index));
+        int height = intAttribute(descriptor, "imageHeight", reader.getHeight(index));
+        String disposal = control != null ? control.getAttribute("disposalMethod") : "none";
+        boolean transparent = control != null && "TRUE".equalsIgnoreCase(control.getAttribute("transparentColorFlag"));
+        delayMs = control != null ? intAttribute(control, "delayTime", DEFAULT_DELAY_MS / 10) * 10 : DEFAULT_DELAY_MS;
+
+        // Subsampled patches keep the columns and rows of the logical screen that are multiples
+        // of the step, so every patch samples the same grid as the first frame
+        int offsetX = (step - left % step) % step;
+        int offsetY = (step - top % step) % step;
+        BufferedImage patch = null;
+        if (offsetX < width && offsetY < height) {
+            if (step > 1) {
+                readParam.setSourceSubsampling(step, step, offsetX, offsetY);
+            }
+            patch = reader.read(index, readParam);
+        }
+        nextIndex++;
+
+        Rectangle changed = index == 0 ? new Rectangle(canvasBounds) : null;
+
+        // Dispose the previous frame before drawing this one
+        if (previousArea != null) {
+            if ("restoreToBackgroundColor".equals(previousDisposal)) {
+                fill(previousArea, previousTransparent ? BACKDROP : backgroundColor);
+                changed = union(changed, previousArea);
+            } else if ("restoreToPrevious".equals(previousDisposal) && savedBeforePrevious != null) {
+                restore(previousArea, savedBeforePrevious);
+                changed = union(changed, previousArea);
+            }
+        }
+
+        Rectangle area = null;
+        if (patch != null) {
+            int patchX = (left + offsetX) / step;
+            int patchY = (top + offsetY) / step;
+            Rectangle placed = new Rectangle(patchX, patchY, patch.getWidth(), patch.getHeight()).intersection(canvasBounds);
+            if (!placed.isEmpty()) {
+                area = placed;
+                savedBeforePrevious = "restoreToPrevious".equals(disposal) ? copy(area) : null;
+                draw(patch, area.x - patchX, area.y - patchY, area);
+                changed = union(changed, area);
+            }
+        }
+
+        previousDisposal = disposal;
+        previousTransparent = transparent;
+        previousArea = area;
+        return changed != null ? changed : new Rectangle();
+    }
+
+    /**
+     * Copies the opaque pixels of a patch. GIF pixels are either fully transparent or opaque,
+     * so no pixel of the canvas is blended.
+     */
+    private void draw(BufferedImage patch, int patchX, int patchY, Rectangle area) {
+        int[] argb = patch.getRGB(patchX, patchY, area.width, area.height, null, 0, area.width);
+        int p = 0;
+        for (int y = area.y; y < area.y + area.height; y++) {
+            int k = y * canvasBounds.width + area.x;
+            for (int x = 0; x < area.width; x++, k++) {
+                int pixel = argb[p++];
+                if (pixel >>> 24 != 0) {
+                    pixels[k] = pixel & 0xFFFFFF;
+                }
+            }
+        }
+    }
+
+    private void fill(Rectangle area, int color) {
+        for (int y = area.y; y < area.y + area.height; y++) {
+            int k = y * canvasBounds.width + area.x;
+            Arrays.fill(pixels, k, k + area.width, color);
+        }
+    }
+
+    private int[] copy(Rectangle area) {
+        int[] copy = new int[area.width * area.height];
+        for (int row = 0; row < area.height; row++) {
+            System.arraycopy(pixels, (area.y + row) * canvasBounds.width + area.x, copy, row * area.width, area.width);
+        }
+        return copy;
+    }
+
+    private void restore(Rectangle area, int[] copy) {
+        for (int row = 0; row < area.height; row++) {
+            System.arraycopy(copy, row * area.width, pixels, (area.y + row) * canvasBounds.width + area.x, area.width);
+        }
+    }
+
+    /**
+     * Maps a changed region of the canvas to the device pixels whose scaled value depends on it.
+     */
+    private Rectangle toDevice(Rectangle area) {
+        double scaleX = (double) size / canvasBounds.width;
+        double scaleY = (double) size / canvasBounds.height;
+        int x0 = (int) Math.floor((area.x - SCALING_MARGIN) * scaleX);
+        int y0 = (int) Math.floor((area.y - SCALING_MARGIN) * scaleY);
+        int x1 = (int) Math.ceil((area.x + area.width + SCALING_MARGIN) * scaleX);
+        int y1 = (int) Math.ceil((area.y + area.height + SCALING_MARGIN) * scaleY);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0).intersection(new Rectangle(0, 0, size, size));
+    }
+
+    private void updateRgb(Rectangle area) {
+        int[] devicePixels = device.getRGB(area.x, area.y, area.width, area.height, null, 0, area.width);
+        int p = 0;
+        for (int y = area.y; y < area.y + area.height; y++) {
+            int k = (y * size + area.x) * 3;
+            for (int x = 0; x < area.width; x++) {
+                int pixel = devicePixels[p++];
+                rgb[k++] = (byte) ((pixel >> 16) & 0xFF);
+                rgb[k++] = (byte) ((pixel >> 8) & 0xFF);
+                rgb[k++] = (byte) (pixel & 0xFF);
+            }
+        }
+    }
+
+    private static Rectangle union(Rectangle changed, Rectangle area) {
+        return changed == null ? new Rectangle(area) : changed.union(area);
+    }
+
+    private static int[] readLogicalScreen(ImageReader reader, IIOMetadataNode streamRoot) throws IOException {
+        if (streamRoot != null) {
+            IIOMetadataNode screen = getNode(streamRoot, "LogicalScreenDescriptor");
+            int width = intAttribute(screen, "logicalScreenWidth", 0);
+            int height = intAttribute(screen, "logicalScreenHeight", 0);
+            if (width > 0 && height > 0) {
+                return new int[]{width, height};
+            }
+        }
+        // Fall back to the size of the first frame
+        return new int[]{reader.getWidth(0), reader.getHeight(0)};
+    }
+
+    private static int readBackgroundColor(IIOMetadataNode streamRoot) {
+        IIOMetadataNode table = streamRoot != null ? getNode(streamRoot, "GlobalColorTable") : null;
+        if (table == null) return BACKDROP;
+        int index = intAttribute(table, "backgroundColorIndex", 0);
+        for (int i = 0; i < table.getLength(); i++) {
+            IIOMetadataNode entry = (IIOMetadataNode) table.item(i);
+            if (intAttribute(entry, "index", -1) == index) {
+                return intAttribute(entry, "red", 0) << 16 | intAttribute(entry, "green", 0) << 8 | intAttribute(entry, "blue", 0);
+            }
+        }
+        return BACKDROP;
+    }
+
+    private static int intAttribute(IIOMetadataNode node, String name, int defaultValue) {
+        if (node == null) return defaultValue;
+        String value = node.getAttribute(name);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Helper method to find a node in the metadata tree.
+     */
+    private static IIOMetadataNode getNode(IIOMetadataNode rootNode, String nodeName) {
+        int nNodes = rootNode.getLength();
+        for (int i = 0; i < nNodes; i++) {
+            if (rootNode.item(i).getNodeName().equalsIgnoreCase(nodeName)) {
+                return (IIOMetadataNode) rootNode.item(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A composited frame at the resolution of the GIF.
+     */
+    public static class SourceFrame {
+        private final BufferedImage image;
+        private final int delayMs;
+
+        public SourceFrame(BufferedImage image, int delayMs) {
+            this.image = image;
+            this.delayMs = delayMs;
+        }
+
+        public BufferedImage getImage() { return image; }
+        public int getDelayMs() { return delayMs; }
+
+        /**
+         * Scales the frame to the device size and converts it to RGB bytes.
+         * @param size The device size in pixels
+         * @param highQuality Use bicubic instead of bilinear interpolation
+         * @return The same bytes {@link GifCompositor#next()} produces for this frame
+         */
+        public byte[] toDeviceRgb(int size, boolean highQuality) {
+            return ImageUtils.toDeviceRgbBytes(image, size, highQuality);
+        }
+    }
+
+    /**
+     * A composited frame at the device size.
+     */
+    public static class Frame {
+        private final byte[] rgb;
+        private final int delayMs;
+        private final Rectangle dirtyArea;
+
+        public Frame(byte[] rgb, int delayMs, Rectangle dirtyArea) {
+            this.rgb = rgb;
+            this.delayMs = delayMs;
+            this.dirtyArea = dirtyArea;
+        }
+
+        public byte[] getRgb() { return rgb; }
+        public int getDelayMs() { return delayMs; }
+
+        /**
+         * Returns the region that differs from the previous frame (in device pixels).
+         * @return The changed region, empty if the frame is identical to the previous one
+         */
+        public Rectangle getDirtyArea() { return dirtyArea; }
+
+        public AnimationFrame toAnimationFrame() {
+            return new AnimationFrame(rgb, delayMs);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageDecoder;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams the frames of a GIF file as device-ready {@link AnimationFrame}s.
+ * <p>
+ * Frames are decoded and composited by a {@link GifCompositor} on a background thread
+ * into a small bounded queue, so playback can start as soon as the first frame is ready
+ * and memory stays constant no matter how long the GIF is. The decoder blocks while the queue is full. If frames are
+ * retained, {@link #rewind()} replays them from memory instead of decoding the file again.
+ */
+public class GifFrameStream implements FrameSource {
+    public static final int DEFAULT_PREFETCH = 4;
+
+    // Marks the end of the stream in the queue
+    private static final AnimationFrame END = new AnimationFrame(new byte[0], 0);
+
+    private final File gifFile;
+    private final int size;
+    private final boolean retainFrames;
+    private final int prefetch;
+
+    // Each decoder run gets its own queue, list and failure, so a stopped decoder cannot interfere
+    private DecoderRun run;
+    private boolean finished;
+    private boolean replaying;
+    private int replayIndex;
+
+    /**
+     * Creates a stream with the default prefetch that does not retain frames.
+     * @param gifFile The GIF file
+     * @param size The device size in pixels
+     */
+    public GifFrameStream(File gifFile, int size) {
+        this(gifFile, size, DEFAULT_PREFETCH, false);
+    }
+
+    /**
+     * Creates a stream. Decoding starts with the first call to {@link #next()}.
+     * @param gifFile The GIF file
+     * @param size The device size in pixels
+     * @param prefetch Maximum number of decoded frames waiting to be played
+     * @param retainFrames Keep decoded frames so that loops do not decode the file again
+     */
+    public GifFrameStream(File gifFile, int size, int prefetch, boolean retainFrames) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("Prefetch must be at least 1");
+        }
+        this.gifFile = gifFile;
+        this.size = size;
+        this.retainFrames = retainFrames;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Returns the next frame, waiting for the decoder if necessary.
+     * @return The next frame or null at the end of the animation
+     * @throws IOException If the GIF could not be decoded
+     * @throws InterruptedException If interrupted while waiting for the decoder
+     */
+    @Override
+    public AnimationFrame next() throws IOException, InterruptedException {
+        if (replaying) {
+            return replayIndex < run.retained.size() ? run.retained.get(replayIndex++) : null;
+        }
+        if (finished) {
+            return null;
+        }
+        if (run == null) {
+            startDecoder();
+        }
+
+        AnimationFrame frame = run.queue.take();
+        if (frame == END) {
+            finished = true;
+            if (run.failure != null) {
+                throw run.failure;
+            }
+            return null;
+        }
+        return frame;
+    }
+
+    /**
+     * Restarts the animation from the first frame.
+     */
+    @Override
+    public void rewind() {
+        if (retainFrames && finished && run != null && run.failure == null) {
+            replaying = true;
+            replayIndex = 0;
+            return;
+        }
+
+        stopDecoder();
+        finished = false;
+        replaying = false;
+    }
+
+    @Override
+    public void close() {
+        stopDecoder();
+    }
+
+    private void startDecoder() {
+        DecoderRun decoderRun = new DecoderRun(prefetch);
+        run = decoderRun;
+        decoderRun.thread = new Thread(() -> decode(decoderRun), "gif-decoder-" + gifFile.getName());
+        decoderRun.thread.setDaemon(true);
+        decoderRun.thread.start();
+    }
+
+    private void stopDecoder() {
+        if (run != null) {
+            run.thread.interrupt();
+            run = null;
+        }
+    }
+
+    private void decode(DecoderRun run) {
+        ImageReader reader = null;
+        try (ImageInputStream input = ImageIO.createImageInputStream(gifFile)) {
+            if (input == null) {
+                throw new IOException("Cannot open GIF file: " + gifFile);
+            }
+            reader = ImageDecoder.acquire(input);
+            if (reader == null) {
+                throw new IOException("No GIF readers found");
+            }
+            // Seeking forward only lets the reader discard data of frames already played
+            reader.setInput(input, true, false);
+
+            // The frame count is not requested up front, as that would scan the whole file
+            GifCompositor compositor = new GifCompositor(reader, size, false);
+            try {
+                GifCompositor.Frame composited;
+                while ((composited = compositor.next()) != null) {
+                    AnimationFrame frame = composited.toAnimationFrame();
+                    if (retainFrames) {
+                        run.retained.add(frame);
+                    }
+                    run.queue.put(frame);
+                }
+            } finally {
+                compositor.dispose();
+            }
+        } catch (InterruptedException e) {
+            // Closed or rewound by the consumer
+            return;
+        } catch (IOException e) {
+            run.failure = e;
+        } catch (RuntimeException e) {
+            // Corrupt files can make the ImageIO decoder fail with unchecked exceptions
+            run.failure = new IOException("Error decoding GIF: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                ImageDecoder.release(reader);
+            }
+        }
+
+        try {
+            run.queue.put(END);
+        } catch (InterruptedException e) {
+            // Nobody is waiting for the end marker any more
+        }
+    }
+
+    /**
+     * The state of one decoder thread.
+     */
+    private static class DecoderRun {
+        final BlockingQueue<AnimationFrame> queue;
+        final List<AnimationFrame> retained = new ArrayList<>();
+        // Written by the decoder before it queues the end marker
+        volatile IOException failure;
+        Thread thread;
+
+        DecoderRun(int prefetch) {
+            this.queue = new ArrayBlockingQueue<>(prefetch);
+        }
+    }
+}
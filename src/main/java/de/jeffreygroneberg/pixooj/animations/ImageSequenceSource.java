@@ -0,0 +1,87 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageDecoder;
+import de.jeffreygroneberg.pixooj.utilities.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Frame source for a sequence of image files, e.g. {@code frame_001.png}, {@code frame_002.png}.
+ * Each image is read and scaled only when its frame is requested.
+ */
+public class ImageSequenceSource implements FrameSource {
+    public static final int DEFAULT_DELAY_MS = 100;
+    private static final Pattern NUMBER = Pattern.compile("(\\d+)(?!.*\\d)");
+
+    private final List<File> files;
+    private final int size;
+    private final int delayMs;
+    private int nextIndex;
+
+    /**
+     * Creates a source for the given images.
+     * @param files The images in playback order
+     * @param size The device size in pixels
+     * @param delayMs The delay of every frame in milliseconds
+     */
+    public ImageSequenceSource(List<File> files, int size, int delayMs) {
+        this.files = new ArrayList<>(files);
+        this.size = size;
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * Creates a source for all PNG files in a directory, ordered by the last number in their
+     * name, so {@code frame_2.png} comes before {@code frame_10.png}.
+     * @param directory The directory
+     * @param size The device size in pixels
+     * @param delayMs The delay of every frame in milliseconds
+     * @return The source
+     * @throws IOException If the directory contains no PNG files
+     */
+    public static ImageSequenceSource fromDirectory(File directory, int size, int delayMs) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+        if (files == null || files.length == 0) {
+            throw new IOException("No PNG files found in " + directory);
+        }
+        Arrays.sort(files, Comparator.comparingLong(ImageSequenceSource::frameNumber)
+                .thenComparing(File::getName));
+        return new ImageSequenceSource(Arrays.asList(files), size, delayMs);
+    }
+
+    @Override
+    public AnimationFrame next() throws IOException {
+        if (nextIndex >= files.size()) {
+            return null;
+        }
+        File file = files.get(nextIndex++);
+        BufferedImage image = ImageDecoder.read(file, size, size);
+        if (image == null) {
+            throw new IOException("Unsupported image: " + file);
+        }
+        return new AnimationFrame(ImageUtils.toDeviceRgbBytes(image, size, true), delayMs);
+    }
+
+    @Override
+    public void rewind() {
+        nextIndex = 0;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return files.size();
+    }
+
+    private static long frameNumber(File file) {
+        Matcher matcher = NUMBER.matcher(file.getName());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,197 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import de.jeffreygroneberg.pixooj.enums.PlaylistOrder;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Ordered, shuffled or weighted list of local animations and images.
+ * <p>
+ * Upcoming items are planned ahead, so a player can prepare them in the background
+ * while the current item is shown. Items can be added and removed while playing.
+ * All methods are thread-safe.
+ */
+public class Playlist {
+    private static final String[] SUPPORTED_EXTENSIONS = {".gif", ".png", ".jpg", ".jpeg", ".bmp"};
+
+    private final List<PlaylistItem> items = new ArrayList<>();
+    private final Deque<PlaylistItem> upcoming = new ArrayDeque<>();
+    private final Random random;
+    private PlaylistOrder order;
+    private PlaylistItem current;
+    private PlaylistItem lastPlanned;
+
+    /**
+     * Creates an empty playlist that plays items in the order they were added.
+     */
+    public Playlist() {
+        this(PlaylistOrder.SEQUENTIAL, new Random());
+    }
+
+    /**
+     * Creates an empty playlist.
+     * @param order The play order
+     * @param random Source of randomness for shuffled and weighted order
+     */
+    public Playlist(PlaylistOrder order, Random random) {
+        this.order = order;
+        this.random = random;
+    }
+
+    /**
+     * Creates a playlist of all supported files in a directory, sorted by name.
+     * @param directory The directory
+     * @param order The play order
+     * @return The playlist
+     */
+    public static Playlist fromDirectory(File directory, PlaylistOrder order) {
+        Playlist playlist = new Playlist(order, new Random());
+        File[] files = directory.listFiles((dir, name) -> isSupported(name));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                playlist.add(new PlaylistItem(file));
+            }
+        }
+        return playlist;
+    }
+
+    /**
+     * Returns whether a file name has an extension the playlist can play.
+     * @param name The file name
+     * @return true for GIF and still image files
+     */
+    public static boolean isSupported(String name) {
+        String lower = name.toLowerCase();
+        for (String extension : SUPPORTED_EXTENSIONS) {
+            if (lower.endsWith(extension)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds an item. Upcoming items are planned again, so the item is included right away.
+     * @param item The item
+     */
+    public synchronized void add(PlaylistItem item) {
+        items.add(item);
+        replan();
+    }
+
+    /**
+     * Removes the item for a file.
+     * @param file The file
+     * @return true if an item was removed
+     */
+    public synchronized boolean remove(File file) {
+        boolean removed = items.removeIf(item -> item.getFile().equals(file));
+        if (removed) {
+            replan();
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the item for a file.
+     * @param file The file
+     * @return The item or null if the file is not in the playlist
+     */
+    public synchronized PlaylistItem find(File file) {
+        for (PlaylistItem item : items) {
+            if (item.getFile().equals(file)) return item;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the next item to play and advances the playlist.
+     * @return The next item or null if the playlist is empty
+     */
+    public synchronized PlaylistItem next() {
+        plan(1);
+        PlaylistItem item = upcoming.pollFirst();
+        if (item != null) {
+            current = item;
+        }
+        return item;
+    }
+
+    /**
+     * Returns the items that will be played next, without advancing the playlist.
+     * @param count The number of items to look ahead
+     * @return Up to {@code count} upcoming items
+     */
+    public synchronized List<PlaylistItem> peek(int count) {
+        plan(count);
+        List<PlaylistItem> result = new ArrayList<>(count);
+        for (PlaylistItem item : upcoming) {
+            if (result.size() == count) break;
+            result.add(item);
+        }
+        return result;
+    }
+
+    public synchronized List<PlaylistItem> getItems() {
+        return new ArrayList<>(items);
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    public synchronized PlaylistOrder getOrder() { return order; }
+
+    public synchronized void setOrder(PlaylistOrder order) {
+        this.order = order;
+        replan();
+    }
+
+    private void replan() {
+        upcoming.clear();
+        lastPlanned = current;
+    }
+
+    private void plan(int count) {
+        while (upcoming.size() < count && !items.isEmpty()) {
+            switch (order) {
+                case SHUFFLE:
+                    List<PlaylistItem> cycle = new ArrayList<>(items);
+                    Collections.shuffle(cycle, random);
+                    upcoming.addAll(cycle);
+                    break;
+                case WEIGHTED:
+                    upcoming.addLast(pickWeighted());
+                    break;
+                default:
+                    // Continues after the last planned item, or from the start if it was removed
+                    int index = (items.indexOf(lastPlanned) + 1) % items.size();
+                    lastPlanned = items.get(index);
+                    upcoming.addLast(lastPlanned);
+                    break;
+            }
+        }
+    }
+
+    private PlaylistItem pickWeighted() {
+        double total = 0;
+        for (PlaylistItem item : items) {
+            total += Math.max(0, item.getWeight());
+        }
+        if (total <= 0) {
+            return items.get(random.nextInt(items.size()));
+        }
+        double target = random.nextDouble() * total;
+        for (PlaylistItem item : items) {
+            target -= Math.max(0, item.getWeight());
+            if (target < 0) return item;
+        }
+        return items.get(items.size() - 1);
+    }
+}
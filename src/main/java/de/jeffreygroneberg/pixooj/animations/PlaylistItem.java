@@ -0,0 +1,59 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.File;
+
+/**
+ * A local animation or image in a {@link Playlist}.
+ */
+public class PlaylistItem {
+    public static final int DEFAULT_DURATION_MS = 10000;
+    public static final int DEFAULT_SPEED_MS = 100;
+
+    private final File file;
+    private int durationMs;
+    private int speed;
+    private double weight;
+
+    /**
+     * Creates an item with the default duration, speed and a weight of 1.
+     * @param file The GIF or image file
+     */
+    public PlaylistItem(File file) {
+        this(file, DEFAULT_DURATION_MS, DEFAULT_SPEED_MS, 1);
+    }
+
+    /**
+     * Creates an item.
+     * @param file The GIF or image file
+     * @param durationMs How long the item stays on the display in milliseconds
+     * @param speed The display speed for each animation frame in milliseconds
+     * @param weight Relative chance of being picked in weighted order
+     */
+    public PlaylistItem(File file, int durationMs, int speed, double weight) {
+        this.file = file;
+        this.durationMs = durationMs;
+        this.speed = speed;
+        this.weight = weight;
+    }
+
+    /**
+     * Returns whether the item is an animated GIF, as opposed to a still image.
+     * @return true for GIF files
+     */
+    public boolean isAnimation() {
+        return file.getName().toLowerCase().endsWith(".gif");
+    }
+
+    public File getFile() { return file; }
+    public int getDurationMs() { return durationMs; }
+    public void setDurationMs(int durationMs) { this.durationMs = durationMs; }
+    public int getSpeed() { return speed; }
+    public void setSpeed(int speed) { this.speed = speed; }
+    public double getWeight() { return weight; }
+    public void setWeight(double weight) { this.weight = weight; }
+
+    @Override
+    public String toString() {
+        return file.getName() + " (" + durationMs + " ms)";
+    }
+}
@@ -0,0 +1,255 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Device-ready animation in the compact {@code .pxa} format, read from a memory-mapped file.
+ * <p>
+ * Frames are decoded straight from the mapped file into RGB bytes, without any
+ * {@code BufferedImage}. The layout is:
+ * <pre>
+ * int    magic ("PXA1")
+ * short  size (frames are size x size pixels)
+ * byte   flags (bit 0: pixels are palette indices instead of RGB triples)
+ * byte   reserved
+ * int    frame count (n)
+ * short  palette size (p), followed by byte[p * 3] RGB palette
+ * int[n] frame delays in milliseconds
+ * int[n + 1] frame offsets, relative to the start of the frame data
+ * byte[] frame data
+ * </pre>
+ * Each frame starts with its type ({@link #KEY_FRAME} or {@link #DELTA_FRAME}) followed by
+ * run-length encoded pixels. Every op byte holds a count of 1 to 64 pixels in its low six
+ * bits and the op in its top two bits: skip (keep the previous frame's pixels, delta frames
+ * only), run (one value repeated) or literal (count values follow). All integers are big-endian.
+ * The format is written by {@link PxaWriter}.
+ */
+public class PxaAnimation {
+    static final int MAGIC = 0x50584131; // "PXA1"
+    static final int FLAG_PALETTE = 1;
+
+    static final int KEY_FRAME = 0;
+    static final int DELTA_FRAME = 1;
+
+    static final int OP_SKIP = 0;
+    static final int OP_RUN = 1;
+    static final int OP_LITERAL = 2;
+    static final int MAX_OP_COUNT = 64;
+
+    private final ByteBuffer data;
+    private final int size;
+    private final boolean palette;
+    private final int frameCount;
+    private final byte[] paletteRgb;
+    private final int delaysStart;
+    private final int offsetsStart;
+    private final int framesStart;
+
+    private PxaAnimation(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < 14 || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a .pxa animation");
+        }
+        this.size = data.getShort(4) & 0xFFFF;
+        this.palette = (data.get(6) & FLAG_PALETTE) != 0;
+        this.frameCount = data.getInt(8);
+        int paletteSize = data.getShort(12) & 0xFFFF;
+        this.paletteRgb = new byte[paletteSize * 3];
+        if (frameCount < 0 || data.limit() < 14 + paletteRgb.length) {
+            throw new IOException("Truncated .pxa animation");
+        }
+        data.get(14, paletteRgb);
+        this.delaysStart = 14 + paletteRgb.length;
+        this.offsetsStart = delaysStart + frameCount * 4;
+        this.framesStart = offsetsStart + (frameCount + 1) * 4;
+        if (data.limit() < framesStart || data.limit() < framesStart + offset(frameCount)) {
+            throw new IOException("Truncated .pxa animation");
+        }
+    }
+
+    /**
+     * Memory-maps a {@code .pxa} file.
+     * @param file The file
+     * @return The animation
+     * @throws IOException If the file cannot be read or is not a valid animation
+     */
+    public static PxaAnimation open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new PxaAnimation(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Wraps a buffer holding a {@code .pxa} animation.
+     * @param data The buffer, positioned at the magic number
+     * @return The animation
+     * @throws IOException If the buffer does not hold a valid animation
+     */
+    public static PxaAnimation wrap(ByteBuffer data) throws IOException {
+        return new PxaAnimation(data.slice());
+    }
+
+    public int getSize() { return size; }
+    public int getFrameCount() { return frameCount; }
+    public boolean isPaletteIndexed() { return palette; }
+
+    public int getDelayMs(int index) {
+        checkIndex(index);
+        return data.getInt(delaysStart + index * 4);
+    }
+
+    /**
+     * Returns the total size of the animation in bytes.
+     * @return The size in bytes
+     */
+    public int getByteSize() {
+        return data.limit();
+    }
+
+    /**
+     * Decodes a single frame. Delta frames are decoded from the closest key frame before them,
+     * so iterate with {@link #frames()} when playing the whole animation.
+     * @param index The frame index
+     * @return The frame with its RGB bytes and delay
+     */
+    public AnimationFrame getFrame(int index) {
+        checkIndex(index);
+        int key = index;
+        while (data.get(framesStart + offset(key)) != KEY_FRAME) {
+            key--;
+        }
+        byte[] rgb = new byte[size * size * 3];
+        for (int i = key; i <= index; i++) {
+            decodeInto(i, rgb);
+        }
+        return new AnimationFrame(rgb, getDelayMs(index));
+    }
+
+    /**
+     * Returns the frames in order. Each frame is decoded on top of the previous one.
+     * @return An iterator over all frames
+     */
+    public Iterator<AnimationFrame> frames() {
+        return new Iterator<>() {
+            private final byte[] canvas = new byte[size * size * 3];
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < frameCount;
+            }
+
+            @Override
+            public AnimationFrame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                decodeInto(next, canvas);
+                AnimationFrame frame = new AnimationFrame(canvas.clone(), getDelayMs(next));
+                next++;
+                return frame;
+            }
+        };
+    }
+
+    /**
+     * Returns a frame source that plays the animation from the mapped file.
+     * @return A new source positioned at the first frame
+     */
+    public FrameSource toFrameSource() {
+        return new FrameSource() {
+            private Iterator<AnimationFrame> frames = frames();
+
+            @Override
+            public AnimationFrame next() {
+                return frames.hasNext() ? frames.next() : null;
+            }
+
+            @Override
+            public void rewind() {
+                frames = frames();
+            }
+
+            @Override
+            public int getFrameCount() {
+                return frameCount;
+            }
+        };
+    }
+
+    /**
+     * Decodes a frame on top of the given RGB bytes, which must hold the previous frame
+     * if this is a delta frame.
+     * @param index The frame index
+     * @param rgb The RGB bytes of size * size * 3
+     */
+    public void decodeInto(int index, byte[] rgb) {
+        checkIndex(index);
+        if (rgb.length != size * size * 3) {
+            throw new IllegalArgumentException("Frame has " + rgb.length + " bytes, expected " + (size * size * 3));
+        }
+        int position = framesStart + offset(index) + 1;
+        int end = framesStart + offset(index + 1);
+        decodeOps(data, position, end, palette ? paletteRgb : null, rgb);
+    }
+
+    /**
+     * Applies the run-length operations of one frame, without its frame type byte.
+     * Also used for the frames of {@link FrameRecording}s.
+     * @param paletteRgb The palette, or null if values are stored as RGB
+     */
+    static void decodeOps(ByteBuffer data, int position, int end, byte[] paletteRgb, byte[] rgb) {
+        int pixel = 0;
+        while (position < end) {
+            int op = data.get(position++) & 0xFF;
+            int count = (op & 0x3F) + 1;
+            switch (op >>> 6) {
+                case OP_SKIP:
+                    pixel += count;
+                    break;
+                case OP_RUN:
+                    position = readValue(data, position, paletteRgb, rgb, pixel);
+                    for (int i = 1; i < count; i++) {
+                        System.arraycopy(rgb, pixel * 3, rgb, (pixel + i) * 3, 3);
+                    }
+                    pixel += count;
+                    break;
+                default:
+                    for (int i = 0; i < count; i++) {
+                        position = readValue(data, position, paletteRgb, rgb, pixel++);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static int readValue(ByteBuffer data, int position, byte[] paletteRgb, byte[] rgb, int pixel) {
+        int k = pixel * 3;
+        if (paletteRgb != null) {
+            int index = (data.get(position) & 0xFF) * 3;
+            rgb[k] = paletteRgb[index];
+            rgb[k + 1] = paletteRgb[index + 1];
+            rgb[k + 2] = paletteRgb[index + 2];
+            return position + 1;
+        }
+        rgb[k] = data.get(position);
+        rgb[k + 1] = data.get(position + 1);
+        rgb[k + 2] = data.get(position + 2);
+        return position + 3;
+    }
+
+    private int offset(int index) {
+        return data.getInt(offsetsStart + index * 4);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts animations into the {@code .pxa} format read by {@link PxaAnimation}.
+ * <p>
+ * Animations with at most 256 colors are stored as palette indices. Every frame after the
+ * first is stored as a delta against the previous frame, unless a key frame is due or the
+ * full frame is smaller.
+ */
+public class PxaWriter {
+    public static final int DEFAULT_KEY_FRAME_INTERVAL = 32;
+    private static final int MAX_PALETTE_SIZE = 256;
+
+    private PxaWriter() {
+    }
+
+    /**
+     * Converts a GIF file.
+     * @param gifFile The GIF file
+     * @param size The device size in pixels
+     * @param target The {@code .pxa} file to write
+     * @throws IOException If the GIF cannot be decoded or the file cannot be written
+     */
+    public static void convertGif(File gifFile, int size, Path target) throws IOException {
+        try (FrameSource frames = new GifFrameStream(gifFile, size)) {
+            convert(frames, size, target);
+        }
+    }
+
+    /**
+     * Converts a sequence of images, e.g. numbered PNG files.
+     * @param images The images in playback order
+     * @param size The device size in pixels
+     * @param delayMs The delay of every frame in milliseconds
+     * @param target The {@code .pxa} file to write
+     * @throws IOException If an image cannot be read or the file cannot be written
+     */
+    public static void convertImages(List<File> images, int size, int delayMs, Path target) throws IOException {
+        convert(new ImageSequenceSource(images, size, delayMs), size, target);
+    }
+
+    /**
+     * Converts the frames of any source. The source must end.
+     * @param frames The frame source, producing frames at the device size
+     * @param size The device size in pixels
+     * @param target The {@code .pxa} file to write
+     * @throws IOException If a frame cannot be read or the file cannot be written
+     */
+    public static void convert(FrameSource frames, int size, Path target) throws IOException {
+        List<AnimationFrame> collected = new ArrayList<>();
+        try {
+            AnimationFrame frame;
+            while ((frame = frames.next()) != null) {
+                collected.add(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Converting animation was interrupted", e);
+        }
+        write(collected, size, target);
+    }
+
+    /**
+     * Writes frames with the default key frame interval.
+     * @param frames The frames at the device size
+     * @param size The device size in pixels
+     * @param target The {@code .pxa} file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(List<AnimationFrame> frames, int size, Path target) throws IOException {
+        ByteBuffer data = encode(frames, size, DEFAULT_KEY_FRAME_INTERVAL);
+
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        // Readers never see a partially written file
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Encodes frames into the {@code .pxa} format.
+     * @param frames The frames at the device size
+     * @param size The device size in pixels
+     * @param keyFrameInterval Store every n-th frame in full, 0 to store only the first one in full
+     * @return A heap buffer holding the animation
+     */
+    public static ByteBuffer encode(List<AnimationFrame> frames, int size, int keyFrameInterval) {
+        int pixelCount = size * size;
+        for (AnimationFrame frame : frames) {
+            if (frame.getRgb().length != pixelCount * 3) {
+                throw new IllegalArgumentException(
+                        "Frame has " + frame.getRgb().length + " bytes, expected " + (pixelCount * 3));
+            }
+        }
+
+        Map<Integer, Integer> palette = buildPalette(frames);
+
+        // Convert every frame into one int per pixel: a palette index or a packed RGB value
+        List<int[]> pixels = new ArrayList<>(frames.size());
+        for (AnimationFrame frame : frames) {
+            byte[] rgb = frame.getRgb();
+            int[] values = new int[pixelCount];
+            for (int i = 0, k = 0; i < pixelCount; i++, k += 3) {
+                int color = (rgb[k] & 0xFF) << 16 | (rgb[k + 1] & 0xFF) << 8 | (rgb[k + 2] & 0xFF);
+                values[i] = palette != null ? palette.get(color) : color;
+            }
+            pixels.add(values);
+        }
+
+        int valueBytes = palette != null ? 1 : 3;
+        ByteArrayOutputStream frameData = new ByteArrayOutputStream();
+        int[] offsets = new int[frames.size() + 1];
+        for (int f = 0; f < frames.size(); f++) {
+            offsets[f] = frameData.size();
+            byte[] key = encodeFrame(pixels.get(f), null, valueBytes);
+            boolean keyDue = f == 0 || (keyFrameInterval > 0 && f % keyFrameInterval == 0);
+            if (!keyDue) {
+                byte[] delta = encodeFrame(pixels.get(f), pixels.get(f - 1), valueBytes);
+                if (delta.length < key.length) {
+                    key = delta;
+                }
+            }
+            frameData.writeBytes(key);
+        }
+        offsets[frames.size()] = frameData.size();
+
+        int paletteSize = palette != null ? palette.size() : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(14 + paletteSize * 3 + frames.size() * 4
+                + offsets.length * 4 + frameData.size());
+        buffer.putInt(PxaAnimation.MAGIC);
+        buffer.putShort((short) size);
+        buffer.put((byte) (palette != null ? PxaAnimation.FLAG_PALETTE : 0));
+        buffer.put((byte) 0);
+        buffer.putInt(frames.size());
+        buffer.putShort((short) paletteSize);
+        if (palette != null) {
+            byte[] paletteRgb = new byte[paletteSize * 3];
+            for (Map.Entry<Integer, Integer> entry : palette.entrySet()) {
+                int k = entry.getValue() * 3;
+                paletteRgb[k] = (byte) (entry.getKey() >> 16);
+                paletteRgb[k + 1] = (byte) (entry.getKey() >> 8);
+                paletteRgb[k + 2] = (byte) (int) entry.getKey();
+            }
+            buffer.put(paletteRgb);
+        }
+        for (AnimationFrame frame : frames) {
+            buffer.putInt(frame.getDelayMs());
+        }
+        for (int offset : offsets) {
+            buffer.putInt(offset);
+        }
+        buffer.put(frameData.toByteArray());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encodes a single RGB frame, as a delta if that is smaller.
+     * Also used for the frames of {@link FrameRecording}s.
+     * @param rgb The RGB bytes of the frame
+     * @param previous The RGB bytes of the previous frame, or null to encode a key frame
+     * @return The frame type byte followed by the run-length operations
+     */
+    static byte[] encodeRgbFrame(byte[] rgb, byte[] previous) {
+        int[] values = packRgb(rgb);
+        byte[] key = encodeFrame(values, null, 3);
+        if (previous == null) {
+            return key;
+        }
+        byte[] delta = encodeFrame(values, packRgb(previous), 3);
+        return delta.length < key.length ? delta : key;
+    }
+
+    private static int[] packRgb(byte[] rgb) {
+        int[] values = new int[rgb.length / 3];
+        for (int i = 0, k = 0; i < values.length; i++, k += 3) {
+            values[i] = (rgb[k] & 0xFF) << 16 | (rgb[k + 1] & 0xFF) << 8 | (rgb[k + 2] & 0xFF);
+        }
+        return values;
+    }
+
+    /**
+     * Collects the colors of all frames.
+     * @return Color to palette index, or null if there are too many colors for a palette
+     */
+    private static Map<Integer, Integer> buildPalette(List<AnimationFrame> frames) {
+        Map<Integer, Integer> palette = new HashMap<>();
+        for (AnimationFrame frame : frames) {
+            byte[] rgb = frame.getRgb();
+            for (int k = 0; k < rgb.length; k += 3) {
+                int color = (rgb[k] & 0xFF) << 16 | (rgb[k + 1] & 0xFF) << 8 | (rgb[k + 2] & 0xFF);
+                if (!palette.containsKey(color)) {
+                    if (palette.size() == MAX_PALETTE_SIZE) {
+                        return null;
+                    }
+                    palette.put(color, palette.size());
+                }
+            }
+        }
+        return palette;
+    }
+
+    /**
+     * Run-length encodes a frame.
+     * @param values The pixel values
+     * @param previous The previous frame's values for a delta frame, or null for a key frame
+     */
+    private static byte[] encodeFrame(int[] values, int[] previous, int valueBytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(previous == null ? PxaAnimation.KEY_FRAME : PxaAnimation.DELTA_FRAME);
+
+        int i = 0;
+        while (i < values.length) {
+            if (previous != null && values[i] == previous[i]) {
+                int count = 1;
+                while (i + count < values.length && count < PxaAnimation.MAX_OP_COUNT
+                        && values[i + count] == previous[i + count]) {
+                    count++;
+                }
+                writeOp(out, PxaAnimation.OP_SKIP, count);
+                i += count;
+                continue;
+            }
+
+            int run = runLength(values, i);
+            if (run >= 2) {
+                writeOp(out, PxaAnimation.OP_RUN, run);
+                writeValue(out, values[i], valueBytes);
+                i += run;
+                continue;
+            }
+
+            // Collect literals until a run or unchanged pixel starts
+            int start = i;
+            int count = 0;
+            while (i < values.length && count < PxaAnimation.MAX_OP_COUNT
+                    && !(previous != null && values[i] == previous[i])
+                    && (count == 0 || runLength(values, i) < 2)) {
+                i++;
+                count++;
+            }
+            writeOp(out, PxaAnimation.OP_LITERAL, count);
+            for (int k = start; k < start + count; k++) {
+                writeValue(out, values[k], valueBytes);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int runLength(int[] values, int start) {
+        int run = 1;
+        while (start + run < values.length && run < PxaAnimation.MAX_OP_COUNT
+                && values[start + run] == values[start]) {
+            run++;
+        }
+        return run;
+    }
+
+    private static void writeOp(ByteArrayOutputStream out, int op, int count) {
+        out.write(op << 6 | (count - 1));
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, int value, int valueBytes) {
+        if (valueBytes == 1) {
+            out.write(value);
+        } else {
+            out.write(value >> 16);
+            out.write(value >> 8);
+            out.write(value);
+        }
+    }
+}
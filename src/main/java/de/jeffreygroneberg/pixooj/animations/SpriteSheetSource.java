@@ -0,0 +1,104 @@
+package de.jeffreygroneberg.pixooj.animations;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Frame source for a sprite sheet: one image holding equally sized frames in a grid,
+ * read left to right and top to bottom. The sheet is decoded once; each frame is cut
+ * out and scaled when it is requested.
+ */
+public class SpriteSheetSource implements FrameSource {
+    private final BufferedImage sheet;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int frameCount;
+    private final int size;
+    private final int delayMs;
+    private int nextIndex;
+
+    /**
+     * Creates a source for all frames of a sprite sheet.
+     * @param sheet The sprite sheet
+     * @param frameWidth The width of a frame in the sheet
+     * @param frameHeight The height of a frame in the sheet
+     * @param size The device size in pixels
+     * @param delayMs The delay of every frame in milliseconds
+     */
+    public SpriteSheetSource(BufferedImage sheet, int frameWidth, int frameHeight, int size, int delayMs) {
+        this(sheet, frameWidth, frameHeight, (sheet.getWidth() / frameWidth) * (sheet.getHeight() / frameHeight),
+                size, delayMs);
+    }
+
+    /**
+     * Creates a source for the first frames of a sprite sheet, e.g. if the last row is not full.
+     * @param sheet The sprite sheet
+     * @param frameWidth The width of a frame in the sheet
+     * @param frameHeight The height of a frame in the sheet
+     * @param frameCount The number of frames to use
+     * @param size The device size in pixels
+     * @param delayMs The delay of every frame in milliseconds
+     */
+    public SpriteSheetSource(BufferedImage sheet, int frameWidth, int frameHeight, int frameCount,
+                             int size, int delayMs) {
+        int columns = sheet.getWidth() / frameWidth;
+        int rows = sheet.getHeight() / frameHeight;
+        if (frameCount < 0 || frameCount > columns * rows) {
+            throw new IllegalArgumentException(
+                "Sprite sheet holds " + (columns * rows) + " frames, requested " + frameCount);
+        }
+        this.sheet = sheet;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.frameCount = frameCount;
+        this.size = size;
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * Reads a sprite sheet from a file.
+     * @param file The image file
+     * @param frameWidth The width of a frame in the sheet
+     * @param frameHeight The height of a frame in the sheet
+     * @param size The device size in pixels
+     * @param delayMs The delay of every frame in milliseconds
+     * @return The source
+     * @throws IOException If the image cannot be read
+     */
+    public static SpriteSheetSource fromFile(File file, int frameWidth, int frameHeight, int size, int delayMs)
+            throws IOException {
+        BufferedImage sheet = ImageIO.read(file);
+        if (sheet == null) {
+            throw new IOException("Unsupported image: " + file);
+        }
+        return new SpriteSheetSource(sheet, frameWidth, frameHeight, size, delayMs);
+    }
+
+    @Override
+    public AnimationFrame next() {
+        if (nextIndex >= frameCount) {
+            return null;
+        }
+        int columns = sheet.getWidth() / frameWidth;
+        int x = (nextIndex % columns) * frameWidth;
+        int y = (nextIndex / columns) * frameHeight;
+        nextIndex++;
+        // getSubimage shares the sheet's pixels, so nothing is copied before scaling
+        BufferedImage frame = sheet.getSubimage(x, y, frameWidth, frameHeight);
+        return new AnimationFrame(ImageUtils.toDeviceRgbBytes(frame, size, true), delayMs);
+    }
+
+    @Override
+    public void rewind() {
+        nextIndex = 0;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+}
@@ -0,0 +1,66 @@
+package de.jeffreygroneberg.pixooj.configurations;
+
+/**
+ * Configuration of the faults injected by the {@link de.jeffreygroneberg.pixooj.emulator.PixooEmulator}.
+ */
+public class EmulatorConfiguration {
+    private int port;
+    private long latencyMillis;
+    private long jitterMillis;
+    private double errorRate;
+    private double dropRate;
+    private long seed = 1;
+
+    /**
+     * Creates a configuration without injected faults on a free port.
+     */
+    public EmulatorConfiguration() {
+        this(0, 0);
+    }
+
+    /**
+     * @param latencyMillis Delay added to every response
+     * @param jitterMillis Maximum random delay added on top of the latency
+     */
+    public EmulatorConfiguration(long latencyMillis, long jitterMillis) {
+        this(latencyMillis, jitterMillis, 0, 0);
+    }
+
+    /**
+     * @param latencyMillis Delay added to every response
+     * @param jitterMillis Maximum random delay added on top of the latency
+     * @param errorRate Share of commands answered with a non-zero {@code error_code} (0-1)
+     * @param dropRate Share of requests whose connection is closed without a response (0-1)
+     */
+    public EmulatorConfiguration(long latencyMillis, long jitterMillis, double errorRate, double dropRate) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.dropRate = dropRate;
+    }
+
+    public int getPort() { return port; }
+
+    /**
+     * @param port The port to listen on, 0 for a free port
+     */
+    public void setPort(int port) { this.port = port; }
+
+    public long getLatencyMillis() { return latencyMillis; }
+    public void setLatencyMillis(long latencyMillis) { this.latencyMillis = latencyMillis; }
+    public long getJitterMillis() { return jitterMillis; }
+    public void setJitterMillis(long jitterMillis) { this.jitterMillis = jitterMillis; }
+    public double getErrorRate() { return errorRate; }
+    public void setErrorRate(double errorRate) { this.errorRate = errorRate; }
+    public double getDropRate() { return dropRate; }
+    public void setDropRate(double dropRate) { this.dropRate = dropRate; }
+    public long getSeed() { return seed; }
+
+    /**
+     * Sets the seed of the random delays and faults. The n-th request the emulator receives
+     * always gets the same delay and faults, so runs can be repeated. With concurrent requests,
+     * which request arrives n-th can still vary.
+     * @param seed Seed of the random delays and faults
+     */
+    public void setSeed(long seed) { this.seed = seed; }
+}
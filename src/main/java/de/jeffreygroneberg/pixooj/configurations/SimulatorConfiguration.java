@@ -1,24 +1,70 @@
 package de.jeffreygroneberg.pixooj.configurations;
 
+import java.io.File;
+
 /**
  * Configuration class for simulator settings.
  */
 public class SimulatorConfiguration {
     private int scale;
-    
+    private boolean ledStyle;
+    private File outputDirectory;
+    private int snapshotInterval = 1;
+
     public SimulatorConfiguration() {
         this(4);
     }
-    
+
     public SimulatorConfiguration(int scale) {
+        this(scale, false);
+    }
+
+    /**
+     * @param scale Number of screen pixels per device pixel
+     * @param ledStyle Draw every device pixel as a round LED dot instead of a square
+     */
+    public SimulatorConfiguration(int scale, boolean ledStyle) {
         this.scale = scale;
+        this.ledStyle = ledStyle;
     }
-    
+
     public int getScale() {
         return scale;
     }
-    
+
     public void setScale(int scale) {
         this.scale = scale;
     }
+
+    public boolean isLedStyle() {
+        return ledStyle;
+    }
+
+    public void setLedStyle(boolean ledStyle) {
+        this.ledStyle = ledStyle;
+    }
+
+    public File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * Sets the directory rendered frames are written to as PNG snapshots.
+     * @param outputDirectory The directory, or null to keep frames in memory only
+     */
+    public void setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Sets how often a PNG snapshot is written.
+     * @param snapshotInterval Write every n-th frame (at least 1)
+     */
+    public void setSnapshotInterval(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
 }
@@ -0,0 +1,354 @@
+package de.jeffreygroneberg.pixooj.emulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.jeffreygroneberg.pixooj.configurations.EmulatorConfiguration;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP server that answers the {@code /post} commands of a Pixoo device.
+ * <p>
+ * Uploaded frames are decoded into a framebuffer, the PicID counter behaves like the
+ * device's, and settings sent with {@code Channel/*} and {@code Device/*} commands are
+ * reported back by {@code Channel/GetAllConf}. Latency, jitter, error responses and
+ * dropped connections can be injected with an {@link EmulatorConfiguration}, so the
+ * client can be tested and benchmarked end to end on one machine:
+ * <pre>
+ * try (PixooEmulator emulator = new PixooEmulator(64).start()) {
+ *     Pixoo pixoo = new Pixoo(emulator.getAddress(), 64, false, true, false, null);
+ *     ...
+ * }
+ * </pre>
+ * The JDK server writes headers and body separately, so without {@code TCP_NODELAY} every
+ * response waits for a delayed ACK and takes about 40 ms instead of a few. The setting
+ * applies to every {@code HttpServer} in the JVM, so the emulator leaves it to the caller:
+ * start the JVM with {@code -Dsun.net.httpserver.nodelay=true} for benchmarks.
+ */
+public class PixooEmulator implements AutoCloseable {
+    public static final int ERROR_CODE = 1;
+
+    // Spreads the seeds of consecutive requests (the 64-bit golden ratio)
+    private static final long REQUEST_SEED_STEP = 0x9E3779B97F4A7C15L;
+    private static final DateTimeFormatter LOCAL_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Commands whose request field is stored under a different name in the configuration
+    private static final Map<String, String[]> SETTINGS = Map.of(
+            "Channel/SetBrightness", new String[]{"Brightness", "Brightness"},
+            "Channel/SetIndex", new String[]{"SelectIndex", "SelectIndex"},
+            "Channel/OnOffScreen", new String[]{"OnOff", "LightSwitch"},
+            "Channel/SetClockSelectId", new String[]{"ClockId", "CurClockId"},
+            "Channel/SetEqPosition", new String[]{"EqPosition", "EqPosition"},
+            "Device/SetMirrorMode", new String[]{"Mode", "MirrorFlag"},
+            "Device/SetHighLightMode", new String[]{"Mode", "HighLightMode"},
+            "Device/SetNoiseStatus", new String[]{"NoiseStatus", "NoiseStatus"});
+
+    private final int size;
+    private final EmulatorConfiguration config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ObjectNode configuration;
+    private final byte[] framebuffer;
+    private final Map<Integer, byte[][]> pendingPictures = new HashMap<>();
+    private int lastPicId;
+
+    private final Map<String, LongAdder> commandCounts = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong picturesShown = new AtomicLong();
+    private final AtomicLong errorsInjected = new AtomicLong();
+    private final AtomicLong dropsInjected = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Creates an emulator without injected faults.
+     * @param size The emulated screen size in pixels (16, 32 or 64)
+     */
+    public PixooEmulator(int size) {
+        this(size, new EmulatorConfiguration());
+    }
+
+    /**
+     * Creates an emulator.
+     * @param size The emulated screen size in pixels (16, 32 or 64)
+     * @param config Port and injected faults
+     */
+    public PixooEmulator(int size, EmulatorConfiguration config) {
+        this.size = size;
+        this.config = config;
+        this.framebuffer = new byte[size * size * 3];
+
+        this.configuration = objectMapper.createObjectNode();
+        configuration.put("Brightness", 100);
+        configuration.put("RotationFlag", 0);
+        configuration.put("ClockTime", 60);
+        configuration.put("GalleryTime", 60);
+        configuration.put("SingleGalleyTime", -1);
+        configuration.put("PowerOnChannelId", 0);
+        configuration.put("GalleryShowTimeFlag", 0);
+        configuration.put("CurClockId", 0);
+        configuration.put("Time24Flag", 1);
+        configuration.put("TemperatureMode", 0);
+        configuration.put("GyrateAngle", 0);
+        configuration.put("MirrorFlag", 0);
+        configuration.put("LightSwitch", 1);
+        configuration.put("SelectIndex", 0);
+    }
+
+    /**
+     * Starts listening on the loopback interface.
+     * @return This emulator
+     * @throws IOException If the port cannot be bound
+     */
+    public synchronized PixooEmulator start() throws IOException {
+        if (server != null) return this;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "pixoo-emulator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getPort()), 0);
+        server.createContext("/post", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stops the server. Requests in progress are aborted.
+     */
+    @Override
+    public synchronized void close() {
+        if (server == null) return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+
+    /**
+     * Returns the address to pass to {@link de.jeffreygroneberg.pixooj.objects.Pixoo} as IP address.
+     * @return Host and port, e.g. {@code 127.0.0.1:49152}
+     */
+    public String getAddress() {
+        InetSocketAddress address = server.getAddress();
+        return address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    /**
+     * Returns a copy of the picture currently shown.
+     * @return RGB bytes in row-major order
+     */
+    public synchronized byte[] getFramebuffer() {
+        return framebuffer.clone();
+    }
+
+    /**
+     * Returns the color of one pixel of the picture currently shown.
+     * @return The color as {@code 0xRRGGBB}
+     */
+    public synchronized int getPixel(int x, int y) {
+        int k = (y * size + x) * 3;
+        return (framebuffer[k] & 0xFF) << 16 | (framebuffer[k + 1] & 0xFF) << 8 | (framebuffer[k + 2] & 0xFF);
+    }
+
+    public synchronized int getLastPicId() { return lastPicId; }
+
+    /** Animations whose frames have not all arrived yet. */
+    public synchronized int getPendingPictures() { return pendingPictures.size(); }
+    public synchronized JsonNode getConfiguration() { return configuration.deepCopy(); }
+    public int getSize() { return size; }
+    public long getRequests() { return requests.get(); }
+
+    /** Frames of {@code Draw/SendHttpGif} that were accepted. */
+    public long getFramesReceived() { return framesReceived.get(); }
+
+    /** Pictures and animations whose frames were all received. */
+    public long getPicturesShown() { return picturesShown.get(); }
+
+    public long getErrorsInjected() { return errorsInjected.get(); }
+    public long getDropsInjected() { return dropsInjected.get(); }
+
+    /**
+     * Returns how often a command was received, including requests that were dropped.
+     * @param command The command, e.g. {@code Draw/SendHttpGif}
+     */
+    public long getCommandCount(String command) {
+        LongAdder count = commandCounts.get(command);
+        return count != null ? count.sum() : 0;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            // Faults depend only on the seed and the request number, not on how handler threads interleave
+            long sequence = requests.incrementAndGet();
+            SplittableRandom random = new SplittableRandom(config.getSeed() + sequence * REQUEST_SEED_STEP);
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            String command = request.path("Command").asText("");
+            commandCounts.computeIfAbsent(command, key -> new LongAdder()).increment();
+
+            delay(random);
+            if (chance(random, config.getDropRate())) {
+                dropsInjected.incrementAndGet();
+                // Closing the exchange before sending headers closes the connection
+                return;
+            }
+
+            ObjectNode response;
+            if (chance(random, config.getErrorRate())) {
+                errorsInjected.incrementAndGet();
+                response = error();
+            } else {
+                response = execute(command, request);
+            }
+            send(exchange, response);
+        } catch (IOException e) {
+            // Malformed request or the client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ObjectNode execute(String command, JsonNode request) {
+        switch (command) {
+            case "Draw/SendHttpGif":
+                return receiveFrame(request);
+            case "Draw/GetHttpGifId": {
+                ObjectNode response = ok();
+                response.put("PicId", getLastPicId());
+                return response;
+            }
+            case "Draw/ResetHttpGifId":
+                synchronized (this) {
+                    lastPicId = 0;
+                    pendingPictures.clear();
+                }
+                return ok();
+            case "Channel/GetAllConf": {
+                ObjectNode response = ok();
+                synchronized (this) {
+                    response.setAll(configuration.deepCopy());
+                }
+                return response;
+            }
+            case "Device/GetDeviceTime": {
+                ObjectNode response = ok();
+                response.put("UTCTime", System.currentTimeMillis() / 1000);
+                response.put("LocalTime", LocalDateTime.now().format(LOCAL_TIME_FORMAT));
+                return response;
+            }
+            default:
+                if (command.startsWith("Channel/") || command.startsWith("Device/")
+                        || command.startsWith("Draw/") || command.startsWith("Tools/")) {
+                    storeSetting(command, request);
+                    return ok();
+                }
+                return error();
+        }
+    }
+
+    private ObjectNode receiveFrame(JsonNode request) {
+        int picNum = request.path("PicNum").asInt(0);
+        int width = request.path("PicWidth").asInt(0);
+        int offset = request.path("PicOffset").asInt(-1);
+        int picId = request.path("PicID").asInt(-1);
+        byte[] rgb;
+        try {
+            rgb = Base64.getDecoder().decode(request.path("PicData").asText(""));
+        } catch (IllegalArgumentException e) {
+            return error();
+        }
+        if (width != size || picNum < 1 || offset < 0 || offset >= picNum || picId < 0
+                || rgb.length != framebuffer.length) {
+            return error();
+        }
+
+        synchronized (this) {
+            byte[][] frames = pendingPictures.get(picId);
+            if (frames == null || frames.length != picNum) {
+                // A new picture, or a reused PicID with another frame count, abandons older uploads
+                pendingPictures.keySet().removeIf(id -> id <= picId);
+                frames = new byte[picNum][];
+                pendingPictures.put(picId, frames);
+            }
+            frames[offset] = rgb;
+            lastPicId = Math.max(lastPicId, picId);
+            framesReceived.incrementAndGet();
+
+            for (byte[] frame : frames) {
+                if (frame == null) return ok();
+            }
+            // The device shows a picture once all of its frames have arrived
+            pendingPictures.remove(picId);
+            System.arraycopy(frames[0], 0, framebuffer, 0, framebuffer.length);
+            picturesShown.incrementAndGet();
+        }
+        return ok();
+    }
+
+    private synchronized void storeSetting(String command, JsonNode request) {
+        String[] mapping = SETTINGS.get(command);
+        if (mapping == null) return;
+        JsonNode value = request.get(mapping[0]);
+        if (value == null) return;
+        configuration.put(mapping[1], value.isBoolean() ? (value.asBoolean() ? 1 : 0) : value.asInt());
+    }
+
+    private void delay(SplittableRandom random) throws InterruptedException {
+        long millis = config.getLatencyMillis();
+        if (config.getJitterMillis() > 0) {
+            millis += (long) (random.nextDouble() * config.getJitterMillis());
+        }
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private boolean chance(SplittableRandom random, double rate) {
+        return rate > 0 && random.nextDouble() < rate;
+    }
+
+    private ObjectNode ok() {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("error_code", 0);
+        return response;
+    }
+
+    private ObjectNode error() {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("error_code", ERROR_CODE);
+        return response;
+    }
+
+    private static void send(HttpExchange exchange, ObjectNode response) throws IOException {
+        byte[] body = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
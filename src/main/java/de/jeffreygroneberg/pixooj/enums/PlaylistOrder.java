@@ -0,0 +1,10 @@
+package de.jeffreygroneberg.pixooj.enums;
+
+/**
+ * Enumeration for the order in which playlist items are played.
+ */
+public enum PlaylistOrder {
+    SEQUENTIAL, // In the order the items were added
+    SHUFFLE,    // Every item once per cycle, in random order
+    WEIGHTED    // Random items, picked in proportion to their weight
+}
@@ -0,0 +1,33 @@
+package de.jeffreygroneberg.pixooj.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One attempt to upload a frame of an animation.
+ */
+@Name("de.jeffreygroneberg.pixooj.AnimationFrameUpload")
+@Label("Animation Frame Upload")
+@Category({"Pixoo", "Frames"})
+@Description("Upload attempt of one animation frame")
+public class AnimationFrameUploadEvent extends Event {
+    @Label("Animation")
+    public String name;
+
+    @Label("PicOffset")
+    public int index;
+
+    @Label("Frame Count")
+    public int frameCount;
+
+    @Label("Payload Size")
+    @DataAmount
+    public int payloadBytes;
+
+    @Label("Success")
+    public boolean success;
+}
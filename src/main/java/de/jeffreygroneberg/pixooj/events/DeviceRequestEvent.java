@@ -0,0 +1,31 @@
+package de.jeffreygroneberg.pixooj.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A request to the device's {@code /post} endpoint, from sending to receiving the response.
+ */
+@Name("de.jeffreygroneberg.pixooj.DeviceRequest")
+@Label("Device Request")
+@Category({"Pixoo", "Network"})
+@Description("HTTP request to a Pixoo device")
+public class DeviceRequestEvent extends Event {
+    @Label("Command")
+    public String command;
+
+    @Label("Request Size")
+    @DataAmount
+    public int requestBytes;
+
+    @Label("HTTP Status")
+    @Description("Status code of the response, -1 if no response was received")
+    public int status;
+
+    @Label("Asynchronous")
+    public boolean async;
+}
@@ -0,0 +1,31 @@
+package de.jeffreygroneberg.pixooj.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Drawing an image into the frame buffer, including padding or scaling it to the device size.
+ */
+@Name("de.jeffreygroneberg.pixooj.DrawImage")
+@Label("Draw Image")
+@Category({"Pixoo", "Images"})
+@Description("Image drawn into the frame buffer")
+public class DrawImageEvent extends Event {
+    @Label("Source Width")
+    public int sourceWidth;
+
+    @Label("Source Height")
+    public int sourceHeight;
+
+    @Label("Device Size")
+    public int size;
+
+    @Label("Resample Mode")
+    public String resampleMode;
+
+    @Label("Padded")
+    public boolean padded;
+}
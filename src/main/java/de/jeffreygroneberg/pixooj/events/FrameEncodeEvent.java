@@ -0,0 +1,21 @@
+package de.jeffreygroneberg.pixooj.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Conversion of the frame buffer into the Base64 payload of a push.
+ */
+@Name("de.jeffreygroneberg.pixooj.FrameEncode")
+@Label("Frame Encode")
+@Category({"Pixoo", "Frames"})
+@Description("Frame buffer encoded into a Base64 payload")
+public class FrameEncodeEvent extends Event {
+    @Label("Payload Size")
+    @DataAmount
+    public int payloadBytes;
+}
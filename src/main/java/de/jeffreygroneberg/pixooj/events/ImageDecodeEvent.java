@@ -0,0 +1,28 @@
+package de.jeffreygroneberg.pixooj.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Decoding an image file, possibly subsampled.
+ */
+@Name("de.jeffreygroneberg.pixooj.ImageDecode")
+@Label("Image Decode")
+@Category({"Pixoo", "Images"})
+@Description("Image file decoded")
+public class ImageDecodeEvent extends Event {
+    @Label("File")
+    public String file;
+
+    @Label("Source Width")
+    public int sourceWidth;
+
+    @Label("Source Height")
+    public int sourceHeight;
+
+    @Label("Subsampling")
+    public int subsampling;
+}
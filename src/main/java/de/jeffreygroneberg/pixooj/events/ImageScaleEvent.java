@@ -0,0 +1,31 @@
+package de.jeffreygroneberg.pixooj.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Scaling an image with {@code ImageUtils.scaleImage}.
+ */
+@Name("de.jeffreygroneberg.pixooj.ImageScale")
+@Label("Image Scale")
+@Category({"Pixoo", "Images"})
+@Description("Image scaled")
+public class ImageScaleEvent extends Event {
+    @Label("Source Width")
+    public int sourceWidth;
+
+    @Label("Source Height")
+    public int sourceHeight;
+
+    @Label("Target Width")
+    public int targetWidth;
+
+    @Label("Target Height")
+    public int targetHeight;
+
+    @Label("High Quality")
+    public boolean highQuality;
+}
@@ -0,0 +1,29 @@
+package de.jeffreygroneberg.pixooj.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A frame buffer pushed with {@code push()}, including waiting for the PicID counter,
+ * encoding and the request.
+ */
+@Name("de.jeffreygroneberg.pixooj.Push")
+@Label("Push")
+@Category({"Pixoo", "Frames"})
+@Description("Frame buffer sent to a Pixoo device")
+public class PushEvent extends Event {
+    @Label("Device Size")
+    public int size;
+
+    @Label("PicID")
+    public int picId;
+
+    @Label("Simulated")
+    public boolean simulated;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,46 @@
+package de.jeffreygroneberg.pixooj.metrics;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanRegistrationException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers {@link PixooMetrics} with the platform MBean server, so they can be read with
+ * JConsole, VisualVM or any JMX collector under
+ * {@code de.jeffreygroneberg.pixooj:type=Pixoo,name=<device>}.
+ */
+public class JmxMetricsExporter implements AutoCloseable {
+    public static final String DOMAIN = "de.jeffreygroneberg.pixooj";
+
+    private final MBeanServer server;
+    private final ObjectName objectName;
+
+    /**
+     * Registers the metrics of one device.
+     * @param metrics The metrics
+     * @param deviceName Name that identifies the device, e.g. its IP address
+     * @throws JMException If the name is invalid or already registered
+     */
+    public JmxMetricsExporter(PixooMetrics metrics, String deviceName) throws JMException {
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.objectName = new ObjectName(DOMAIN + ":type=Pixoo,name=" + ObjectName.quote(deviceName));
+        server.registerMBean(metrics, objectName);
+    }
+
+    public ObjectName getObjectName() { return objectName; }
+
+    /**
+     * Removes the metrics from the MBean server.
+     */
+    @Override
+    public void close() {
+        try {
+            server.unregisterMBean(objectName);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Already unregistered
+        }
+    }
+}
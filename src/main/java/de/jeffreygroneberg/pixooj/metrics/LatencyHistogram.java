@@ -0,0 +1,94 @@
+package de.jeffreygroneberg.pixooj.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets.
+ * <p>
+ * Every power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so recorded
+ * values keep about 12% relative precision from one microsecond up to about a minute.
+ * Recording is a few arithmetic operations and one atomic increment.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values are recorded in microseconds; 2^26 us is about 67 seconds
+    private static final int MAX_EXPONENT = 26;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private volatile long maxMicros;
+
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucket(micros));
+        count.increment();
+        totalMicros.add(micros);
+        if (micros > maxMicros) {
+            // Racing updates may lose a maximum only to a concurrent, nearly equal one
+            maxMicros = micros;
+        }
+    }
+
+    public long getCount() { return count.sum(); }
+    public long getMaxMicros() { return maxMicros; }
+
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) totalMicros.sum() / n;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile.
+     * @param percentile The percentile (0-100)
+     * @return The upper edge of the bucket holding the percentile in microseconds, 0 if nothing was recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(upperBound(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    private static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (sub + 1) * width - 1;
+    }
+}
@@ -0,0 +1,72 @@
+package de.jeffreygroneberg.pixooj.metrics;
+
+/**
+ * Receives measurements from a {@link de.jeffreygroneberg.pixooj.objects.Pixoo}.
+ * <p>
+ * Methods are called on the pushing and HTTP client threads, so implementations must be
+ * thread-safe and should return quickly. All methods do nothing by default, so
+ * implementations only override what they record. {@link #NOOP} is used until a registry
+ * is set; {@link PixooMetrics} keeps histograms and counters in memory.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Records nothing.
+     */
+    MetricsRegistry NOOP = new MetricsRegistry() {
+    };
+
+    /**
+     * Called before a request is sent.
+     * @param command The command, e.g. {@code Draw/SendHttpGif}
+     */
+    default void requestStarted(String command) {
+    }
+
+    /**
+     * Called when a request has completed or failed.
+     * @param command The command
+     * @param requestBytes Size of the request body
+     * @param nanos Time from sending the request to receiving the response
+     * @param success Whether the device answered with HTTP 200
+     */
+    default void requestCompleted(String command, int requestBytes, long nanos, boolean success) {
+    }
+
+    /**
+     * Called when the device answered with a non-zero {@code error_code}.
+     * @param errorCode The error code
+     */
+    default void deviceError(int errorCode) {
+    }
+
+    /**
+     * Called after a frame buffer was encoded for sending.
+     * @param nanos Time spent converting and Base64 encoding the frame
+     * @param payloadBytes Length of the Base64 payload
+     */
+    default void frameEncoded(long nanos, int payloadBytes) {
+    }
+
+    /**
+     * Called after {@code push()} has finished.
+     * @param nanos Time spent in the push, including waiting for the device
+     * @param success Whether the device accepted the frame
+     */
+    default void framePushed(long nanos, boolean success) {
+    }
+
+    /**
+     * Called after an animation frame was uploaded or finally failed.
+     * @param success Whether the device accepted the frame
+     */
+    default void animationFrameSent(boolean success) {
+    }
+
+    /**
+     * Called when a reset of the device PicID counter has finished.
+     * @param success Whether the device confirmed the reset
+     */
+    default void counterReset(boolean success) {
+    }
+}
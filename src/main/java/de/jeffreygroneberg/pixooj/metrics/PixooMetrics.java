@@ -0,0 +1,168 @@
+package de.jeffreygroneberg.pixooj.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory {@link MetricsRegistry} with latency histograms per command type.
+ * <p>
+ * Counters are {@link LongAdder}s and histograms are lock-free, so recording from many
+ * threads costs a few atomic increments. Values can be read directly or exported with
+ * {@link JmxMetricsExporter}:
+ * <pre>
+ * PixooMetrics metrics = new PixooMetrics();
+ * pixoo.setMetricsRegistry(metrics);
+ * new JmxMetricsExporter(metrics, "living-room");
+ * </pre>
+ */
+public class PixooMetrics implements MetricsRegistry, PixooMetricsMXBean {
+
+    private final Map<String, CommandStats> commands = new ConcurrentHashMap<>();
+    private final LatencyHistogram pushLatency = new LatencyHistogram();
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final LongAdder pushFailures = new LongAdder();
+    private final LongAdder animationFramesSent = new LongAdder();
+    private final LongAdder animationFrameFailures = new LongAdder();
+    private final LongAdder payloadBytes = new LongAdder();
+    private final LongAdder deviceErrors = new LongAdder();
+    private final LongAdder counterResets = new LongAdder();
+    private final LongAdder counterResetFailures = new LongAdder();
+
+    @Override
+    public void requestStarted(String command) {
+        requestsInFlight.incrementAndGet();
+    }
+
+    @Override
+    public void requestCompleted(String command, int requestBytes, long nanos, boolean success) {
+        requestsInFlight.decrementAndGet();
+        CommandStats stats = commands.get(command);
+        if (stats == null) {
+            stats = commands.computeIfAbsent(command, key -> new CommandStats());
+        }
+        stats.latency.record(nanos);
+        stats.bytes.add(requestBytes);
+        if (!success) {
+            stats.failures.increment();
+        }
+    }
+
+    @Override
+    public void deviceError(int errorCode) {
+        deviceErrors.increment();
+    }
+
+    @Override
+    public void frameEncoded(long nanos, int payloadBytes) {
+        encodeLatency.record(nanos);
+        this.payloadBytes.add(payloadBytes);
+    }
+
+    @Override
+    public void framePushed(long nanos, boolean success) {
+        pushLatency.record(nanos);
+        if (!success) {
+            pushFailures.increment();
+        }
+    }
+
+    @Override
+    public void animationFrameSent(boolean success) {
+        if (success) {
+            animationFramesSent.increment();
+        } else {
+            animationFrameFailures.increment();
+        }
+    }
+
+    @Override
+    public void counterReset(boolean success) {
+        counterResets.increment();
+        if (!success) {
+            counterResetFailures.increment();
+        }
+    }
+
+    /**
+     * Returns the latency histogram of a command.
+     * @param command The command, e.g. {@code Draw/SendHttpGif}
+     * @return The histogram, or null if the command was never sent
+     */
+    public LatencyHistogram getRequestLatency(String command) {
+        CommandStats stats = commands.get(command);
+        return stats != null ? stats.latency : null;
+    }
+
+    /** Latency of {@code push()}, including the request to the device. */
+    public LatencyHistogram getPushLatency() { return pushLatency; }
+
+    /** Time spent converting and Base64 encoding pushed frames. */
+    public LatencyHistogram getEncodeLatency() { return encodeLatency; }
+
+    /** Base64 payload bytes of pushed frames. */
+    public long getPayloadBytes() { return payloadBytes.sum(); }
+
+    @Override public long getFramesPushed() { return pushLatency.getCount(); }
+    @Override public long getPushFailures() { return pushFailures.sum(); }
+    @Override public long getPushLatencyP50Micros() { return pushLatency.getPercentileMicros(50); }
+    @Override public long getPushLatencyP99Micros() { return pushLatency.getPercentileMicros(99); }
+    @Override public long getPushLatencyMaxMicros() { return pushLatency.getMaxMicros(); }
+    @Override public double getEncodeMeanMicros() { return encodeLatency.getMeanMicros(); }
+    @Override public long getAnimationFramesSent() { return animationFramesSent.sum(); }
+    @Override public long getAnimationFrameFailures() { return animationFrameFailures.sum(); }
+    @Override public int getRequestsInFlight() { return requestsInFlight.get(); }
+    @Override public long getDeviceErrors() { return deviceErrors.sum(); }
+    @Override public long getCounterResets() { return counterResets.sum(); }
+    @Override public long getCounterResetFailures() { return counterResetFailures.sum(); }
+
+    /** Request body bytes of all commands. */
+    @Override
+    public long getBytesSent() {
+        long total = 0;
+        for (CommandStats stats : commands.values()) {
+            total += stats.bytes.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getRequestFailures() {
+        long total = 0;
+        for (CommandStats stats : commands.values()) {
+            total += stats.failures.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getRequestCounts() {
+        return perCommand(stats -> stats.latency.getCount());
+    }
+
+    @Override
+    public Map<String, Long> getRequestLatencyP99Micros() {
+        return perCommand(stats -> stats.latency.getPercentileMicros(99));
+    }
+
+    @Override
+    public Map<String, Long> getRequestFailuresByCommand() {
+        return perCommand(stats -> stats.failures.sum());
+    }
+
+    private Map<String, Long> perCommand(ToLongFunction<CommandStats> value) {
+        Map<String, Long> result = new TreeMap<>();
+        commands.forEach((command, stats) -> result.put(command, value.applyAsLong(stats)));
+        return result;
+    }
+
+    private static class CommandStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder failures = new LongAdder();
+    }
+}
@@ -0,0 +1,33 @@
+package de.jeffreygroneberg.pixooj.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link PixooMetrics}, as exported by {@link JmxMetricsExporter}.
+ * Latencies are in microseconds.
+ */
+public interface PixooMetricsMXBean {
+    long getFramesPushed();
+    long getPushFailures();
+    long getPushLatencyP50Micros();
+    long getPushLatencyP99Micros();
+    long getPushLatencyMaxMicros();
+    double getEncodeMeanMicros();
+    long getAnimationFramesSent();
+    long getAnimationFrameFailures();
+    long getBytesSent();
+    int getRequestsInFlight();
+    long getRequestFailures();
+    long getDeviceErrors();
+    long getCounterResets();
+    long getCounterResetFailures();
+
+    /** Requests per command. */
+    Map<String, Long> getRequestCounts();
+
+    /** 99th percentile request latency per command. */
+    Map<String, Long> getRequestLatencyP99Micros();
+
+    /** Failed requests per command. */
+    Map<String, Long> getRequestFailuresByCommand();
+}
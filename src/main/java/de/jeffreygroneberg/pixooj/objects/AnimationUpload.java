@@ -0,0 +1,267 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationPipeline;
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Upload of an animation to a Pixoo device that can be cancelled and resumed.
+ * <p>
+ * Failed frames are retried with an increasing delay. If a frame still fails, the upload
+ * stops and remembers the failed {@code PicOffset}; calling {@link #run()} again continues
+ * from that frame instead of sending the whole animation again. A GIF is prepared with an
+ * {@link AnimationPipeline} while it is uploaded; when resumed, the frames before the failed
+ * one are decoded again but not prepared or sent. A resumed GIF upload does not fill the
+ * animation cache.
+ * <p>
+ * Resuming relies on the device keeping the frames of the current {@code PicID} that it
+ * already received. The device API does not document this. The {@code PixooEmulator} keeps
+ * them until a newer picture arrives, so do not push in between. If a resumed animation
+ * does not play on a device, upload it again with a new job.
+ * Create uploads with {@link Pixoo#createAnimationUpload(EncodedAnimation, int)} or
+ * {@link Pixoo#createAnimationUpload(File, int)}.
+ */
+public class AnimationUpload {
+    private static final Logger log = LoggerFactory.getLogger(AnimationUpload.class);
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 250;
+
+    /**
+     * State of an upload.
+     */
+    public enum State {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * Receives progress updates after every uploaded frame.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after a frame was accepted by the device.
+         * @param upload The upload
+         * @param framesSent Number of frames the device has received
+         * @param frameCount Total number of frames
+         */
+        void onProgress(AnimationUpload upload, int framesSent, int frameCount);
+    }
+
+    private final Pixoo pixoo;
+    private final EncodedAnimation animation;
+    private final File gifFile;
+    private final AnimationPipeline pipeline;
+    private final int speed;
+
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+    private ProgressListener listener;
+
+    private volatile State state = State.PENDING;
+    private volatile boolean cancelled;
+    private volatile int frameCount;
+    private volatile int nextOffset;
+    private volatile long bytesSent;
+    private volatile long bytesResent;
+    private volatile int retries;
+    private volatile Exception lastError;
+
+    AnimationUpload(Pixoo pixoo, EncodedAnimation animation, int speed) {
+        this.pixoo = pixoo;
+        this.animation = animation;
+        this.gifFile = null;
+        this.pipeline = null;
+        this.speed = speed;
+        this.frameCount = animation.getFrameCount();
+    }
+
+    AnimationUpload(Pixoo pixoo, File gifFile, AnimationPipeline pipeline, int speed) {
+        this.pixoo = pixoo;
+        this.animation = null;
+        this.gifFile = gifFile;
+        this.pipeline = pipeline;
+        this.speed = speed;
+        // Known once the pipeline has read the GIF
+        this.frameCount = -1;
+    }
+
+    /**
+     * Uploads the remaining frames on the calling thread.
+     * After a failure or cancellation, calling it again resumes from the first frame not yet received.
+     * @return true if all frames have been uploaded
+     * @throws InterruptedException If interrupted while uploading
+     */
+    public synchronized boolean run() throws InterruptedException {
+        if (state == State.COMPLETED) return true;
+        cancelled = false;
+        lastError = null;
+        state = State.RUNNING;
+
+        if (nextOffset == 0) {
+            pixoo.beginAnimation();
+        }
+
+        boolean uploaded = animation != null ? uploadEncoded() : uploadGif();
+        if (!uploaded) {
+            state = cancelled ? State.CANCELLED : State.FAILED;
+            return false;
+        }
+
+        pixoo.finishAnimation();
+        state = State.COMPLETED;
+        return true;
+    }
+
+    private boolean uploadEncoded() throws InterruptedException {
+        while (nextOffset < frameCount) {
+            if (!send(animation.getPayload(nextOffset))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean uploadGif() throws InterruptedException {
+        AnimationPipeline.Result result;
+        try {
+            // Frames the device has already received are decoded again, but not prepared or sent
+            result = pipeline.run(gifFile, nextOffset, (index, count, payload) -> {
+                frameCount = count;
+                return send(payload);
+            }, pixoo.getAnimationCache() != null);
+        } catch (IOException e) {
+            lastError = e;
+            return false;
+        }
+        pixoo.gifPrepared(gifFile, result);
+        return result.isComplete();
+    }
+
+    /**
+     * Sends the frame at {@link #nextOffset}.
+     * @return true if the device accepted it
+     */
+    private boolean send(String payload) throws InterruptedException {
+        if (cancelled) {
+            return false;
+        }
+        boolean sent;
+        try {
+            sent = sendFrame(pixoo, nextOffset, frameCount, speed, payload, name(),
+                    maxRetries, retryDelayMillis, () -> cancelled, this);
+        } catch (IOException e) {
+            lastError = e;
+            sent = false;
+        }
+        if (!sent) {
+            return false;
+        }
+
+        bytesSent += payload.length();
+        nextOffset++;
+        if (listener != null) {
+            listener.onProgress(this, nextOffset, frameCount);
+        }
+        return true;
+    }
+
+    private String name() {
+        return gifFile != null ? gifFile.getName() : "animation";
+    }
+
+    /**
+     * Uploads the remaining frames on an executor.
+     * @param executor The executor to upload on
+     * @return A future that completes with the result of {@link #run()}
+     */
+    public CompletableFuture<Boolean> runAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Stops the upload before the next frame or retry. It can be resumed with {@link #run()}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public State getState() { return state; }
+
+    /** The number of frames, or -1 if the upload of a GIF has not started yet. */
+    public int getFrameCount() { return frameCount; }
+
+    /** The {@code PicOffset} of the next frame to upload, which is also the number of frames received. */
+    public int getNextOffset() { return nextOffset; }
+
+    /** Payload bytes of frames accepted by the device. */
+    public long getBytesSent() { return bytesSent; }
+
+    /** Payload bytes sent again by retries. */
+    public long getBytesResent() { return bytesResent; }
+
+    public int getRetries() { return retries; }
+
+    /** The error of the last failed attempt, if it failed with an exception, e.g. a GIF that cannot be decoded. */
+    public Exception getLastError() { return lastError; }
+
+    public int getMaxRetries() { return maxRetries; }
+    public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
+    public long getRetryDelayMillis() { return retryDelayMillis; }
+    public void setRetryDelayMillis(long retryDelayMillis) { this.retryDelayMillis = retryDelayMillis; }
+    public void setProgressListener(ProgressListener listener) { this.listener = listener; }
+
+    /**
+     * Uploads one frame, retrying failed attempts with a doubling delay.
+     * @param upload The upload to account retries to, or null
+     * @return true if the device accepted the frame, false if it was rejected or the upload was cancelled
+     * @throws IOException If the last attempt failed with a network error
+     */
+    static boolean sendFrame(Pixoo pixoo, int index, int frameCount, int speed, String payload, String name,
+                             int maxRetries, long retryDelayMillis, BooleanSupplier cancelled,
+                             AnimationUpload upload) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            IOException error = null;
+            try {
+                if (pixoo.uploadAnimationFrame(index, frameCount, speed, payload, name)) {
+                    pixoo.getMetricsRegistry().animationFrameSent(true);
+                    return true;
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+
+            if (attempt >= maxRetries || cancelled.getAsBoolean()) {
+                pixoo.getMetricsRegistry().animationFrameSent(false);
+                if (error != null) throw error;
+                return false;
+            }
+            if (upload != null) {
+                upload.retries++;
+                upload.bytesResent += payload.length();
+            }
+            if (pixoo.isDebug()) {
+                log.debug("Retrying frame {} of {} (attempt {})", index, name, attempt + 2);
+            }
+            Thread.sleep(retryDelayMillis << Math.min(attempt, 10));
+        }
+    }
+}
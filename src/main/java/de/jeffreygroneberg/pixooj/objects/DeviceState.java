@@ -0,0 +1,195 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Local mirror of the state of a Pixoo device.
+ * <p>
+ * The mirror is populated from {@code Channel/GetAllConf} and updated whenever a setter
+ * succeeds. Values older than the time-to-live are treated as unknown, so reads go back
+ * to the device and setters are sent again. A time-to-live of zero disables the mirror.
+ */
+public class DeviceState {
+    public static final long DEFAULT_TTL_MILLIS = 10_000;
+
+    // Field names used by Channel/GetAllConf
+    public static final String BRIGHTNESS = "Brightness";
+    public static final String CLOCK_ID = "CurClockId";
+    public static final String SCREEN_ON = "LightSwitch";
+    public static final String MIRROR_MODE = "MirrorFlag";
+
+    // Fields that are not part of Channel/GetAllConf and are only known after a setter
+    public static final String CHANNEL = "SelectIndex";
+    public static final String VISUALIZER = "EqPosition";
+    public static final String HIGHLIGHT_MODE = "HighLightMode";
+    public static final String NOISE_STATUS = "NoiseStatus";
+    public static final String WHITE_BALANCE = "WhiteBalance";
+
+    private static final DateTimeFormatter LOCAL_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Map<String, Value> values = new HashMap<>();
+    private final LongSupplier nanoClock;
+
+    private long ttlNanos;
+    private ObjectNode configuration;
+    private long configurationFetchedAt;
+    private ObjectNode deviceTime;
+    private long deviceTimeFetchedAt;
+
+    public DeviceState() {
+        this(DEFAULT_TTL_MILLIS);
+    }
+
+    public DeviceState(long ttlMillis) {
+        this(ttlMillis, System::nanoTime);
+    }
+
+    /**
+     * Creates a mirror that reads the time from a clock, e.g. to test expiry.
+     * @param ttlMillis The time-to-live of known values, 0 to disable the mirror
+     * @param nanoClock A monotonic clock in nanoseconds, like {@link System#nanoTime()}
+     */
+    public DeviceState(long ttlMillis, LongSupplier nanoClock) {
+        this.ttlNanos = toTtlNanos(ttlMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Stores a freshly fetched {@code Channel/GetAllConf} response.
+     * @param data The response document
+     */
+    public synchronized void updateConfiguration(JsonNode data) {
+        if (!(data instanceof ObjectNode)) return;
+
+        long now = nanoClock.getAsLong();
+        configuration = ((ObjectNode) data).deepCopy();
+        configurationFetchedAt = now;
+
+        for (Map.Entry<String, JsonNode> field : configuration.properties()) {
+            if (field.getValue().isInt()) {
+                values.put(field.getKey(), new Value(field.getValue().asInt(), now));
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the cached configuration if it is still fresh.
+     * @return The cached configuration or null
+     */
+    public synchronized JsonNode getConfiguration() {
+        if (configuration == null || !isFresh(configurationFetchedAt)) return null;
+        return configuration.deepCopy();
+    }
+
+    /**
+     * Records a value that was successfully sent to the device.
+     * @param field The field name
+     * @param value The new value
+     */
+    public synchronized void update(String field, int value) {
+        long now = nanoClock.getAsLong();
+        values.put(field, new Value(value, now));
+        if (configuration != null && configuration.has(field)) {
+            configuration.put(field, value);
+        }
+    }
+
+    /**
+     * Marks a value as unknown, e.g. after a command that changes it implicitly.
+     * @param field The field name
+     */
+    public synchronized void forget(String field) {
+        values.remove(field);
+    }
+
+    /**
+     * Checks whether the device is known to already have the given value.
+     * @param field The field name
+     * @param value The value a setter would send
+     * @return true if the value is known, fresh and equal
+     */
+    public synchronized boolean matches(String field, int value) {
+        Value known = values.get(field);
+        return known != null && known.value == value && isFresh(known.updatedAt);
+    }
+
+    /**
+     * Stores a freshly fetched {@code Device/GetDeviceTime} response.
+     * @param data The response document
+     */
+    public synchronized void updateDeviceTime(JsonNode data) {
+        if (!(data instanceof ObjectNode)) return;
+        deviceTime = ((ObjectNode) data).deepCopy();
+        deviceTimeFetchedAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Returns the cached device time advanced by the time elapsed since it was fetched.
+     * @return The extrapolated device time or null if it is not fresh
+     */
+    public synchronized JsonNode getDeviceTime() {
+        if (deviceTime == null || !isFresh(deviceTimeFetchedAt)) return null;
+
+        long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong() - deviceTimeFetchedAt);
+        ObjectNode time = deviceTime.deepCopy();
+        if (time.has("UTCTime")) {
+            time.put("UTCTime", time.get("UTCTime").asLong() + elapsedSeconds);
+        }
+        if (time.has("LocalTime")) {
+            try {
+                LocalDateTime localTime = LocalDateTime.parse(time.get("LocalTime").asText(), LOCAL_TIME_FORMAT);
+                time.put("LocalTime", localTime.plusSeconds(elapsedSeconds).format(LOCAL_TIME_FORMAT));
+            } catch (DateTimeParseException e) {
+                // Leave the value as reported by the device
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Forgets everything that is known about the device.
+     */
+    public synchronized void invalidate() {
+        values.clear();
+        configuration = null;
+        deviceTime = null;
+    }
+
+    public synchronized long getTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    public synchronized void setTtlMillis(long ttlMillis) {
+        this.ttlNanos = toTtlNanos(ttlMillis);
+    }
+
+    private static long toTtlNanos(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+        return TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    private boolean isFresh(long timestamp) {
+        return nanoClock.getAsLong() - timestamp < ttlNanos;
+    }
+
+    private static class Value {
+        final int value;
+        final long updatedAt;
+
+        Value(int value, long updatedAt) {
+            this.value = value;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The frame a {@link Pixoo} draws into and sends on {@code push()}.
+ * <p>
+ * The frame is split into stripes of {@value #STRIPE_ROWS} rows, each with its own lock, so
+ * threads drawing into different parts of the frame do not wait for each other. Operations
+ * covering several pixels, such as fills, rectangles, images, lines and text, lock the stripes
+ * they cover in order and therefore appear at once. Single pixels are written and read under the lock of
+ * their stripe, so a snapshot sees every pixel written before it. A snapshot locks every stripe only
+ * while copying the frame, so a push sends a consistent frame and encodes it without blocking
+ * further drawing. Colors are expected in the range 0-255.
+ */
+public class FrameBuffer {
+    public static final int STRIPE_ROWS = 8;
+
+    private final int size;
+    // One 0xRRGGBB value per pixel in row-major order
+    private final int[] pixels;
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Creates a black frame.
+     * @param size The device size in pixels
+     */
+    public FrameBuffer(int size) {
+        this.size = size;
+        this.pixels = new int[size * size];
+        this.stripes = new ReentrantLock[(size + STRIPE_ROWS - 1) / STRIPE_ROWS];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public int getSize() { return size; }
+
+    /**
+     * Fills the whole frame with one color.
+     */
+    public void fill(int r, int g, int b) {
+        lockRows(0, size - 1);
+        try {
+            Arrays.fill(pixels, pack(r, g, b));
+        } finally {
+            unlockRows(0, size - 1);
+        }
+    }
+
+    /**
+     * Sets one pixel, ignoring pixels outside of the frame.
+     */
+    public void setPixel(int x, int y, int r, int g, int b) {
+        if (x < 0 || x >= size || y < 0 || y >= size) return;
+        // Without the lock a snapshot on another thread might not see the store
+        ReentrantLock stripe = stripes[y / STRIPE_ROWS];
+        stripe.lock();
+        try {
+            pixels[y * size + x] = pack(r, g, b);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Sets several pixels to one color at once, ignoring pixels outside of the frame.
+     * Lines and text are drawn this way, so a snapshot never sees them half drawn.
+     * @param xs The columns of the pixels
+     * @param ys The rows of the pixels
+     * @param count The number of pixels to set
+     */
+    public void setPixels(int[] xs, int[] ys, int count, int r, int g, int b) {
+        int firstRow = size;
+        int lastRow = -1;
+        for (int i = 0; i < count; i++) {
+            if (xs[i] >= 0 && xs[i] < size && ys[i] >= 0 && ys[i] < size) {
+                firstRow = Math.min(firstRow, ys[i]);
+                lastRow = Math.max(lastRow, ys[i]);
+            }
+        }
+        if (lastRow < 0) return;
+
+        int color = pack(r, g, b);
+        lockRows(firstRow, lastRow);
+        try {
+            for (int i = 0; i < count; i++) {
+                int x = xs[i];
+                int y = ys[i];
+                if (x >= 0 && x < size && y >= 0 && y < size) {
+                    pixels[y * size + x] = color;
+                }
+            }
+        } finally {
+            unlockRows(firstRow, lastRow);
+        }
+    }
+
+    /**
+     * Returns the color of a pixel.
+     * @return The color as {@code 0xRRGGBB}
+     */
+    public int getPixel(int x, int y) {
+        if (x < 0 || x >= size || y < 0 || y >= size) {
+            throw new IndexOutOfBoundsException("Pixel (" + x + ", " + y + ") is outside of the frame");
+        }
+        ReentrantLock stripe = stripes[y / STRIPE_ROWS];
+        stripe.lock();
+        try {
+            return pixels[y * size + x];
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Fills a rectangle, clipped to the frame.
+     */
+    public void fillRectangle(int x, int y, int width, int height, int r, int g, int b) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, size);
+        int y1 = Math.min(y + height, size);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        int color = pack(r, g, b);
+        lockRows(y0, y1 - 1);
+        try {
+            for (int row = y0; row < y1; row++) {
+                Arrays.fill(pixels, row * size + x0, row * size + x1, color);
+            }
+        } finally {
+            unlockRows(y0, y1 - 1);
+        }
+    }
+
+    /**
+     * Draws an image, clipped to the frame. Alpha is ignored.
+     * @param image The image
+     * @param x The column of the left edge
+     * @param y The row of the top edge
+     */
+    public void drawImage(BufferedImage image, int x, int y) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + image.getWidth(), size);
+        int y1 = Math.min(y + image.getHeight(), size);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        lockRows(y0, y1 - 1);
+        try {
+            image.getRGB(x0 - x, y0 - y, x1 - x0, y1 - y0, pixels, y0 * size + x0, size);
+            for (int row = y0; row < y1; row++) {
+                for (int i = row * size + x0; i < row * size + x1; i++) {
+                    pixels[i] &= 0xFFFFFF;
+                }
+            }
+        } finally {
+            unlockRows(y0, y1 - 1);
+        }
+    }
+
+    /**
+     * Replaces the whole frame.
+     * @param rgb RGB bytes in row-major order, size * size * 3 long
+     */
+    public void setFrame(byte[] rgb) {
+        if (rgb.length != pixels.length * 3) {
+            throw new IllegalArgumentException("Frame has " + rgb.length + " bytes, expected " + (pixels.length * 3));
+        }
+        lockRows(0, size - 1);
+        try {
+            for (int i = 0, k = 0; i < pixels.length; i++, k += 3) {
+                pixels[i] = pack(rgb[k] & 0xFF, rgb[k + 1] & 0xFF, rgb[k + 2] & 0xFF);
+            }
+        } finally {
+            unlockRows(0, size - 1);
+        }
+    }
+
+    /**
+     * Copies the frame as it is at this moment.
+     * @return RGB bytes in row-major order
+     */
+    public byte[] snapshot() {
+        byte[] rgb = new byte[pixels.length * 3];
+        // Unpacking directly takes a few microseconds and saves copying the pixels first
+        lockRows(0, size - 1);
+        try {
+            for (int i = 0, k = 0; i < pixels.length; i++, k += 3) {
+                int color = pixels[i];
+                rgb[k] = (byte) (color >> 16);
+                rgb[k + 1] = (byte) (color >> 8);
+                rgb[k + 2] = (byte) color;
+            }
+        } finally {
+            unlockRows(0, size - 1);
+        }
+        return rgb;
+    }
+
+    private static int pack(int r, int g, int b) {
+        return (r & 0xFF) << 16 | (g & 0xFF) << 8 | (b & 0xFF);
+    }
+
+    // Stripes are always locked in ascending order, so operations on overlapping rows cannot deadlock
+    private void lockRows(int firstRow, int lastRow) {
+        for (int i = firstRow / STRIPE_ROWS; i <= lastRow / STRIPE_ROWS; i++) {
+            stripes[i].lock();
+        }
+    }
+
+    private void unlockRows(int firstRow, int lastRow) {
+        for (int i = lastRow / STRIPE_ROWS; i >= firstRow / STRIPE_ROWS; i--) {
+            stripes[i].unlock();
+        }
+    }
+}
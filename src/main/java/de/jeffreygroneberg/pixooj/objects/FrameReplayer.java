@@ -0,0 +1,110 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+import de.jeffreygroneberg.pixooj.animations.FrameRecording;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Plays a {@link FrameRecording} back into a {@link Pixoo}.
+ * <p>
+ * Pushed frames are drawn and pushed again, and recorded animation uploads are uploaded
+ * again once all of their frames have been read. The original timing is kept, scaled by
+ * the speed factor; a factor of 0 replays as fast as possible, e.g. for throughput tests.
+ * The time between two recording sessions appended to the same file is not replayed.
+ * Replaying into a simulated {@code Pixoo} renders the pushed frames with its
+ * {@link Simulator}.
+ */
+public class FrameReplayer {
+    private final Pixoo pixoo;
+    private final FrameRecording recording;
+    private double speedFactor = 1.0;
+
+    private long framesReplayed;
+    private long animationsReplayed;
+
+    /**
+     * Creates a replayer at the original speed.
+     * @param pixoo The device to replay into
+     * @param recording The recording, which must have the device's size
+     */
+    public FrameReplayer(Pixoo pixoo, FrameRecording recording) {
+        if (recording.getSize() != pixoo.getSize()) {
+            throw new IllegalArgumentException(
+                    "Recording has size " + recording.getSize() + ", device has size " + pixoo.getSize());
+        }
+        this.pixoo = pixoo;
+        this.recording = recording;
+    }
+
+    /**
+     * Replays all records.
+     * @return The number of records replayed
+     * @throws IOException If an animation upload fails
+     * @throws InterruptedException If interrupted while waiting for the next record
+     */
+    public long replay() throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long firstTimestamp = -1;
+        long replayed = 0;
+        List<String> animation = new ArrayList<>();
+
+        Iterator<FrameRecording.Record> records = recording.records();
+        while (records.hasNext()) {
+            FrameRecording.Record record = records.next();
+            if (firstTimestamp < 0 || record.isSessionStart()) {
+                // Every session has its own clock, so timing restarts with it
+                startNanos = System.nanoTime();
+                firstTimestamp = record.getTimestampNanos();
+            }
+            waitUntil(startNanos, record.getTimestampNanos() - firstTimestamp);
+
+            if (record.getType() == FrameRecording.PUSH) {
+                pixoo.drawRgbFrame(record.getRgb());
+                pixoo.push();
+                framesReplayed++;
+            } else if (record.getType() == FrameRecording.ANIMATION_FRAME) {
+                // Retried frames are recorded once they were accepted, so an upload always starts at offset 0
+                if (record.getIndex() == 0) {
+                    animation.clear();
+                }
+                animation.add(Base64.getEncoder().encodeToString(record.getRgb()));
+                if (record.getIndex() == record.getFrameCount() - 1 && animation.size() == record.getFrameCount()) {
+                    EncodedAnimation encoded = EncodedAnimation.wrap(EncodedAnimation.encode(animation));
+                    pixoo.sendAnimation(encoded, record.getSpeed());
+                    animation.clear();
+                    animationsReplayed++;
+                }
+                framesReplayed++;
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    public double getSpeedFactor() { return speedFactor; }
+
+    /**
+     * Sets how fast the recording is replayed.
+     * @param speedFactor 1 for the original speed, 2 for twice as fast, 0 for as fast as possible
+     */
+    public void setSpeedFactor(double speedFactor) {
+        this.speedFactor = speedFactor;
+    }
+
+    public long getFramesReplayed() { return framesReplayed; }
+    public long getAnimationsReplayed() { return animationsReplayed; }
+
+    private void waitUntil(long startNanos, long recordedOffsetNanos) throws InterruptedException {
+        if (speedFactor <= 0) return;
+        long dueNanos = startNanos + (long) (recordedOffsetNanos / speedFactor);
+        long remaining = dueNanos - System.nanoTime();
+        if (remaining > 0) {
+            Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Estimates the one-way network latency to a Pixoo device.
+ * <p>
+ * Each sample is the round-trip time of a cheap request such as {@code Device/GetDeviceTime}.
+ * The latency is taken from the minimum round-trip time of the most recent samples, which
+ * filters out requests that were delayed by Wi-Fi retransmissions or a busy device.
+ * <p>
+ * The device clock is not estimated: it only reports whole seconds and the device shows
+ * a frame as soon as it arrives, so its clock offset cannot be used to time pushes.
+ */
+public class LatencyEstimator {
+    public static final int DEFAULT_WINDOW = 16;
+
+    private final int window;
+    private final Deque<Long> roundTrips = new ArrayDeque<>();
+
+    public LatencyEstimator() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public LatencyEstimator(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must hold at least one sample");
+        }
+        this.window = window;
+    }
+
+    /**
+     * Adds a sample.
+     * @param roundTripNanos Measured round-trip time from a monotonic clock
+     */
+    public synchronized void addSample(long roundTripNanos) {
+        roundTrips.addLast(roundTripNanos);
+        if (roundTrips.size() > window) {
+            roundTrips.removeFirst();
+        }
+    }
+
+    /**
+     * Returns whether at least one sample was recorded.
+     * @return true if estimates are available
+     */
+    public synchronized boolean hasSamples() {
+        return !roundTrips.isEmpty();
+    }
+
+    /**
+     * Returns the minimum round-trip time of the recent samples.
+     * @return The round-trip time in nanoseconds, or 0 without samples
+     */
+    public synchronized long getMinRoundTripNanos() {
+        long min = Long.MAX_VALUE;
+        for (long roundTrip : roundTrips) {
+            min = Math.min(min, roundTrip);
+        }
+        return roundTrips.isEmpty() ? 0 : min;
+    }
+
+    /**
+     * Returns the estimated one-way latency to the device (half the minimum round-trip time).
+     * @return The latency in nanoseconds, or 0 without samples
+     */
+    public long getLatencyNanos() {
+        return getMinRoundTripNanos() / 2;
+    }
+
+    /**
+     * Discards all samples.
+     */
+    public synchronized void reset() {
+        roundTrips.clear();
+    }
+}
@@ -0,0 +1,130 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the PicID of a Pixoo device locally.
+ * <p>
+ * The device only accepts frames whose PicID is higher than the last one, and it
+ * becomes unreliable once the ID grows too large. Instead of resetting the device
+ * counter in the middle of a push, resets are scheduled asynchronously right after
+ * a frame has been sent, so they complete in the idle time before the next frame.
+ * A push only waits if a reset is still in flight when it starts.
+ */
+public class PicIdCounter {
+    public static final int DEFAULT_RESET_LIMIT = 32;
+
+    private final AtomicInteger value = new AtomicInteger();
+    private final AtomicLong resetsScheduled = new AtomicLong();
+    private final AtomicLong resetsCompleted = new AtomicLong();
+    private final AtomicLong resetsFailed = new AtomicLong();
+    private final AtomicLong blockedWaits = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    private volatile int resetLimit;
+    private volatile CompletableFuture<Boolean> pendingReset = CompletableFuture.completedFuture(true);
+
+    public PicIdCounter() {
+        this(DEFAULT_RESET_LIMIT);
+    }
+
+    public PicIdCounter(int resetLimit) {
+        this.resetLimit = checkResetLimit(resetLimit);
+    }
+
+    /**
+     * Stores the PicID last reported by (or sent to) the device.
+     * @param picId The current PicID
+     */
+    public void load(int picId) {
+        value.set(picId);
+    }
+
+    /**
+     * Returns the PicID that was used last.
+     * @return The current PicID
+     */
+    public int current() {
+        return value.get();
+    }
+
+    /**
+     * Returns the PicID for the next frame, waiting for an in-flight reset first.
+     * @return The next PicID
+     */
+    public int next() {
+        CompletableFuture<Boolean> reset = pendingReset;
+        if (!reset.isDone()) {
+            long start = System.nanoTime();
+            reset.join();
+            blockedWaits.incrementAndGet();
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+        return value.incrementAndGet();
+    }
+
+    /**
+     * Checks whether the next PicID would reach the reset limit and no reset is in flight.
+     * @return true if a reset should be scheduled
+     */
+    public boolean needsReset() {
+        return value.get() + 1 >= resetLimit && pendingReset.isDone();
+    }
+
+    /**
+     * Starts a counter reset. The local counter restarts at zero once the reset succeeds.
+     * @param resetAction Sends the reset to the device and completes with its success
+     * @return A future completing with whether the reset succeeded
+     */
+    public synchronized CompletableFuture<Boolean> scheduleReset(Supplier<CompletableFuture<Boolean>> resetAction) {
+        if (!pendingReset.isDone()) {
+            return pendingReset;
+        }
+
+        resetsScheduled.incrementAndGet();
+        // Published before the reset starts, so a concurrent next() waits for it
+        CompletableFuture<Boolean> reset = new CompletableFuture<>();
+        pendingReset = reset;
+
+        CompletableFuture<Boolean> action;
+        try {
+            action = resetAction.get();
+        } catch (RuntimeException e) {
+            action = CompletableFuture.failedFuture(e);
+        }
+        action.exceptionally(e -> false)
+                .thenAccept(success -> {
+                    if (success) {
+                        value.set(0);
+                        resetsCompleted.incrementAndGet();
+                    } else {
+                        resetsFailed.incrementAndGet();
+                    }
+                    reset.complete(success);
+                });
+        return reset;
+    }
+
+    public int getResetLimit() { return resetLimit; }
+
+    public void setResetLimit(int resetLimit) {
+        this.resetLimit = checkResetLimit(resetLimit);
+    }
+
+    private static int checkResetLimit(int resetLimit) {
+        if (resetLimit < 2) {
+            throw new IllegalArgumentException("Reset limit must be at least 2");
+        }
+        return resetLimit;
+    }
+
+    // Metrics
+    public long getResetsScheduled() { return resetsScheduled.get(); }
+    public long getResetsCompleted() { return resetsCompleted.get(); }
+    public long getResetsFailed() { return resetsFailed.get(); }
+    public long getBlockedWaits() { return blockedWaits.get(); }
+    public long getBlockedNanos() { return blockedNanos.get(); }
+}
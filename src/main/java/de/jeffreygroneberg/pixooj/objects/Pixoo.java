@@ -3,37 +3,66 @@ package de.jeffreygroneberg.pixooj.objects;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.jeffreygroneberg.pixooj.animations.AnimationCache;
+import de.jeffreygroneberg.pixooj.animations.AnimationFrame;
+import de.jeffreygroneberg.pixooj.animations.AnimationOptimizer;
+import de.jeffreygroneberg.pixooj.animations.AnimationPipeline;
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+import de.jeffreygroneberg.pixooj.animations.FrameRecorder;
+import de.jeffreygroneberg.pixooj.animations.FrameSource;
+import de.jeffreygroneberg.pixooj.animations.GifFrameStream;
+import de.jeffreygroneberg.pixooj.animations.PxaAnimation;
 import de.jeffreygroneberg.pixooj.constants.Font; // Fixed import
 import de.jeffreygroneberg.pixooj.constants.Palette; // Fixed import
+import de.jeffreygroneberg.pixooj.enums.Channel;
+import de.jeffreygroneberg.pixooj.events.AnimationFrameUploadEvent;
+import de.jeffreygroneberg.pixooj.events.DeviceRequestEvent;
+import de.jeffreygroneberg.pixooj.events.DrawImageEvent;
+import de.jeffreygroneberg.pixooj.events.FrameEncodeEvent;
+import de.jeffreygroneberg.pixooj.events.PushEvent;
 import de.jeffreygroneberg.pixooj.enums.ImageResampleMode; // Fixed import
 import de.jeffreygroneberg.pixooj.enums.TextScrollDirection; // Fixed import
+import de.jeffreygroneberg.pixooj.metrics.MetricsRegistry;
+import de.jeffreygroneberg.pixooj.utilities.ImageDecoder;
+import de.jeffreygroneberg.pixooj.utilities.ImageUtils;
+import de.jeffreygroneberg.pixooj.utilities.LogUtils;
 import de.jeffreygroneberg.pixooj.utilities.MathUtils; // Fixed import
+import de.jeffreygroneberg.pixooj.utilities.ResponseReader;
 import de.jeffreygroneberg.pixooj.configurations.SimulatorConfiguration; // Fixed import
 
 import java.awt.image.BufferedImage;
 import java.awt.Graphics2D; // Added import
-import java.awt.Color;      // Added import
-import java.awt.RenderingHints; // Added import
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
 import java.util.Base64;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Main Pixoo class for communicating with Divoom Pixoo devices.
  */
 public class Pixoo {
+    private static final Logger log = LoggerFactory.getLogger(Pixoo.class);
     private static final int DEFAULT_SIZE = 64;
-    private static final int REFRESH_COUNTER_LIMIT = 32;
     private static final boolean HIGHER_QUALITY_SCALING = true; // Control flag for scaling quality
+    private static final int ANIMATION_PIC_ID = 1;
+    private static final int GLYPH_PIXELS = 15; // Glyphs of the PICO-8 font are 3x5 pixels
+    // Upper bound for animations that are read completely before the upload, so an endless source fails
+    private static final int DEFAULT_MAX_ANIMATION_FRAMES = 1000;
     
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
@@ -44,9 +73,20 @@ public class Pixoo {
     private final int size;
     private final int pixelCount;
     
-    private int[] buffer;
-    private int buffersSent = 0;
-    private int counter = 0;
+    private final CompletableFuture<Boolean> readyFuture;
+    private final PicIdCounter picIdCounter = new PicIdCounter();
+    private final DeviceState deviceState = new DeviceState();
+    private final LatencyEstimator latencyEstimator = new LatencyEstimator();
+    private final Simulator simulator;
+    
+    private AnimationCache animationCache;
+    private volatile FrameRecorder frameRecorder;
+    private volatile MetricsRegistry metrics = MetricsRegistry.NOOP;
+    private AnimationPipeline.StageTimings lastAnimationTimings;
+    private final FrameBuffer frameBuffer;
+    private final AtomicInteger buffersSent = new AtomicInteger();
+    private int frameRetries = AnimationUpload.DEFAULT_MAX_RETRIES;
+    private int maxAnimationFrames = DEFAULT_MAX_ANIMATION_FRAMES;
     
     /**
      * Creates a new Pixoo instance with default settings.
@@ -67,13 +107,31 @@ public class Pixoo {
      * Creates a new Pixoo instance with full configuration.
      * @param ipAddress The IP address of the Pixoo device (null for auto-discovery)
      * @param size The screen size in pixels (16, 32, or 64)
-     * @param debug Enable debug logging
+     * @param debug Log diagnostics through SLF4J at debug and trace level
      * @param refreshConnectionAutomatically Enable automatic connection refresh
      * @param simulated Enable simulation mode
      * @param simulationConfig Configuration for simulation mode
      */
     public Pixoo(String ipAddress, int size, boolean debug, boolean refreshConnectionAutomatically, 
                  boolean simulated, SimulatorConfiguration simulationConfig) {
+        this(ipAddress, size, debug, refreshConnectionAutomatically, simulated, simulationConfig, false);
+    }
+    
+    /**
+     * Creates a new Pixoo instance with full configuration and optional lazy initialization.
+     * In lazy mode the constructor returns immediately; connection validation and counter
+     * loading run concurrently in the background and complete {@link #getReadyFuture()}.
+     * The first push waits for them to finish.
+     * @param ipAddress The IP address of the Pixoo device (null for auto-discovery)
+     * @param size The screen size in pixels (16, 32, or 64)
+     * @param debug Log diagnostics through SLF4J at debug and trace level
+     * @param refreshConnectionAutomatically Enable automatic connection refresh
+     * @param simulated Enable simulation mode
+     * @param simulationConfig Configuration for simulation mode
+     * @param lazyInitialization Defer connection validation and counter loading to the background
+     */
+    public Pixoo(String ipAddress, int size, boolean debug, boolean refreshConnectionAutomatically, 
+                 boolean simulated, SimulatorConfiguration simulationConfig, boolean lazyInitialization) {
         
         // Validate size
         if (size != 16 && size != 32 && size != 64) {
@@ -86,6 +144,8 @@ public class Pixoo {
         this.debug = debug;
         this.refreshConnectionAutomatically = refreshConnectionAutomatically;
         this.simulated = simulated;
+        this.simulator = simulated ? new Simulator(size, simulationConfig) : null;
+        this.frameBuffer = new FrameBuffer(size);
         
         // Initialize HTTP client with HTTP/1.1 (Pixoo devices don't support HTTP/2)
         this.httpClient = HttpClient.newBuilder()
@@ -102,26 +162,25 @@ public class Pixoo {
             this.url = null; // Not needed for simulation
         }
         
-        // Initialize buffer
-        fill(Palette.BLACK);
-        
-        if (!simulated) {
-            if (!validateConnection()) {
-                System.err.println("[x] No connection could be made. Verify all settings");
-                return;
-            }
-            
-            // Load counter
-            loadCounter();
-            
-            // Reset if needed
-            if (refreshConnectionAutomatically && counter > REFRESH_COUNTER_LIMIT) {
-                resetCounter();
-            }
+        if (simulated) {
+            picIdCounter.load(1);
+            this.readyFuture = CompletableFuture.completedFuture(true);
+        } else if (lazyInitialization) {
+            this.readyFuture = initializeAsync();
         } else {
-            counter = 1;
+            this.readyFuture = CompletableFuture.completedFuture(initialize());
         }
     }
+    
+    /**
+     * Returns a future that completes once connection validation and counter loading
+     * have finished. It completes with {@code true} if the device was reachable.
+     * For eagerly initialized and simulated instances it is already complete.
+     * @return The readiness future
+     */
+    public CompletableFuture<Boolean> getReadyFuture() {
+        return readyFuture;
+    }
 
     // Drawing methods
     public void clear(Palette.Color color) {
@@ -129,14 +188,8 @@ public class Pixoo {
     }
 
     public void fill(Palette.Color color) {
-        buffer = new int[pixelCount * 3];
         int[] rgb = MathUtils.clampColor(color.toArray());
-        for (int i = 0; i < pixelCount; i++) {
-            int index = i * 3;
-            buffer[index] = rgb[0];
-            buffer[index + 1] = rgb[1];
-            buffer[index + 2] = rgb[2];
-        }
+        frameBuffer.fill(rgb[0], rgb[1], rgb[2]);
     }
 
     public void fillRgb(int r, int g, int b) {
@@ -146,11 +199,7 @@ public class Pixoo {
     public void drawPixel(int x, int y, Palette.Color color) {
         if (x < 0 || x >= size || y < 0 || y >= size) return;
         int[] rgb = MathUtils.clampColor(color.toArray());
-        int index = (y * size + x) * 3;
-        
-        buffer[index] = rgb[0];
-        buffer[index + 1] = rgb[1];
-        buffer[index + 2] = rgb[2];
+        frameBuffer.setPixel(x, y, rgb[0], rgb[1], rgb[2]);
     }
 
     public void drawLine(int x1, int y1, int x2, int y2, Palette.Color color) {
@@ -161,9 +210,14 @@ public class Pixoo {
         int sy = y1 < y2 ? 1 : -1;
         int err = dx - dy;
 
+        // The line is set at once, so a push on another thread sees all of it or nothing
+        int[] xs = new int[Math.max(dx, dy) + 1];
+        int[] ys = new int[xs.length];
+        int count = 0;
         int x = x1, y = y1;
         while (true) {
-            drawPixel(x, y, color);
+            xs[count] = x;
+            ys[count++] = y;
             if (x == x2 && y == y2) break;
             int e2 = 2 * err;
             if (e2 > -dy) {
@@ -175,14 +229,13 @@ public class Pixoo {
                 y += sy;
             }
         }
+        int[] rgb = MathUtils.clampColor(color.toArray());
+        frameBuffer.setPixels(xs, ys, count, rgb[0], rgb[1], rgb[2]);
     }
 
     public void drawFilledRectangle(int x, int y, int width, int height, Palette.Color color) {
-        for (int dy = 0; dy < height; dy++) {
-            for (int dx = 0; dx < width; dx++) {
-                drawPixel(x + dx, y + dy, color);
-            }
-        }
+        int[] rgb = MathUtils.clampColor(color.toArray());
+        frameBuffer.fillRectangle(x, y, width, height, rgb[0], rgb[1], rgb[2]);
     }
 
     public void push() {
@@ -195,24 +248,91 @@ public class Pixoo {
         return "91.89.197.67:9001";
     }
 
+    private boolean initialize() {
+        if (!validateConnection()) {
+            log.error("No connection could be made. Verify all settings");
+            return false;
+        }
+        
+        // Load counter
+        loadCounter();
+        
+        // Reset if needed
+        if (refreshConnectionAutomatically && picIdCounter.needsReset()) {
+            resetCounter();
+        }
+        return true;
+    }
+    
+    private CompletableFuture<Boolean> initializeAsync() {
+        // Validation and counter loading are independent, so both requests are in flight at once
+        CompletableFuture<Boolean> validation = makeRequestAsync(createCommand("Channel/GetAllConf"))
+                .thenApply(response -> {
+                    if (!response.isSuccess()) {
+                        handleError(response);
+                        return false;
+                    }
+                    try {
+                        deviceState.updateConfiguration(objectMapper.readTree(response.getBody()));
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    return true;
+                });
+        
+        CompletableFuture<Void> counterLoading = makeRequestAsync(createCommand("Draw/GetHttpGifId"), "PicId")
+                .thenAccept(response -> {
+                    if (!response.isSuccess()) {
+                        handleError(response);
+                    } else {
+                        picIdCounter.load(response.getInt("PicId", 0));
+                        if (debug) log.debug("Counter loaded and stored: {}", picIdCounter.current());
+                    }
+                })
+                .exceptionally(e -> {
+                    log.warn("Error loading counter: {}", e.getMessage());
+                    return null;
+                });
+        
+        return validation
+                .exceptionally(e -> {
+                    log.warn("Connection validation failed: {}", e.getMessage());
+                    return false;
+                })
+                .thenCombine(counterLoading, (valid, ignored) -> valid)
+                .thenCompose(valid -> {
+                    if (!valid) {
+                        log.error("No connection could be made. Verify all settings");
+                    } else if (refreshConnectionAutomatically && picIdCounter.needsReset()) {
+                        return scheduleCounterReset().thenApply(reset -> true);
+                    }
+                    return CompletableFuture.completedFuture(valid);
+                });
+    }
+    
+    private void awaitReady() {
+        if (debug && !readyFuture.isDone()) {
+            log.debug("Waiting for background initialization to complete");
+        }
+        readyFuture.join();
+    }
+    
     private boolean validateConnection() {
         if (simulated) return true;
         
         try {
-            // Test connection with a simple request
-            JsonNode data = getAllDeviceConfigurations();
+            // Test connection with a simple request, which also populates the device state mirror
+            JsonNode data = getAllDeviceConfigurations(true);
             return data != null;
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Connection validation failed: " + e.getMessage());
-            }
+            log.warn("Connection validation failed: {}", e.getMessage());
             return false;
         }
     }
 
     private void loadCounter() {
         if (simulated) {
-            counter = 1;
+            picIdCounter.load(1);
             return;
         }
         
@@ -220,185 +340,391 @@ public class Pixoo {
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Draw/GetHttpGifId");
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request), "PicId");
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
             } else {
-                counter = data.get("PicId").asInt();
-                if (debug) {
-                    System.out.println("[.] Counter loaded and stored: " + counter);
-                }
+                picIdCounter.load(response.getInt("PicId", 0));
+                if (debug) log.debug("Counter loaded and stored: {}", picIdCounter.current());
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error loading counter: " + e.getMessage());
-            }
+            log.warn("Error loading counter: {}", e.getMessage());
         }
     }
 
     private void sendBuffer() {
-        counter++;
+        PushEvent pushEvent = new PushEvent();
+        pushEvent.begin();
+        long start = System.nanoTime();
+        awaitReady();
+        int picId = picIdCounter.next();
+        // Drawing may continue on other threads while this frame is sent
+        byte[] frame = frameBuffer.snapshot();
         
-        if (refreshConnectionAutomatically && counter >= REFRESH_COUNTER_LIMIT) {
-            resetCounter();
-            counter = 1;
-        }
-        
-        if (debug) {
-            System.out.printf("[.] Counter set to %d%n", counter);
+        FrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            record(() -> recorder.recordPush(frame));
         }
         
         if (simulated) {
-            // TODO: Implement simulator display
-            buffersSent++;
+            simulator.render(frame);
+            buffersSent.incrementAndGet();
+            metrics.framePushed(System.nanoTime() - start, true);
+            commitPushEvent(pushEvent, picId, true);
+            logPush(picId, true, start);
+            scheduleCounterResetIfNeeded();
             return;
         }
         
+        boolean pushed = false;
         try {
-            // Encode buffer to base64
-            byte[] byteBuffer = new byte[buffer.length];
-            for (int i = 0; i < buffer.length; i++) {
-                // Ensure proper unsigned byte conversion (0-255 range)
-                byteBuffer[i] = (byte) (buffer[i] & 0xFF);
+            FrameEncodeEvent encodeEvent = new FrameEncodeEvent();
+            encodeEvent.begin();
+            long encodeStart = System.nanoTime();
+            String encodedBuffer = Base64.getEncoder().encodeToString(frame);
+            metrics.frameEncoded(System.nanoTime() - encodeStart, encodedBuffer.length());
+            encodeEvent.end();
+            if (encodeEvent.shouldCommit()) {
+                encodeEvent.payloadBytes = encodedBuffer.length();
+                encodeEvent.commit();
             }
-            String encodedBuffer = Base64.getEncoder().encodeToString(byteBuffer);
             
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Draw/SendHttpGif");
             request.put("PicNum", 1);
             request.put("PicWidth", size);
             request.put("PicOffset", 0);
-            request.put("PicID", counter);
+            request.put("PicID", picId);
             request.put("PicSpeed", 1000);
             request.put("PicData", encodedBuffer);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
             } else {
-                buffersSent++;
-                if (debug) {
-                    System.out.printf("[.] Pushed %d buffers%n", buffersSent);
-                }
+                pushed = true;
+                buffersSent.incrementAndGet();
+                // Drawing switches the display away from the previously selected channel
+                deviceState.forget(DeviceState.CHANNEL);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error sending buffer: " + e.getMessage());
-            }
+            log.warn("Error sending buffer: {}", e.getMessage());
         }
+        metrics.framePushed(System.nanoTime() - start, pushed);
+        commitPushEvent(pushEvent, picId, pushed);
+        logPush(picId, pushed, start);
+        
+        // The reset runs while the caller prepares the next frame
+        scheduleCounterResetIfNeeded();
     }
 
-    private void resetCounter() {
-        if (debug) {
-            System.out.println("[.] Resetting counter remotely");
+    private void commitPushEvent(PushEvent event, int picId, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.size = size;
+            event.picId = picId;
+            event.simulated = simulated;
+            event.success = success;
+            event.commit();
         }
+    }
+
+    private void logPush(int picId, boolean success, long startNanos) {
+        if (debug && log.isDebugEnabled()) {
+            log.atDebug().setMessage("Pushed frame")
+                    .addKeyValue("picId", picId)
+                    .addKeyValue("success", success)
+                    .addKeyValue("buffersSent", buffersSent.get())
+                    .addKeyValue("micros", (System.nanoTime() - startNanos) / 1000)
+                    .log();
+        }
+    }
+
+    private void scheduleCounterResetIfNeeded() {
+        if (refreshConnectionAutomatically && picIdCounter.needsReset()) {
+            scheduleCounterReset();
+        }
+    }
+
+    private void resetCounter() {
+        scheduleCounterReset().join();
+    }
+
+    private CompletableFuture<Boolean> scheduleCounterReset() {
+        if (debug) log.debug("Resetting counter remotely");
         
-        if (simulated) return;
-        
-        try {
-            ObjectNode request = objectMapper.createObjectNode();
-            request.put("Command", "Draw/ResetHttpGifId");
-            
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
-            
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
-            }
-        } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error resetting counter: " + e.getMessage());
+        return picIdCounter.scheduleReset(() -> {
+            if (simulated) {
+                metrics.counterReset(true);
+                return CompletableFuture.completedFuture(true);
             }
+            return makeRequestAsync(createCommand("Draw/ResetHttpGifId"))
+                    .thenApply(response -> {
+                        if (!response.isSuccess()) {
+                            handleError(response);
+                            return false;
+                        }
+                        return true;
+                    })
+                    .whenComplete((success, e) -> {
+                        metrics.counterReset(e == null && success);
+                        if (e != null) {
+                            log.warn("Error resetting counter: {}", e.getMessage());
+                        }
+                    });
+        });
+    }
+
+    private ObjectNode createCommand(String command) {
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("Command", command);
+        return request;
+    }
+
+    private byte[] makeRequest(ObjectNode requestJson) throws IOException, InterruptedException {
+        String command = requestJson.path("Command").asText();
+        String body = requestJson.toString();
+        MetricsRegistry metrics = this.metrics;
+        metrics.requestStarted(command);
+        DeviceRequestEvent event = new DeviceRequestEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        int status = -1;
+        try {
+            traceRequest(requestJson);
+            HttpResponse<byte[]> response = httpClient.send(buildRequest(body), HttpResponse.BodyHandlers.ofByteArray());
+            status = response.statusCode();
+            byte[] responseBody = readResponse(response);
+            success = true;
+            return responseBody;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.requestCompleted(command, body.length(), nanos, success);
+            commitRequestEvent(event, command, body.length(), status, false);
+            logRequest(command, body.length(), status, nanos, false);
+        }
+    }
+    
+    private CompletableFuture<ResponseReader.Response> makeRequestAsync(ObjectNode requestJson, String... fieldNames) {
+        String command = requestJson.path("Command").asText();
+        String body = requestJson.toString();
+        MetricsRegistry metrics = this.metrics;
+        metrics.requestStarted(command);
+        DeviceRequestEvent event = new DeviceRequestEvent();
+        event.begin();
+        long start = System.nanoTime();
+        // Requests without a response keep status -1
+        AtomicInteger status = new AtomicInteger(-1);
+        traceRequest(requestJson);
+        return httpClient.sendAsync(buildRequest(body), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    status.set(response.statusCode());
+                    try {
+                        return ResponseReader.read(readResponse(response), fieldNames);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .whenComplete((response, e) -> {
+                    long nanos = System.nanoTime() - start;
+                    metrics.requestCompleted(command, body.length(), nanos, e == null);
+                    commitRequestEvent(event, command, body.length(), status.get(), true);
+                    logRequest(command, body.length(), status.get(), nanos, true);
+                });
+    }
+
+    private static void commitRequestEvent(DeviceRequestEvent event, String command, int requestBytes,
+                                           int status, boolean async) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = command;
+            event.requestBytes = requestBytes;
+            event.status = status;
+            event.async = async;
+            event.commit();
+        }
+    }
+    
+    private void traceRequest(ObjectNode requestJson) {
+        if (debug && log.isTraceEnabled()) {
+            log.trace("Request to {}: {}", url, LogUtils.summarize(requestJson));
         }
     }
 
-    private String makeRequest(ObjectNode requestJson) throws IOException, InterruptedException {
-        if (debug) {
-            System.out.println("[DEBUG] Sending request to: " + url);
-            System.out.println("[DEBUG] Request JSON: " + requestJson.toString());
+    private void logRequest(String command, int requestBytes, int status, long nanos, boolean async) {
+        if (debug && log.isDebugEnabled()) {
+            log.atDebug().setMessage("Device request")
+                    .addKeyValue("command", command)
+                    .addKeyValue("requestBytes", requestBytes)
+                    .addKeyValue("status", status)
+                    .addKeyValue("micros", nanos / 1000)
+                    .addKeyValue("async", async)
+                    .log();
         }
-        
-        HttpRequest request = HttpRequest.newBuilder()
+    }
+
+    private HttpRequest buildRequest(String body) {
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
                 .version(HttpClient.Version.HTTP_1_1)
-                .POST(HttpRequest.BodyPublishers.ofString(requestJson.toString()))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        
-        if (debug) {
-            System.out.println("[DEBUG] Response status: " + response.statusCode());
-            System.out.println("[DEBUG] Response body: " + response.body());
+    }
+    
+    private byte[] readResponse(HttpResponse<byte[]> response) throws IOException {
+        if (debug && log.isTraceEnabled()) {
+            log.trace("Response {}: {}", response.statusCode(), LogUtils.abbreviate(response.body()));
         }
         
         if (response.statusCode() != 200) {
-            throw new IOException("Unexpected code " + response.statusCode() + " - Response: " + response.body());
+            throw new IOException("Unexpected code " + response.statusCode() + " - Response: "
+                    + LogUtils.abbreviate(response.body()));
         }
         
         return response.body();
     }
 
-    private void handleError(JsonNode error) {
-        if (debug) {
-            System.err.println("[x] Error on request " + counter);
-            System.err.println(error);
+    private boolean isRedundant(String field, int value, boolean force) {
+        if (force || !deviceState.matches(field, value)) {
+            return false;
         }
+        if (debug) log.debug("Skipping {}={}, device state already matches", field, value);
+        return true;
+    }
+
+    private void handleError(ResponseReader.Response error) {
+        metrics.deviceError(error.getErrorCode());
+        log.warn("Error on request {}: {}", picIdCounter.current(), error);
     }
 
     // Device information methods
+    
+    /**
+     * Returns all device settings, served from the device state mirror while it is fresh.
+     * @return The device configuration or null on error
+     */
     public JsonNode getAllDeviceConfigurations() {
+        return getAllDeviceConfigurations(false);
+    }
+    
+    /**
+     * Returns all device settings.
+     * @param forceRefresh Query the device even if the mirror is fresh
+     * @return The device configuration or null on error
+     */
+    public JsonNode getAllDeviceConfigurations(boolean forceRefresh) {
         if (simulated) return null;
         
+        if (!forceRefresh) {
+            JsonNode cached = deviceState.getConfiguration();
+            if (cached != null) return cached;
+        }
+        
         try {
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Channel/GetAllConf");
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
                 return null;
             }
             
+            // Callers need the full document here, so this is one of the few places building a tree
+            JsonNode data = objectMapper.readTree(response.getBody());
+            deviceState.updateConfiguration(data);
             return data;
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error getting device configurations: " + e.getMessage());
-            }
+            log.warn("Error getting device configurations: {}", e.getMessage());
             return null;
         }
     }
     
+    /**
+     * Returns the device time, extrapolated from the last query while the mirror is fresh.
+     * @return The device time or null on error
+     */
     public JsonNode getDeviceTime() {
+        return getDeviceTime(false);
+    }
+    
+    /**
+     * Returns the device time.
+     * @param forceRefresh Query the device even if the mirror is fresh
+     * @return The device time or null on error
+     */
+    public JsonNode getDeviceTime(boolean forceRefresh) {
         if (simulated) return null;
         
+        if (!forceRefresh) {
+            JsonNode cached = deviceState.getDeviceTime();
+            if (cached != null) return cached;
+        }
+        
         try {
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Device/GetDeviceTime");
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
                 return null;
             }
             
+            // Callers need the full document here, so this is one of the few places building a tree
+            JsonNode data = objectMapper.readTree(response.getBody());
+            deviceState.updateDeviceTime(data);
             return data;
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error getting device time: " + e.getMessage());
-            }
+            log.warn("Error getting device time: {}", e.getMessage());
             return null;
         }
     }
     
+    /**
+     * Measures the network latency to the device with {@code Device/GetDeviceTime} round-trips.
+     * Samples are taken one after another so they do not queue behind each other.
+     * @param samples Number of round-trips
+     * @return The updated estimator
+     */
+    public LatencyEstimator calibrateLatency(int samples) {
+        if (simulated) return latencyEstimator;
+        
+        for (int i = 0; i < samples; i++) {
+            try {
+                ObjectNode request = createCommand("Device/GetDeviceTime");
+                
+                long start = System.nanoTime();
+                byte[] body = makeRequest(request);
+                long roundTripNanos = System.nanoTime() - start;
+                
+                ResponseReader.Response response = ResponseReader.read(body);
+                if (!response.isSuccess()) {
+                    handleError(response);
+                    continue;
+                }
+                
+                latencyEstimator.addSample(roundTripNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("Error measuring device latency: {}", e.getMessage());
+            }
+        }
+        
+        if (debug && latencyEstimator.hasSamples()) {
+            log.debug("Latency {} us", latencyEstimator.getLatencyNanos() / 1000);
+        }
+        return latencyEstimator;
+    }
+    
     // GIF and media methods
     public void playLocalGif(String filePath) {
         if (simulated) return;
@@ -409,16 +735,15 @@ public class Pixoo {
             request.put("FileType", 0);
             request.put("FileName", filePath);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.forget(DeviceState.CHANNEL);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error playing local GIF: " + e.getMessage());
-            }
+            log.warn("Error playing local GIF: {}", e.getMessage());
         }
     }
     
@@ -431,16 +756,15 @@ public class Pixoo {
             request.put("FileType", 2);
             request.put("FileName", gifFileUrl);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.forget(DeviceState.CHANNEL);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error playing network GIF: " + e.getMessage());
-            }
+            log.warn("Error playing network GIF: {}", e.getMessage());
         }
     }
     
@@ -450,9 +774,7 @@ public class Pixoo {
         try {
             File directory = new File(directoryPath);
             if (!directory.exists() || !directory.isDirectory()) {
-                if (debug) {
-                    System.err.println("[x] Directory does not exist: " + directoryPath);
-                }
+                log.warn("Directory does not exist: {}", directoryPath);
                 return;
             }
             
@@ -467,16 +789,16 @@ public class Pixoo {
                 }
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error playing GIF directory: " + e.getMessage());
-            }
+            log.warn("Error playing GIF directory: {}", e.getMessage());
         }
     }
 
     /**
      * Sends a local animated GIF file to the Pixoo device for playback.
      * This method reads the GIF frame by frame, processes each frame,
-     * and sends it to the device.
+     * and sends it to the device. If an animation cache is set, the encoded
+     * frames are reused for GIFs that were sent before. Failed frames are retried;
+     * use {@link #createAnimationUpload(File, int)} to resume an upload that still failed.
      *
      * @param localGifPath The path to the local GIF file on the computer.
      * @param speed The display speed for each frame in milliseconds.
@@ -484,131 +806,359 @@ public class Pixoo {
      */
     public void sendAnimatedGif(String localGifPath, int speed) throws IOException {
         if (simulated) {
-            if (debug) System.out.println("[.] Simulated mode: sendAnimatedGif called for " + localGifPath);
+            if (debug) log.debug("Simulated mode: sendAnimatedGif called for {}", localGifPath);
             return;
         }
 
+        AnimationUpload upload = createAnimationUpload(new File(localGifPath), speed);
+        upload.setMaxRetries(frameRetries);
+        try {
+            if (!upload.run()) {
+                if (upload.getLastError() instanceof IOException) {
+                    throw (IOException) upload.getLastError();
+                }
+                log.error("Error sending GIF frame {} for {}. Aborting GIF send.", upload.getNextOffset(), localGifPath);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sending GIF frame was interrupted", e);
+        }
+    }
+
+    /**
+     * Creates an upload job for a local animated GIF file. The upload starts when it is run and
+     * can be cancelled and resumed from the frame that failed. Frames are prepared while they are
+     * uploaded, or taken from the animation cache if the GIF was sent before.
+     *
+     * @param gifFile The GIF file on the computer.
+     * @param speed The display speed for each frame in milliseconds.
+     * @return The upload job
+     * @throws IOException If the file does not exist or cannot be read for the cache.
+     */
+    public AnimationUpload createAnimationUpload(File gifFile, int speed) throws IOException {
+        if (!gifFile.exists()) {
+            log.warn("GIF file not found: {}", gifFile);
+            throw new IOException("GIF file not found: " + gifFile);
+        }
+
+        if (animationCache != null) {
+            EncodedAnimation animation = animationCache.get(animationCache.key(gifFile, size, HIGHER_QUALITY_SCALING));
+            if (animation != null) {
+                if (debug) log.debug("Using cached encoding for {}", gifFile);
+                return createAnimationUpload(animation, speed);
+            }
+        }
+        return new AnimationUpload(this, gifFile, new AnimationPipeline(size, HIGHER_QUALITY_SCALING), speed);
+    }
+
+    /**
+     * Records a pipeline run of a GIF upload, and caches its frames once all of them were uploaded.
+     */
+    void gifPrepared(File gifFile, AnimationPipeline.Result result) {
+        lastAnimationTimings = result.getTimings();
+        if (debug) log.debug("Animation pipeline for {}: {}", gifFile, result.getTimings());
+
+        if (animationCache != null && result.isComplete()) {
+            try {
+                animationCache.put(animationCache.key(gifFile, size, HIGHER_QUALITY_SCALING), result.getPayloads());
+            } catch (IOException e) {
+                log.warn("Error caching animation {}: {}", gifFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends a local animated GIF file after optimizing it for the device.
+     * Duplicate consecutive frames are merged and the per-frame delays of the GIF are mapped
+     * onto the single speed the device plays animations with. Optimized animations are not cached.
+     *
+     * @param localGifPath The path to the local GIF file on the computer.
+     * @param optimizer The optimizer that prepares the frames.
+     * @return The optimization result, e.g. to check how many frames were uploaded.
+     * @throws IOException If there's an error reading the file or communicating with the device.
+     */
+    public AnimationOptimizer.Result sendAnimatedGif(String localGifPath, AnimationOptimizer optimizer) throws IOException {
         File gifFile = new File(localGifPath);
         if (!gifFile.exists()) {
-            if (debug) System.err.println("[x] GIF file not found: " + localGifPath);
+            log.warn("GIF file not found: {}", localGifPath);
             throw new IOException("GIF file not found: " + localGifPath);
         }
 
-        resetCounter();
-
-        ImageReader reader = null;
-        BufferedImage cumulativeFrame = null;
-        Graphics2D cumulativeG2d = null;
+        try (FrameSource frames = new GifFrameStream(gifFile, size)) {
+            return sendAnimation(frames, optimizer);
+        }
+    }
 
-        try (FileInputStream inputStream = new FileInputStream(gifFile)) {
-            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
-            if (!readers.hasNext()) {
-                throw new IOException("No GIF ImageReaders found in ImageIO.");
+    /**
+     * Sends the frames of a source after optimizing them for the device.
+     *
+     * @param frames The frame source, producing frames at the device size.
+     *               It must end within {@link #getMaxAnimationFrames()} frames.
+     * @param optimizer The optimizer that prepares the frames.
+     * @return The optimization result, e.g. to check how many frames were uploaded.
+     * @throws IOException If a frame cannot be read, the source does not end or there's an error communicating with the device.
+     */
+    public AnimationOptimizer.Result sendAnimation(FrameSource frames, AnimationOptimizer optimizer) throws IOException {
+        try {
+            // All frames are needed up front, since every upload carries the final frame count
+            List<AnimationFrame> sourceFrames = new ArrayList<>();
+            AnimationFrame frame;
+            while ((frame = nextCollectedFrame(frames, sourceFrames.size())) != null) {
+                sourceFrames.add(frame);
             }
-            reader = readers.next();
-            reader.setInput(ImageIO.createImageInputStream(inputStream));
+            AnimationOptimizer.Result result = optimizer.optimize(sourceFrames);
+            if (debug) log.debug("Optimized animation: {}", result);
 
-            int numFrames = reader.getNumImages(true);
-            if (debug) System.out.println("[.] Processing GIF: " + localGifPath + " with " + numFrames + " frames.");
+            if (simulated) {
+                if (debug) log.debug("Simulated mode: sendAnimation called with {} frames", result.getFrames().size());
+                return result;
+            }
 
-            cumulativeFrame = new BufferedImage(this.size, this.size, BufferedImage.TYPE_INT_RGB);
-            cumulativeG2d = cumulativeFrame.createGraphics();
-            cumulativeG2d.setColor(Color.BLACK);
-            cumulativeG2d.fillRect(0, 0, this.size, this.size);
+            beginAnimation();
 
-            int animationPicId = 1;
-            if (debug && numFrames > 0) {
-                System.out.println("[DEBUG] sendAnimatedGif - Target device size (this.size): " + this.size + "x" + this.size);
+            // Repeated frames share their RGB array, so each one is encoded only once
+            Map<byte[], String> payloads = new IdentityHashMap<>();
+            List<AnimationFrame> optimized = result.getFrames();
+            for (int i = 0; i < optimized.size(); i++) {
+                String payload = payloads.computeIfAbsent(optimized.get(i).getRgb(),
+                        rgb -> Base64.getEncoder().encodeToString(rgb));
+                if (!sendAnimationFrame(i, optimized.size(), result.getSpeed(), payload, "animation")) {
+                    break;
+                }
             }
 
-            for (int i = 0; i < numFrames; i++) {
-                BufferedImage rawFrame = reader.read(i);
+            finishAnimation();
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sending animation frame was interrupted", e);
+        }
+    }
 
-                if (debug && i == 0) {
-                    System.out.println("[DEBUG] sendAnimatedGif - Frame 0: rawFrame dimensions: " + rawFrame.getWidth() + "x" + rawFrame.getHeight());
+    /**
+     * Sends the frames of a source to the device for playback.
+     * If the source knows its frame count, frames are encoded and uploaded one at a time.
+     * Otherwise all frames are read and encoded first, since every upload carries the frame count,
+     * and the source must end within {@link #getMaxAnimationFrames()} frames.
+     *
+     * @param frames The frame source, producing frames at the device size.
+     * @param speed The display speed for each frame in milliseconds.
+     * @throws IOException If a frame cannot be read, the source does not end or there's an error communicating with the device.
+     */
+    public void sendAnimation(FrameSource frames, int speed) throws IOException {
+        try {
+            List<String> payloads = null;
+            int frameCount = frames.getFrameCount();
+            if (frameCount < 0) {
+                payloads = new ArrayList<>();
+                AnimationFrame frame;
+                while ((frame = nextCollectedFrame(frames, payloads.size())) != null) {
+                    payloads.add(Base64.getEncoder().encodeToString(frame.getRgb()));
                 }
+                frameCount = payloads.size();
+            }
 
-                BufferedImage frameToDrawOnCumulative;
-                if (rawFrame.getWidth() != this.size || rawFrame.getHeight() != this.size) {
-                    // Use the new scaleImage helper method
-                    frameToDrawOnCumulative = scaleImage(rawFrame, this.size, this.size, HIGHER_QUALITY_SCALING);
-                    if (debug && i == 0) {
-                         System.out.printf("[DEBUG] sendAnimatedGif - Frame 0: Scaled frameToDrawOnCumulative dimensions: %dx%d using %s quality%n", 
-                               frameToDrawOnCumulative.getWidth(), frameToDrawOnCumulative.getHeight(), HIGHER_QUALITY_SCALING ? "higher" : "standard");
-                    }
+            if (simulated) {
+                if (debug) log.debug("Simulated mode: sendAnimation called with {} frames", frameCount);
+                return;
+            }
+
+            beginAnimation();
+
+            for (int i = 0; i < frameCount; i++) {
+                String payload;
+                if (payloads != null) {
+                    payload = payloads.get(i);
                 } else {
-                    frameToDrawOnCumulative = rawFrame;
+                    AnimationFrame frame = frames.next();
+                    if (frame == null) {
+                        throw new IOException("Frame source ended after " + i + " of " + frameCount + " frames");
+                    }
+                    payload = Base64.getEncoder().encodeToString(frame.getRgb());
                 }
-
-                if (debug && i == 0) {
-                    System.out.println("[DEBUG] sendAnimatedGif - Frame 0: frameToDrawOnCumulative (final) dimensions: " + frameToDrawOnCumulative.getWidth() + "x" + frameToDrawOnCumulative.getHeight());
+                if (!sendAnimationFrame(i, frameCount, speed, payload, "animation")) {
+                    break;
                 }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sending animation frame was interrupted", e);
+        }
 
-                cumulativeG2d.drawImage(frameToDrawOnCumulative, 0, 0, null);
+        finishAnimation();
+    }
 
-                if (debug && i == 0) {
-                    System.out.println("[DEBUG] sendAnimatedGif - Frame 0: cumulativeFrame (being sent) dimensions: " + cumulativeFrame.getWidth() + "x" + cumulativeFrame.getHeight());
-                }
+    /**
+     * Reads the next frame of a source that is read completely before the upload.
+     * @param collected The number of frames read so far
+     */
+    private AnimationFrame nextCollectedFrame(FrameSource frames, int collected) throws IOException, InterruptedException {
+        AnimationFrame frame = frames.next();
+        if (frame != null && collected >= maxAnimationFrames) {
+            throw new IOException("Frame source did not end within " + maxAnimationFrames + " frames");
+        }
+        return frame;
+    }
 
-                byte[] rgbData = bufferedImageToRgbBytes(cumulativeFrame);
-                String base64Data = Base64.getEncoder().encodeToString(rgbData);
-
-                ObjectNode requestJson = objectMapper.createObjectNode();
-                requestJson.put("Command", "Draw/SendHttpGif");
-                requestJson.put("PicID", animationPicId); 
-                requestJson.put("PicNum", numFrames);     
-                requestJson.put("PicOffset", i);          
-                requestJson.put("PicWidth", this.size);   
-                requestJson.put("PicSpeed", speed);       
-                requestJson.put("PicData", base64Data);
-                
-                try {
-                    String response = makeRequest(requestJson);
-                    JsonNode responseData = objectMapper.readTree(response);
-                    if (responseData.get("error_code").asInt() != 0) {
-                        handleError(responseData);
-                        System.err.println("[x] Error sending GIF frame " + i + " for " + localGifPath + ". Aborting GIF send.");
-                        break; 
-                    }
-                    if (debug) System.out.println("[.] Sent GIF frame " + i + "/" + (numFrames - 1) + " for " + localGifPath);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt(); 
-                    System.err.println("[x] Interrupted while sending GIF frame " + i + " for " + localGifPath + ". Aborting GIF send.");
-                    throw new IOException("Sending GIF frame was interrupted", e);
-                } 
-            }
-            if (debug) System.out.println("[.] Finished sending all frames for " + localGifPath);
+    /**
+     * Sends an animation whose frames have already been encoded, e.g. from an {@link AnimationCache}.
+     * Failed frames are retried; use {@link #createAnimationUpload(EncodedAnimation, int)} to
+     * resume an upload that still failed.
+     *
+     * @param animation The encoded animation, which must match the device size.
+     * @param speed The display speed for each frame in milliseconds.
+     * @return true if all frames were uploaded
+     * @throws IOException If the upload was interrupted.
+     */
+    public boolean sendAnimation(EncodedAnimation animation, int speed) throws IOException {
+        if (simulated) {
+            if (debug) log.debug("Simulated mode: sendAnimation called with {} frames", animation.getFrameCount());
+            return true;
+        }
 
-        } finally {
-            if (cumulativeG2d != null) {
-                cumulativeG2d.dispose(); // Dispose graphics context for cumulativeFrame
-            }
-            if (reader != null) {
-                reader.dispose();
+        AnimationUpload upload = createAnimationUpload(animation, speed);
+        upload.setMaxRetries(frameRetries);
+        try {
+            if (!upload.run()) {
+                log.error("Error sending animation frame {}. Aborting animation send.", upload.getNextOffset());
+                return false;
             }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sending animation frame was interrupted", e);
         }
     }
 
     /**
-     * Converts a BufferedImage to a raw RGB byte array.
-     * @param image The BufferedImage to convert.
-     * @return A byte array containing RGB pixel data.
+     * Creates an upload job for an encoded animation. The upload starts when it is run and can be
+     * cancelled and resumed from the frame that failed.
+     *
+     * @param animation The encoded animation, which must match the device size.
+     * @param speed The display speed for each frame in milliseconds.
+     * @return The upload job
+     */
+    public AnimationUpload createAnimationUpload(EncodedAnimation animation, int speed) {
+        return new AnimationUpload(this, animation, speed);
+    }
+
+    /**
+     * Sends a {@code .pxa} animation to the device for playback.
+     * Frames are decoded straight from the mapped file, without decoding any images.
+     *
+     * @param animation The animation, which must match the device size.
+     * @param speed The display speed for each frame in milliseconds.
+     * @throws IOException If there's an error communicating with the device.
+     */
+    public void sendAnimation(PxaAnimation animation, int speed) throws IOException {
+        if (animation.getSize() != size) {
+            throw new IllegalArgumentException(
+                "Animation is " + animation.getSize() + " pixels wide, expected " + size);
+        }
+        sendAnimation(animation.toFrameSource(), speed);
+    }
+
+    /**
+     * Uploads one frame of an animation, retrying failed attempts.
+     * @return true if the device accepted the frame
+     */
+    private boolean sendAnimationFrame(int index, int numFrames, int speed, String payload, String name)
+            throws IOException, InterruptedException {
+        boolean sent = AnimationUpload.sendFrame(this, index, numFrames, speed, payload, name,
+                frameRetries, AnimationUpload.DEFAULT_RETRY_DELAY_MILLIS, () -> false, null);
+        if (!sent) {
+            log.error("Error sending GIF frame {} for {}. Aborting GIF send.", index, name);
+        }
+        return sent;
+    }
+
+    /**
+     * Prepares the device for a new animation upload.
+     */
+    void beginAnimation() {
+        awaitReady();
+        resetCounter();
+    }
+
+    /**
+     * Finishes an animation upload.
+     */
+    void finishAnimation() {
+        // The animation used the freshly reset PicID, so regular pushes continue after it
+        picIdCounter.load(ANIMATION_PIC_ID);
+        deviceState.forget(DeviceState.CHANNEL);
+        if (debug) log.debug("Finished sending all frames of the animation");
+    }
+
+    /**
+     * Makes a single attempt to upload one frame of an animation to the device.
+     * @return true if the device accepted the frame
      */
-    private byte[] bufferedImageToRgbBytes(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        // Each pixel is 3 bytes (R, G, B)
-        byte[] rgbBytes = new byte[width * height * 3];
-        int k = 0;
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRGB(x, y); // ARGB format
-                rgbBytes[k++] = (byte) ((pixel >> 16) & 0xFF); // Red
-                rgbBytes[k++] = (byte) ((pixel >> 8) & 0xFF);  // Green
-                rgbBytes[k++] = (byte) (pixel & 0xFF);         // Blue
+    boolean uploadAnimationFrame(int index, int numFrames, int speed, String payload, String name)
+            throws IOException, InterruptedException {
+        if (simulated) {
+            recordAnimationFrame(index, numFrames, speed, payload);
+            return true;
+        }
+
+        ObjectNode requestJson = objectMapper.createObjectNode();
+        requestJson.put("Command", "Draw/SendHttpGif");
+        requestJson.put("PicID", ANIMATION_PIC_ID); 
+        requestJson.put("PicNum", numFrames);     
+        requestJson.put("PicOffset", index);          
+        requestJson.put("PicWidth", this.size);   
+        requestJson.put("PicSpeed", speed);       
+        requestJson.put("PicData", payload);
+        
+        AnimationFrameUploadEvent event = new AnimationFrameUploadEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            ResponseReader.Response response = ResponseReader.read(makeRequest(requestJson));
+            if (!response.isSuccess()) {
+                handleError(response);
+                log.warn("Device rejected GIF frame {} for {}", index, name);
+                return false;
             }
+            if (debug && log.isDebugEnabled()) log.debug("Sent GIF frame {}/{} for {}", index, numFrames - 1, name);
+            recordAnimationFrame(index, numFrames, speed, payload);
+            success = true;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); 
+            log.warn("Interrupted while sending GIF frame {} for {}. Aborting GIF send.", index, name);
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.name = name;
+                event.index = index;
+                event.frameCount = numFrames;
+                event.payloadBytes = payload.length();
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    private void recordAnimationFrame(int index, int numFrames, int speed, String payload) {
+        FrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            record(() -> recorder.recordAnimationFrame(index, numFrames, speed, Base64.getDecoder().decode(payload)));
+        }
+    }
+
+    private interface RecordAction {
+        void run() throws IOException;
+    }
+
+    private void record(RecordAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            // A failing recording must not stop the device from being updated
+            log.warn("Error recording frame: {}", e.getMessage());
         }
-        return rgbBytes;
     }
 
     // Device control methods
@@ -623,16 +1173,15 @@ public class Pixoo {
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Device/SysReboot");
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.invalidate();
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error rebooting device: " + e.getMessage());
-            }
+            log.warn("Error rebooting device: {}", e.getMessage());
         }
     }
 
@@ -667,16 +1216,13 @@ public class Pixoo {
             request.put("TextString", text);
             request.put("color", color.toHex());
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error sending text: " + e.getMessage());
-            }
+            log.warn("Error sending text: {}", e.getMessage());
         }
     }
 
@@ -690,25 +1236,35 @@ public class Pixoo {
      * @param brightness Brightness level (0-100)
      */
     public void setBrightness(int brightness) {
+        setBrightness(brightness, false);
+    }
+    
+    /**
+     * Sets the brightness of the display.
+     * @param brightness Brightness level (0-100)
+     * @param force Send the command even if the device state already matches
+     */
+    public void setBrightness(int brightness, boolean force) {
         if (simulated) return;
         
         try {
             brightness = MathUtils.clamp(brightness, 0, 100);
             
+            if (isRedundant(DeviceState.BRIGHTNESS, brightness, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Channel/SetBrightness");
             request.put("Brightness", brightness);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.BRIGHTNESS, brightness);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting brightness: " + e.getMessage());
-            }
+            log.warn("Error setting brightness: {}", e.getMessage());
         }
     }
 
@@ -717,23 +1273,33 @@ public class Pixoo {
      * @param channel The channel to switch to
      */
     public void setChannel(int channel) {
+        setChannel(channel, false);
+    }
+    
+    /**
+     * Sets the current channel.
+     * @param channel The channel to switch to
+     * @param force Send the command even if the device state already matches
+     */
+    public void setChannel(int channel, boolean force) {
         if (simulated) return;
         
         try {
+            if (isRedundant(DeviceState.CHANNEL, channel, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Channel/SetIndex");
             request.put("SelectIndex", channel);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.CHANNEL, channel);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting channel: " + e.getMessage());
-            }
+            log.warn("Error setting channel: {}", e.getMessage());
         }
     }
 
@@ -742,23 +1308,35 @@ public class Pixoo {
      * @param clockId The clock ID to display
      */
     public void setClock(int clockId) {
+        setClock(clockId, false);
+    }
+    
+    /**
+     * Sets the clock/face.
+     * @param clockId The clock ID to display
+     * @param force Send the command even if the device state already matches
+     */
+    public void setClock(int clockId, boolean force) {
         if (simulated) return;
         
         try {
+            if (isRedundant(DeviceState.CLOCK_ID, clockId, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Channel/SetClockSelectId");
             request.put("ClockId", clockId);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.CLOCK_ID, clockId);
+                // Selecting a clock switches the device to the faces channel
+                deviceState.update(DeviceState.CHANNEL, Channel.FACES.getValue());
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting clock: " + e.getMessage());
-            }
+            log.warn("Error setting clock: {}", e.getMessage());
         }
     }
 
@@ -774,10 +1352,15 @@ public class Pixoo {
     }
 
     public void drawText(String text, MathUtils.Point xy, Palette.Color color) {
+        // All glyphs are set at once, so a push on another thread never sends half of the text
+        int[] xs = new int[text.length() * GLYPH_PIXELS];
+        int[] ys = new int[xs.length];
+        int count = 0;
         for (int i = 0; i < text.length(); i++) {
-            char character = text.charAt(i);
-            drawCharacter(character, new MathUtils.Point(i * 4 + xy.x, xy.y), color);
+            count = addGlyph(text.charAt(i), (int) (i * 4 + xy.x), (int) xy.y, xs, ys, count);
         }
+        int[] rgb = MathUtils.clampColor(color.toArray());
+        frameBuffer.setPixels(xs, ys, count, rgb[0], rgb[1], rgb[2]);
     }
 
     public void drawCharacter(char character, int x, int y, Palette.Color color) {
@@ -785,16 +1368,28 @@ public class Pixoo {
     }
 
     public void drawCharacter(char character, MathUtils.Point xy, Palette.Color color) {
+        int[] xs = new int[GLYPH_PIXELS];
+        int[] ys = new int[GLYPH_PIXELS];
+        int count = addGlyph(character, (int) xy.x, (int) xy.y, xs, ys, 0);
+        int[] rgb = MathUtils.clampColor(color.toArray());
+        frameBuffer.setPixels(xs, ys, count, rgb[0], rgb[1], rgb[2]);
+    }
+
+    /**
+     * Appends the set pixels of a glyph, 3 pixels wide and 5 high, to the coordinate arrays.
+     * @return The new number of pixels in the arrays
+     */
+    private static int addGlyph(char character, int x, int y, int[] xs, int[] ys, int count) {
         int[] matrix = Font.retrieveGlyph(character);
         if (matrix != null) {
-            for (int index = 0; index < matrix.length; index++) {
+            for (int index = 0; index < matrix.length && index < GLYPH_PIXELS; index++) {
                 if (matrix[index] == 1) {
-                    int localX = index % 3;
-                    int localY = index / 3;
-                    drawPixel((int)xy.x + localX, (int)xy.y + localY, color);
+                    xs[count] = x + index % 3;
+                    ys[count++] = y + index / 3;
                 }
             }
         }
+        return count;
     }
 
     public void drawImage(String imagePath, int x, int y, ImageResampleMode resampleMode) throws IOException {
@@ -802,11 +1397,16 @@ public class Pixoo {
     }
 
     public void drawImage(String imagePath, MathUtils.Point xy, ImageResampleMode resampleMode, boolean padResample) throws IOException {
-        BufferedImage image = ImageIO.read(new File(imagePath));
+        // Padding draws the image at its original size, so only scaled images can be decoded subsampled
+        BufferedImage image = padResample
+                ? ImageIO.read(new File(imagePath))
+                : ImageDecoder.read(new File(imagePath), size, size);
         drawImage(image, xy, resampleMode, padResample);
     }
 
     public void drawImage(BufferedImage image, MathUtils.Point xy, ImageResampleMode resampleMode, boolean padResample) {
+        DrawImageEvent event = new DrawImageEvent();
+        event.begin();
         int originalWidth = image.getWidth();
         int originalHeight = image.getHeight();
         BufferedImage imageToDraw = image;
@@ -829,67 +1429,34 @@ public class Pixoo {
                 imageToDraw = paddedImage;
                 
                 if (debug) {
-                    System.out.printf("[.] Padded image to fit on screen: (%d, %d) -> (%d, %d)%n",
+                    log.debug("Padded image to fit on screen: ({}, {}) -> ({}, {})",
                             originalWidth, originalHeight, imageToDraw.getWidth(), imageToDraw.getHeight());
                 }
             } else {
                  // Determine scaling quality based on resampleMode
                 boolean useHighQualityScaling = (resampleMode != ImageResampleMode.PIXEL_ART) && HIGHER_QUALITY_SCALING;
-                imageToDraw = scaleImage(imageToDraw, size, size, useHighQualityScaling);
+                imageToDraw = ImageUtils.scaleImage(imageToDraw, size, size, useHighQualityScaling);
                 if (debug) {
-                    System.out.printf("[.] Resized image to fit on screen: (%d, %d) -> (%d, %d) using %s quality%n",
+                    log.debug("Resized image to fit on screen: ({}, {}) -> ({}, {}) using {} quality",
                             originalWidth, originalHeight, imageToDraw.getWidth(), imageToDraw.getHeight(), useHighQualityScaling ? "higher" : "standard/pixel_art");
                 }
             }
         }
 
-        // Draw pixels
-        for (int imgY = 0; imgY < imageToDraw.getHeight(); imgY++) {
-            for (int imgX = 0; imgX < imageToDraw.getWidth(); imgX++) {
-                int placedX = imgX + (int)xy.x;
-                int placedY = imgY + (int)xy.y;
-
-                if (placedX < 0 || placedX >= size || placedY < 0 || placedY >= size) {
-                    continue;
-                }
-
-                int rgb = imageToDraw.getRGB(imgX, imgY);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-
-                drawPixel(placedX, placedY, new Palette.Color(r, g, b));
-            }
+        // Draw pixels, all at once so other threads never see half of the image
+        frameBuffer.drawImage(imageToDraw, (int) xy.x, (int) xy.y);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.sourceWidth = originalWidth;
+            event.sourceHeight = originalHeight;
+            event.size = size;
+            event.resampleMode = String.valueOf(resampleMode);
+            event.padded = padResample;
+            event.commit();
         }
     }
 
-    /**
-     * Scales an image to the target dimensions using Graphics2D for better quality.
-     *
-     * @param originalImage The image to scale.
-     * @param targetWidth The target width.
-     * @param targetHeight The target height.
-     * @param highQuality If true, uses bicubic interpolation for scaling. Otherwise, uses bilinear.
-     * @return The scaled image.
-     */
-    private BufferedImage scaleImage(BufferedImage originalImage, int targetWidth, int targetHeight, boolean highQuality) {
-        BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, originalImage.getType());
-        Graphics2D g2d = scaledImage.createGraphics();
-
-        if (highQuality) {
-            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        } else {
-            // Default or less intensive, e.g., bilinear
-            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        }
-
-        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-        return scaledImage;
-    }
-
     public void setScreenOff() {
         setScreen(false);
     }
@@ -899,23 +1466,34 @@ public class Pixoo {
     }
 
     public void setScreen(boolean on) {
+        setScreen(on, false);
+    }
+    
+    /**
+     * Turns the display on or off.
+     * @param on True to turn the display on
+     * @param force Send the command even if the device state already matches
+     */
+    public void setScreen(boolean on, boolean force) {
         if (simulated) return;
         
         try {
+            int stateValue = on ? 1 : 0;
+            if (isRedundant(DeviceState.SCREEN_ON, stateValue, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Channel/OnOffScreen");
             request.put("OnOff", on ? 1 : 0);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.SCREEN_ON, stateValue);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting screen: " + e.getMessage());
-            }
+            log.warn("Error setting screen: {}", e.getMessage());
         }
     }
 
@@ -942,99 +1520,204 @@ public class Pixoo {
 
     public void drawPixelAtIndex(int index, Palette.Color color) {
         if (index < 0 || index >= pixelCount) {
-            if (debug) {
-                System.out.printf("[!] Invalid index given: %d (maximum index is %d)%n", index, pixelCount - 1);
-            }
+            if (debug) log.debug("Invalid index given: {} (maximum index is {})", index, pixelCount - 1);
             return;
         }
         
         int[] rgb = MathUtils.clampColor(color.toArray());
-        index *= 3;
-        
-        buffer[index] = rgb[0];
-        buffer[index + 1] = rgb[1];
-        buffer[index + 2] = rgb[2];
+        frameBuffer.setPixel(index % size, index / size, rgb[0], rgb[1], rgb[2]);
     }
 
     public void drawPixelAtIndexRgb(int index, int r, int g, int b) {
         drawPixelAtIndex(index, new Palette.Color(r, g, b));
     }
 
+    /**
+     * Replaces the whole buffer with a device-ready frame.
+     * @param rgb RGB bytes in row-major order, size * size * 3 long
+     */
+    public void drawRgbFrame(byte[] rgb) {
+        frameBuffer.setFrame(rgb);
+    }
+
     // Getters
     public int getSize() { return size; }
     public int getPixelCount() { return pixelCount; }
     public boolean isSimulated() { return simulated; }
     public boolean isDebug() { return debug; }
+    public FrameBuffer getFrameBuffer() { return frameBuffer; }
+    public int getBuffersSent() { return buffersSent.get(); }
 
     public String getUrlString() { return url; } // Added getter for URL
+    public PicIdCounter getPicIdCounter() { return picIdCounter; }
+    public DeviceState getDeviceState() { return deviceState; }
+    public LatencyEstimator getLatencyEstimator() { return latencyEstimator; }
+    public AnimationCache getAnimationCache() { return animationCache; }
+    /** The headless display of a simulated device, or null for a real device. */
+    public Simulator getSimulator() { return simulator; }
+    /** Stage timings of the last animation prepared by {@link #sendAnimatedGif(String, int)}, or null. */
+    public AnimationPipeline.StageTimings getLastAnimationTimings() { return lastAnimationTimings; }
+
+    /**
+     * Sets the cache for encoded animations used by {@link #sendAnimatedGif(String, int)}.
+     * @param animationCache The cache, or null to encode every animation again
+     */
+    public void setAnimationCache(AnimationCache animationCache) {
+        this.animationCache = animationCache;
+    }
+
+    /**
+     * Sets after how many pushed frames the device PicID counter is reset.
+     * @param resetLimit The PicID at which a reset is scheduled (at least 2)
+     */
+    public void setCounterResetLimit(int resetLimit) {
+        picIdCounter.setResetLimit(resetLimit);
+    }
+
+    public FrameRecorder getFrameRecorder() { return frameRecorder; }
+    public MetricsRegistry getMetricsRegistry() { return metrics; }
+
+    /**
+     * Sets the registry that receives request, push and counter reset measurements.
+     * @param metrics The registry, or null to stop recording
+     */
+    public void setMetricsRegistry(MetricsRegistry metrics) {
+        this.metrics = metrics != null ? metrics : MetricsRegistry.NOOP;
+    }
+
+
+    /**
+     * Records every pushed buffer and every uploaded animation frame.
+     * @param frameRecorder The recorder, or null to stop recording. It is not closed by this instance.
+     */
+    public void setFrameRecorder(FrameRecorder frameRecorder) {
+        this.frameRecorder = frameRecorder;
+    }
+
+    public int getFrameRetries() { return frameRetries; }
+
+    /**
+     * Sets how often a failed animation frame is sent again before the upload is aborted.
+     * @param frameRetries The number of retries per frame, 0 to disable retries
+     */
+    public void setFrameRetries(int frameRetries) {
+        this.frameRetries = frameRetries;
+    }
+
+    public int getMaxAnimationFrames() { return maxAnimationFrames; }
+
+    /**
+     * Sets how many frames are read from a frame source without a known frame count before
+     * sending it is aborted. Such sources are held in memory until all of their frames were read.
+     * @param maxAnimationFrames The maximum number of frames
+     */
+    public void setMaxAnimationFrames(int maxAnimationFrames) {
+        this.maxAnimationFrames = maxAnimationFrames;
+    }
 
     // Clean up resources
     public void close() {
         // JDK HttpClient doesn't require explicit closing
         // Resources are automatically managed
+        if (simulator != null) {
+            simulator.close();
+        }
     }
     
     // Additional device control methods from original implementation
     public void setHighLightMode(boolean on) {
+        setHighLightMode(on, false);
+    }
+    
+    /**
+     * Turns the high light mode on or off.
+     * @param on True to turn high light mode on
+     * @param force Send the command even if the device state already matches
+     */
+    public void setHighLightMode(boolean on, boolean force) {
         if (simulated) return;
         
         try {
+            int stateValue = on ? 1 : 0;
+            if (isRedundant(DeviceState.HIGHLIGHT_MODE, stateValue, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Device/SetHighLightMode");
             request.put("Mode", on);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.HIGHLIGHT_MODE, stateValue);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting highlight mode: " + e.getMessage());
-            }
+            log.warn("Error setting highlight mode: {}", e.getMessage());
         }
     }
     
     public void setMirrorMode(boolean on) {
+        setMirrorMode(on, false);
+    }
+    
+    /**
+     * Turns mirroring of the display on or off.
+     * @param on True to mirror the display
+     * @param force Send the command even if the device state already matches
+     */
+    public void setMirrorMode(boolean on, boolean force) {
         if (simulated) return;
         
         try {
+            int stateValue = on ? 1 : 0;
+            if (isRedundant(DeviceState.MIRROR_MODE, stateValue, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Device/SetMirrorMode");
             request.put("Mode", on);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.MIRROR_MODE, stateValue);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting mirror mode: " + e.getMessage());
-            }
+            log.warn("Error setting mirror mode: {}", e.getMessage());
         }
     }
     
     public void setNoiseStatus(boolean on) {
+        setNoiseStatus(on, false);
+    }
+    
+    /**
+     * Turns the noise meter on or off.
+     * @param on True to turn the noise meter on
+     * @param force Send the command even if the device state already matches
+     */
+    public void setNoiseStatus(boolean on, boolean force) {
         if (simulated) return;
         
         try {
+            int stateValue = on ? 1 : 0;
+            if (isRedundant(DeviceState.NOISE_STATUS, stateValue, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Device/SetNoiseStatus");
             request.put("NoiseStatus", on);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.NOISE_STATUS, stateValue);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting noise status: " + e.getMessage());
-            }
+            log.warn("Error setting noise status: {}", e.getMessage());
         }
     }
     
@@ -1047,41 +1730,59 @@ public class Pixoo {
             request.put("BlueScore", blueScore);
             request.put("RedScore", redScore);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting scoreboard: " + e.getMessage());
-            }
+            log.warn("Error setting scoreboard: {}", e.getMessage());
         }
     }
     
     public void setVisualizer(int equalizerPosition) {
+        setVisualizer(equalizerPosition, false);
+    }
+    
+    /**
+     * Shows one of the device's visualizers.
+     * @param equalizerPosition The position of the visualizer in the device's list
+     * @param force Send the command even if the device state already matches
+     */
+    public void setVisualizer(int equalizerPosition, boolean force) {
         if (simulated) return;
         
         try {
+            if (isRedundant(DeviceState.VISUALIZER, equalizerPosition, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Channel/SetEqPosition");
             request.put("EqPosition", equalizerPosition);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.VISUALIZER, equalizerPosition);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting visualizer: " + e.getMessage());
-            }
+            log.warn("Error setting visualizer: {}", e.getMessage());
         }
     }
     
     public void setWhiteBalance(int r, int g, int b) {
+        setWhiteBalance(r, g, b, false);
+    }
+    
+    /**
+     * Sets the white balance of the display.
+     * @param r Red level (0-100)
+     * @param g Green level (0-100)
+     * @param b Blue level (0-100)
+     * @param force Send the command even if the device state already matches
+     */
+    public void setWhiteBalance(int r, int g, int b, boolean force) {
         if (simulated) return;
         
         try {
@@ -1089,22 +1790,24 @@ public class Pixoo {
             g = MathUtils.clamp(g, 0, 100);
             b = MathUtils.clamp(b, 0, 100);
             
+            int stateValue = (r << 16) | (g << 8) | b;
+            if (isRedundant(DeviceState.WHITE_BALANCE, stateValue, force)) return;
+            
             ObjectNode request = objectMapper.createObjectNode();
             request.put("Command", "Device/SetWhiteBalance");
             request.put("RValue", r);
             request.put("GValue", g);
             request.put("BValue", b);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
+            } else {
+                deviceState.update(DeviceState.WHITE_BALANCE, stateValue);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error setting white balance: " + e.getMessage());
-            }
+            log.warn("Error setting white balance: {}", e.getMessage());
         }
     }
     
@@ -1118,16 +1821,13 @@ public class Pixoo {
             request.put("OffTimeInCycle", inactiveCycleTime);
             request.put("PlayTotalTime", totalTime);
             
-            String response = makeRequest(request);
-            JsonNode data = objectMapper.readTree(response);
+            ResponseReader.Response response = ResponseReader.read(makeRequest(request));
             
-            if (data.get("error_code").asInt() != 0) {
-                handleError(data);
+            if (!response.isSuccess()) {
+                handleError(response);
             }
         } catch (Exception e) {
-            if (debug) {
-                System.err.println("[x] Error playing buzzer: " + e.getMessage());
-            }
+            log.warn("Error playing buzzer: {}", e.getMessage());
         }
     }
 }
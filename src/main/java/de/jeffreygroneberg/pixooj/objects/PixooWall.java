@@ -0,0 +1,103 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes frames to several Pixoo devices so that they appear at the same time.
+ * <p>
+ * Each device's one-way latency is taken from its {@link LatencyEstimator}. The
+ * device with the highest latency is sent to immediately and every other device is
+ * delayed by the difference, so all frames arrive together.
+ */
+public class PixooWall {
+    private final List<Pixoo> devices;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a wall from the given devices.
+     * @param devices The devices making up the wall
+     */
+    public PixooWall(List<Pixoo> devices) {
+        if (devices.isEmpty()) {
+            throw new IllegalArgumentException("A wall needs at least one device");
+        }
+        this.devices = Collections.unmodifiableList(new ArrayList<>(devices));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(devices.size(), runnable -> {
+            Thread thread = new Thread(runnable, "pixoo-wall-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Measures the latency of all devices concurrently.
+     * @param samples Number of samples per device
+     */
+    public void calibrate(int samples) {
+        List<CompletableFuture<LatencyEstimator>> calibrations = new ArrayList<>();
+        for (Pixoo device : devices) {
+            calibrations.add(CompletableFuture.supplyAsync(() -> device.calibrateLatency(samples), scheduler));
+        }
+        CompletableFuture.allOf(calibrations.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Returns the delay before sending to each device, in the order of {@link #getDevices()}.
+     * @return The send delays in nanoseconds
+     */
+    public long[] getSendDelaysNanos() {
+        long maxLatency = 0;
+        for (Pixoo device : devices) {
+            maxLatency = Math.max(maxLatency, device.getLatencyEstimator().getLatencyNanos());
+        }
+
+        long[] delays = new long[devices.size()];
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = maxLatency - devices.get(i).getLatencyEstimator().getLatencyNanos();
+        }
+        return delays;
+    }
+
+    /**
+     * Pushes the current buffer of every device, staggered by the measured latencies.
+     * @return A future that completes when all pushes have finished
+     */
+    public CompletableFuture<Void> pushAll() {
+        long[] delays = getSendDelaysNanos();
+        CompletableFuture<?>[] pushes = new CompletableFuture<?>[devices.size()];
+
+        for (int i = 0; i < pushes.length; i++) {
+            Pixoo device = devices.get(i);
+            CompletableFuture<Void> push = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                try {
+                    device.push();
+                    push.complete(null);
+                } catch (RuntimeException e) {
+                    push.completeExceptionally(e);
+                }
+            }, delays[i], TimeUnit.NANOSECONDS);
+            pushes[i] = push;
+        }
+
+        return CompletableFuture.allOf(pushes);
+    }
+
+    public List<Pixoo> getDevices() { return devices; }
+
+    /**
+     * Stops the scheduler threads.
+     */
+    public void close() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,284 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationCache;
+import de.jeffreygroneberg.pixooj.animations.AnimationFrame;
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+import de.jeffreygroneberg.pixooj.animations.FrameSource;
+import de.jeffreygroneberg.pixooj.animations.Playlist;
+import de.jeffreygroneberg.pixooj.animations.PlaylistItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Plays a {@link Playlist} on a Pixoo device.
+ * <p>
+ * While one item is shown, the next items are decoded and encoded on background threads,
+ * so switching items only costs the upload. Encoded items are kept in an
+ * {@link AnimationCache} and are not decoded again while their files are unchanged.
+ * If the playlist was created from a directory, the directory can be watched and
+ * files that are added, changed or removed are picked up without rescanning it.
+ */
+public class PlaylistPlayer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PlaylistPlayer.class);
+    public static final int DEFAULT_PREFETCH = 2;
+    // Pause after an item that could not be prepared, so a playlist of broken files does not spin
+    private static final long FAILURE_BACKOFF_MS = 1000;
+
+    private final Pixoo pixoo;
+    private final Playlist playlist;
+    private final AnimationCache cache;
+    private final int prefetch;
+    private final ExecutorService preparer;
+    private final Map<File, Preparation> preparing = new ConcurrentHashMap<>();
+
+    private volatile Thread playThread;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    /**
+     * Creates a player with an in-memory cache and the default prefetch.
+     * @param pixoo The device to play on
+     * @param playlist The playlist
+     */
+    public PlaylistPlayer(Pixoo pixoo, Playlist playlist) {
+        this(pixoo, playlist, new AnimationCache(), DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Creates a player.
+     * @param pixoo The device to play on
+     * @param playlist The playlist
+     * @param cache Cache for encoded items
+     * @param prefetch Number of upcoming items prepared in the background
+     */
+    public PlaylistPlayer(Pixoo pixoo, Playlist playlist, AnimationCache cache, int prefetch) {
+        this.pixoo = pixoo;
+        this.playlist = playlist;
+        this.cache = cache;
+        this.prefetch = prefetch;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.preparer = Executors.newFixedThreadPool(Math.max(1, prefetch), runnable -> {
+            Thread thread = new Thread(runnable, "pixoo-playlist-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts playing in a background thread until {@link #stop()} is called.
+     */
+    public synchronized void start() {
+        if (playThread != null) return;
+        playThread = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    playNext();
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }, "pixoo-playlist-player");
+        playThread.setDaemon(true);
+        playThread.start();
+    }
+
+    /**
+     * Stops playing after the current upload.
+     */
+    public synchronized void stop() {
+        if (playThread != null) {
+            playThread.interrupt();
+            playThread = null;
+        }
+    }
+
+    /**
+     * Plays the next item and waits for its duration.
+     * @return The item that was played, or null if the playlist is empty or the item could not be prepared
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public PlaylistItem playNext() throws InterruptedException {
+        PlaylistItem item = playlist.next();
+        if (item == null) {
+            // Nothing to play until files are added
+            Thread.sleep(1000);
+            return null;
+        }
+
+        Preparation preparation = prepare(item);
+        for (PlaylistItem upcoming : playlist.peek(prefetch)) {
+            prepare(upcoming);
+        }
+
+        EncodedAnimation animation;
+        try {
+            animation = preparation.result.join();
+        } catch (CompletionException e) {
+            // The failed preparation is kept until the file changes, so it is not decoded on every turn
+            if (!preparation.reported) {
+                preparation.reported = true;
+                log.warn("Skipping playlist item {} until it changes: {}", item, e.getCause().getMessage());
+            }
+            Thread.sleep(FAILURE_BACKOFF_MS);
+            return null;
+        }
+        // The cache keeps the result, so the preparation itself is no longer needed
+        preparing.remove(item.getFile(), preparation);
+
+        try {
+            pixoo.sendAnimation(animation, item.getSpeed());
+        } catch (IOException e) {
+            log.warn("Error sending playlist item {}: {}", item, e.getMessage());
+        }
+        if (pixoo.isDebug()) log.debug("Playing {}", item);
+
+        Thread.sleep(item.getDurationMs());
+        return item;
+    }
+
+    /**
+     * Watches the playlist's directory for added, changed and removed files.
+     * @param directory The directory the playlist was created from
+     * @throws IOException If the directory cannot be watched
+     */
+    public synchronized void watch(File directory) throws IOException {
+        if (watchService != null) return;
+        Path path = directory.toPath();
+        watchService = FileSystems.getDefault().newWatchService();
+        path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        WatchService service = watchService;
+        watchThread = new Thread(() -> processEvents(service, path), "pixoo-playlist-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        stop();
+        preparer.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // Nothing left to watch
+            }
+            watchService = null;
+            watchThread = null;
+        }
+    }
+
+    public Playlist getPlaylist() { return playlist; }
+    public AnimationCache getCache() { return cache; }
+
+    private Preparation prepare(PlaylistItem item) {
+        File file = item.getFile();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        return preparing.compute(file, (key, existing) -> {
+            // A preparation is only reused for the same version of its file, also without a watcher
+            if (existing != null && existing.lastModified == lastModified && existing.length == length) {
+                return existing;
+            }
+            if (existing != null) {
+                existing.result.cancel(false);
+            }
+            return new Preparation(lastModified, length, CompletableFuture.supplyAsync(() -> load(item), preparer));
+        });
+    }
+
+    private EncodedAnimation load(PlaylistItem item) {
+        try {
+            String key = cache.key(item.getFile(), pixoo.getSize(), false);
+            EncodedAnimation animation = cache.get(key);
+            if (animation != null) {
+                return animation;
+            }
+
+            List<String> payloads = new ArrayList<>();
+            try (FrameSource frames = FrameSource.open(item.getFile(), pixoo.getSize())) {
+                AnimationFrame frame;
+                while ((frame = frames.next()) != null) {
+                    payloads.add(Base64.getEncoder().encodeToString(frame.getRgb()));
+                }
+            }
+            if (payloads.isEmpty()) {
+                throw new IOException("No frames found in " + item.getFile());
+            }
+            return cache.put(key, payloads);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private void processEvents(WatchService service, Path directory) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                    Path name = (Path) event.context();
+                    if (!Playlist.isSupported(name.toString())) continue;
+
+                    File file = directory.resolve(name).toFile();
+                    // A changed file gets a new cache key when it is prepared again
+                    preparing.remove(file);
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        playlist.remove(file);
+                    } else if (playlist.find(file) == null) {
+                        playlist.add(new PlaylistItem(file));
+                    }
+                    if (pixoo.isDebug()) log.debug("Playlist {}: {}", event.kind().name(), name);
+                }
+                if (!key.reset()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped watching
+        }
+    }
+
+    /**
+     * An item being prepared, with the modified time and size of its file when preparation started.
+     */
+    private static class Preparation {
+        final long lastModified;
+        final long length;
+        final CompletableFuture<EncodedAnimation> result;
+        // Only accessed by the playing thread
+        boolean reported;
+
+        Preparation(long lastModified, long length, CompletableFuture<EncodedAnimation> result) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.result = result;
+        }
+    }
+}
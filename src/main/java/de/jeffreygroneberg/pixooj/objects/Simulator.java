@@ -0,0 +1,204 @@
+package de.jeffreygroneberg.pixooj.objects;
+
+import de.jeffreygroneberg.pixooj.configurations.SimulatorConfiguration;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Headless display of a simulated Pixoo.
+ * <p>
+ * Every pushed frame is rendered into an offscreen image that is {@code scale} times the
+ * device size, using integer nearest-neighbour scaling on the raw pixel array. With LED
+ * style each device pixel becomes a round dot on a black background. Rendered frames are
+ * passed to listeners and can optionally be written as PNG snapshots. Snapshots are
+ * written on a background thread; if it falls behind, snapshots are dropped instead of
+ * slowing down the caller.
+ */
+public class Simulator implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(Simulator.class);
+    private static final int SNAPSHOT_QUEUE_CAPACITY = 16;
+    private static final int LED_OFF_COLOR = 0x000000;
+    private static final double LED_RADIUS = 0.45;
+
+    /**
+     * Receives every rendered frame.
+     */
+    public interface FrameListener {
+        /**
+         * Called on the pushing thread after a frame was rendered.
+         * The image is reused for the next frame, so copy it if it is kept.
+         * @param frame The rendered frame
+         * @param frameNumber The number of the frame, starting at 1
+         */
+        void onFrame(BufferedImage frame, long frameNumber);
+    }
+
+    private final int size;
+    private final int scale;
+    private final int width;
+    private final boolean[] ledMask;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final File outputDirectory;
+    private final int snapshotInterval;
+    private final ThreadPoolExecutor snapshotWriter;
+    private final List<FrameListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedSnapshots = new AtomicLong();
+
+    private long frameCount;
+
+    /**
+     * Creates a simulator display.
+     * @param size The device size in pixels
+     * @param config The simulator configuration, or null for the defaults
+     */
+    public Simulator(int size, SimulatorConfiguration config) {
+        if (config == null) {
+            config = new SimulatorConfiguration();
+        }
+        this.size = size;
+        this.scale = Math.max(1, config.getScale());
+        this.width = size * scale;
+        this.ledMask = config.isLedStyle() ? createLedMask(scale) : null;
+        this.image = new BufferedImage(width, width, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.outputDirectory = config.getOutputDirectory();
+        this.snapshotInterval = Math.max(1, config.getSnapshotInterval());
+
+        if (outputDirectory != null) {
+            this.snapshotWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(SNAPSHOT_QUEUE_CAPACITY),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "pixoo-simulator-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (runnable, executor) -> droppedSnapshots.incrementAndGet());
+        } else {
+            this.snapshotWriter = null;
+        }
+    }
+
+    /**
+     * Renders a frame and passes it to the listeners.
+     * @param rgb RGB bytes in row-major order, size * size * 3 long
+     */
+    public synchronized void render(byte[] rgb) {
+        int p = 0;
+        for (int y = 0; y < size; y++) {
+            int blockStart = y * scale * width;
+            for (int dy = 0; dy < scale; dy++) {
+                int rowStart = blockStart + dy * width;
+                if (dy > 0 && ledMask == null) {
+                    // Square pixels repeat the first row of the block
+                    System.arraycopy(pixels, blockStart, pixels, rowStart, width);
+                    continue;
+                }
+                int k = p;
+                int i = rowStart;
+                for (int x = 0; x < size; x++, k += 3) {
+                    int color = (rgb[k] & 0xFF) << 16 | (rgb[k + 1] & 0xFF) << 8 | (rgb[k + 2] & 0xFF);
+                    if (ledMask == null) {
+                        for (int dx = 0; dx < scale; dx++) {
+                            pixels[i++] = color;
+                        }
+                    } else {
+                        int m = dy * scale;
+                        for (int dx = 0; dx < scale; dx++) {
+                            pixels[i++] = ledMask[m++] ? color : LED_OFF_COLOR;
+                        }
+                    }
+                }
+            }
+            p += size * 3;
+        }
+
+        frameCount++;
+        for (FrameListener listener : listeners) {
+            listener.onFrame(image, frameCount);
+        }
+        if (snapshotWriter != null && frameCount % snapshotInterval == 0) {
+            writeSnapshot(copy(), frameCount);
+        }
+    }
+
+    /**
+     * Returns a copy of the last rendered frame.
+     * @return The frame, black before the first one was rendered
+     */
+    public synchronized BufferedImage getLastFrame() {
+        return copy();
+    }
+
+    public synchronized long getFrameCount() { return frameCount; }
+    public long getDroppedSnapshots() { return droppedSnapshots.get(); }
+    public int getScale() { return scale; }
+
+    public void addFrameListener(FrameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeFrameListener(FrameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Writes the snapshots still queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (snapshotWriter == null) return;
+        snapshotWriter.shutdown();
+        try {
+            snapshotWriter.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BufferedImage copy() {
+        BufferedImage copy = new BufferedImage(width, width, BufferedImage.TYPE_INT_RGB);
+        int[] target = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+        System.arraycopy(pixels, 0, target, 0, pixels.length);
+        return copy;
+    }
+
+    private void writeSnapshot(BufferedImage frame, long number) {
+        snapshotWriter.execute(() -> {
+            File file = new File(outputDirectory, String.format("frame-%06d.png", number));
+            try {
+                outputDirectory.mkdirs();
+                ImageIO.write(frame, "png", file);
+            } catch (IOException e) {
+                log.warn("Error writing simulator snapshot {}: {}", file, e.getMessage());
+            }
+        });
+    }
+
+    private static boolean[] createLedMask(int scale) {
+        boolean[] mask = new boolean[scale * scale];
+        double center = scale / 2.0;
+        double radius = Math.max(0.5, scale * LED_RADIUS);
+        for (int dy = 0; dy < scale; dy++) {
+            for (int dx = 0; dx < scale; dx++) {
+                double ox = dx + 0.5 - center;
+                double oy = dy + 0.5 - center;
+                mask[dy * scale + dx] = ox * ox + oy * oy <= radius * radius;
+            }
+        }
+        return mask;
+    }
+}
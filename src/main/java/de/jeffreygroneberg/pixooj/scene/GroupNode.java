@@ -0,0 +1,101 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node holding other nodes. Children are positioned relative to the group and painted in
+ * the order they were added, so later children are drawn on top. Moving or hiding a group
+ * moves or hides all of its children.
+ */
+public class GroupNode extends Node {
+    // Set on the root group of a scene
+    Scene scene;
+
+    private final List<Node> children = new ArrayList<>();
+
+    public GroupNode() {
+    }
+
+    public GroupNode(int x, int y) {
+        super(x, y);
+    }
+
+    /**
+     * Adds a node on top of the other children.
+     * @param child The node, which must not belong to another group
+     * @return The node, for chaining
+     */
+    public <T extends Node> T add(T child) {
+        if (child.parent != null) {
+            throw new IllegalArgumentException("Node already belongs to a group");
+        }
+        if (child == this || (child instanceof GroupNode group && group.contains(this))) {
+            throw new IllegalArgumentException("A group cannot contain itself");
+        }
+        child.parent = this;
+        children.add(child);
+        child.invalidate();
+        return child;
+    }
+
+    /**
+     * Removes a child.
+     * @param child The node
+     * @return Whether the node was a child of this group
+     */
+    public boolean remove(Node child) {
+        if (child.parent != this) return false;
+        // The scene still has to clear the area the node was drawn in
+        child.invalidate();
+        children.remove(child);
+        child.parent = null;
+        return true;
+    }
+
+    /**
+     * Removes all children.
+     */
+    public void clear() {
+        for (Node child : new ArrayList<>(children)) {
+            remove(child);
+        }
+    }
+
+    public List<Node> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /** The width of the area from the group's origin to the right edge of its rightmost child. */
+    @Override
+    public int getWidth() {
+        int width = 0;
+        for (Node child : children) {
+            width = Math.max(width, child.getX() + child.getWidth());
+        }
+        return width;
+    }
+
+    /** The height of the area from the group's origin to the bottom edge of its lowest child. */
+    @Override
+    public int getHeight() {
+        int height = 0;
+        for (Node child : children) {
+            height = Math.max(height, child.getY() + child.getHeight());
+        }
+        return height;
+    }
+
+    @Override
+    protected void paint(Surface surface, int originX, int originY) {
+        // Children are painted by the scene, which skips those outside of the repainted region
+    }
+
+    private boolean contains(Node node) {
+        for (Node parent = node.parent; parent != null; parent = parent.parent) {
+            if (parent == this) return true;
+        }
+        return false;
+    }
+}
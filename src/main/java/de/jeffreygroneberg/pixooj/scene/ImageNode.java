@@ -0,0 +1,32 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An image drawn at its own size. Transparent pixels show the nodes below. Call
+ * {@link #invalidate()} after drawing into the image.
+ */
+public class ImageNode extends Node {
+    private BufferedImage image;
+
+    public ImageNode(int x, int y, BufferedImage image) {
+        super(x, y);
+        this.image = image;
+    }
+
+    @Override public int getWidth() { return image.getWidth(); }
+    @Override public int getHeight() { return image.getHeight(); }
+
+    public BufferedImage getImage() { return image; }
+
+    public void setImage(BufferedImage image) {
+        if (image == this.image) return;
+        invalidate();
+        this.image = image;
+    }
+
+    @Override
+    protected void paint(Surface surface, int originX, int originY) {
+        surface.drawImage(image, originX, originY);
+    }
+}
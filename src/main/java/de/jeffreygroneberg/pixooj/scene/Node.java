@@ -0,0 +1,112 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import java.awt.Rectangle;
+
+/**
+ * An element of a {@link Scene}, positioned relative to its parent group.
+ * <p>
+ * Setters only mark the node as changed; the scene repaints the areas the node covered at
+ * the last render and covers now on the next {@link Scene#render()}. Custom nodes implement
+ * {@link #paint(Surface, int, int)} and call {@link #invalidate()} when their content changes.
+ */
+public abstract class Node {
+    GroupNode parent;
+    // Scene coordinates at the last render, null if the node was not drawn
+    Rectangle renderedBounds;
+
+    private int x;
+    private int y;
+    private boolean visible = true;
+
+    protected Node() {
+    }
+
+    /**
+     * Creates a node at a position relative to its future parent.
+     */
+    protected Node(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+
+    /**
+     * Moves the node relative to its parent.
+     */
+    public void setPosition(int x, int y) {
+        if (x == this.x && y == this.y) return;
+        invalidate();
+        this.x = x;
+        this.y = y;
+    }
+
+    public boolean isVisible() { return visible; }
+
+    public void setVisible(boolean visible) {
+        if (visible == this.visible) return;
+        invalidate();
+        this.visible = visible;
+    }
+
+    public GroupNode getParent() { return parent; }
+
+    /** The width of the node's content. */
+    public abstract int getWidth();
+
+    /** The height of the node's content. */
+    public abstract int getHeight();
+
+    /**
+     * Paints the node. The surface is clipped to the region being repainted.
+     * @param surface The surface to paint on
+     * @param originX The column of the node's left edge in scene coordinates
+     * @param originY The row of the node's top edge in scene coordinates
+     */
+    protected abstract void paint(Surface surface, int originX, int originY);
+
+    /**
+     * Marks the node as changed, so it is repainted on the next render. Call this before
+     * changing anything that affects how the node is painted.
+     */
+    public void invalidate() {
+        Scene scene = getScene();
+        if (scene != null) {
+            scene.invalidate(this);
+        }
+    }
+
+    /**
+     * Returns the scene the node belongs to.
+     * @return The scene or null if the node is not part of one
+     */
+    public Scene getScene() {
+        Node node = this;
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return node instanceof GroupNode group ? group.scene : null;
+    }
+
+    int getSceneX() {
+        return parent == null ? x : parent.getSceneX() + x;
+    }
+
+    int getSceneY() {
+        return parent == null ? y : parent.getSceneY() + y;
+    }
+
+    boolean isShown() {
+        return visible && (parent == null || parent.isShown());
+    }
+
+    /**
+     * Returns the area the node covers now.
+     * @return The bounds in scene coordinates, or null if the node is hidden or empty
+     */
+    Rectangle getSceneBounds() {
+        if (!isShown() || getWidth() <= 0 || getHeight() <= 0) return null;
+        return new Rectangle(getSceneX(), getSceneY(), getWidth(), getHeight());
+    }
+}
@@ -0,0 +1,42 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import de.jeffreygroneberg.pixooj.constants.Palette;
+
+/**
+ * A filled rectangle.
+ */
+public class RectNode extends Node {
+    private int width;
+    private int height;
+    private Palette.Color color;
+
+    public RectNode(int x, int y, int width, int height, Palette.Color color) {
+        super(x, y);
+        this.width = width;
+        this.height = height;
+        this.color = color;
+    }
+
+    @Override public int getWidth() { return width; }
+    @Override public int getHeight() { return height; }
+
+    public void setSize(int width, int height) {
+        if (width == this.width && height == this.height) return;
+        invalidate();
+        this.width = width;
+        this.height = height;
+    }
+
+    public Palette.Color getColor() { return color; }
+
+    public void setColor(Palette.Color color) {
+        if (color.equals(this.color)) return;
+        invalidate();
+        this.color = color;
+    }
+
+    @Override
+    protected void paint(Surface surface, int originX, int originY) {
+        surface.fillRectangle(originX, originY, width, height, color.toInt());
+    }
+}
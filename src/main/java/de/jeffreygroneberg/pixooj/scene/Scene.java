@@ -0,0 +1,220 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import de.jeffreygroneberg.pixooj.constants.Palette;
+import de.jeffreygroneberg.pixooj.objects.FrameBuffer;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A retained-mode scene drawn into the frame of a {@link Pixoo}.
+ * <p>
+ * Nodes are added to the {@link #getRoot() root group} and changed through their setters.
+ * {@link #render()} repaints only the regions covered by changed nodes before and after the
+ * change: each region is cleared to the background and every node overlapping it is painted
+ * again, clipped to the region. A dashboard where a few values change per update therefore
+ * repaints a small part of the frame, and {@link #push()} skips the push entirely when
+ * nothing changed. The device always receives whole frames.
+ * <p>
+ * The scene assumes it owns the frame; call {@link #invalidateAll()} after drawing into it
+ * directly. A scene is not thread-safe, so change and render it from one thread.
+ */
+public class Scene {
+    /** Above this many separate regions, the whole frame is repainted. */
+    public static final int MAX_REGIONS = 16;
+
+    private final Pixoo pixoo;
+    private final GroupNode root = new GroupNode();
+    private final Surface surface;
+    private final Rectangle screen;
+
+    private final Set<Node> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Rectangle> damage = new ArrayList<>();
+    private Palette.Color background = Palette.BLACK;
+    private boolean pushed;
+
+    /**
+     * Creates a scene drawing into the frame of a device.
+     * @param pixoo The device
+     */
+    public Scene(Pixoo pixoo) {
+        this(pixoo.getFrameBuffer(), pixoo);
+    }
+
+    /**
+     * Creates a scene drawing into a frame, e.g. for rendering without a device.
+     * @param frame The frame
+     */
+    public Scene(FrameBuffer frame) {
+        this(frame, null);
+    }
+
+    private Scene(FrameBuffer frame, Pixoo pixoo) {
+        this.pixoo = pixoo;
+        this.surface = new Surface(frame);
+        this.screen = new Rectangle(0, 0, frame.getSize(), frame.getSize());
+        root.scene = this;
+        // The first render paints the whole frame
+        damage.add(new Rectangle(screen));
+    }
+
+    public GroupNode getRoot() { return root; }
+
+    public Palette.Color getBackground() { return background; }
+
+    public void setBackground(Palette.Color background) {
+        if (background.equals(this.background)) return;
+        this.background = background;
+        invalidateAll();
+    }
+
+    /**
+     * Repaints the whole frame on the next render.
+     */
+    public void invalidateAll() {
+        damage.add(new Rectangle(screen));
+    }
+
+    /** The number of pixels painted by all renders so far, including clearing the background. */
+    public long getPixelsPainted() {
+        return surface.getPixelsPainted();
+    }
+
+    /**
+     * Repaints the regions changed since the last render.
+     * @return The repainted regions, empty if nothing changed
+     */
+    public List<Rectangle> render() {
+        for (Node node : changed) {
+            // Nodes removed since they changed only leave the area they were drawn in
+            if (node.getScene() == this) {
+                addCurrentBounds(node);
+            }
+        }
+        List<Rectangle> regions = merge(damage);
+        damage.clear();
+
+        int background = this.background.toInt();
+        for (Rectangle region : regions) {
+            surface.setClip(region);
+            surface.fillRectangle(region.x, region.y, region.width, region.height, background);
+            paint(root, 0, 0, region);
+        }
+        surface.setClip(screen);
+
+        for (Node node : changed) {
+            updateRenderedBounds(node);
+        }
+        changed.clear();
+        return regions;
+    }
+
+    /**
+     * Renders the changes and pushes the frame to the device. Nothing is pushed if nothing
+     * changed since the last push.
+     * @return Whether a frame was pushed
+     */
+    public boolean push() {
+        if (pixoo == null) {
+            throw new IllegalStateException("Scene was created without a device");
+        }
+        if (render().isEmpty() && pushed) {
+            return false;
+        }
+        pixoo.push();
+        pushed = true;
+        return true;
+    }
+
+    void invalidate(Node node) {
+        if (changed.add(node)) {
+            // The area drawn at the last render is known now, before the node changes
+            addRenderedBounds(node);
+        }
+    }
+
+    private void addRenderedBounds(Node node) {
+        if (node.renderedBounds != null) {
+            damage.add(node.renderedBounds);
+        }
+        if (node instanceof GroupNode group) {
+            for (Node child : group.getChildren()) {
+                addRenderedBounds(child);
+            }
+        }
+    }
+
+    private void addCurrentBounds(Node node) {
+        if (node instanceof GroupNode group) {
+            for (Node child : group.getChildren()) {
+                addCurrentBounds(child);
+            }
+        } else {
+            Rectangle bounds = node.getSceneBounds();
+            if (bounds != null) {
+                damage.add(bounds);
+            }
+        }
+    }
+
+    private void updateRenderedBounds(Node node) {
+        node.renderedBounds = node.getScene() == this && !(node instanceof GroupNode) ? node.getSceneBounds() : null;
+        if (node instanceof GroupNode group) {
+            for (Node child : group.getChildren()) {
+                updateRenderedBounds(child);
+            }
+        }
+    }
+
+    private void paint(Node node, int parentX, int parentY, Rectangle region) {
+        if (!node.isVisible()) return;
+        int x = parentX + node.getX();
+        int y = parentY + node.getY();
+        if (node instanceof GroupNode group) {
+            for (Node child : group.getChildren()) {
+                paint(child, x, y, region);
+            }
+        } else if (region.intersects(x, y, node.getWidth(), node.getHeight())) {
+            node.paint(surface, x, y);
+        }
+    }
+
+    /**
+     * Clips the regions to the frame and joins overlapping ones, so no pixel is painted twice.
+     */
+    private List<Rectangle> merge(List<Rectangle> regions) {
+        List<Rectangle> merged = new ArrayList<>();
+        for (Rectangle region : regions) {
+            Rectangle clipped = region.intersection(screen);
+            if (clipped.isEmpty()) continue;
+            // Joining two regions can make the result overlap a region checked before
+            boolean joined = true;
+            while (joined) {
+                joined = false;
+                for (int i = 0; i < merged.size(); i++) {
+                    if (merged.get(i).intersects(clipped)) {
+                        clipped = clipped.union(merged.remove(i));
+                        joined = true;
+                        break;
+                    }
+                }
+            }
+            merged.add(clipped);
+        }
+
+        long area = 0;
+        for (Rectangle region : merged) {
+            area += (long) region.width * region.height;
+        }
+        // Many small regions cost more than one pass over the frame
+        if (merged.size() > MAX_REGIONS || area * 2 > (long) screen.width * screen.height) {
+            return merged.isEmpty() ? merged : List.of(new Rectangle(screen));
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,64 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * One frame of a sprite sheet. The frames are laid out in rows from left to right, starting
+ * at the top left corner of the sheet. Transparent pixels show the nodes below.
+ */
+public class SpriteNode extends Node {
+    private final BufferedImage sheet;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int columns;
+    private final int frameCount;
+    private int frame;
+
+    /**
+     * Creates a sprite showing its first frame.
+     * @param sheet The sprite sheet
+     * @param frameWidth The width of a frame
+     * @param frameHeight The height of a frame
+     */
+    public SpriteNode(int x, int y, BufferedImage sheet, int frameWidth, int frameHeight) {
+        super(x, y);
+        if (frameWidth <= 0 || frameHeight <= 0 || frameWidth > sheet.getWidth() || frameHeight > sheet.getHeight()) {
+            throw new IllegalArgumentException("Frame size " + frameWidth + "x" + frameHeight
+                    + " does not fit the sheet of " + sheet.getWidth() + "x" + sheet.getHeight());
+        }
+        this.sheet = sheet;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.columns = sheet.getWidth() / frameWidth;
+        this.frameCount = columns * (sheet.getHeight() / frameHeight);
+    }
+
+    @Override public int getWidth() { return frameWidth; }
+    @Override public int getHeight() { return frameHeight; }
+
+    public int getFrame() { return frame; }
+    public int getFrameCount() { return frameCount; }
+
+    public void setFrame(int frame) {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + frameCount);
+        }
+        if (frame == this.frame) return;
+        invalidate();
+        this.frame = frame;
+    }
+
+    /**
+     * Shows the next frame, starting over after the last one.
+     */
+    public void nextFrame() {
+        setFrame((frame + 1) % frameCount);
+    }
+
+    @Override
+    protected void paint(Surface surface, int originX, int originY) {
+        int sheetX = frame % columns * frameWidth;
+        int sheetY = frame / columns * frameHeight;
+        surface.drawImage(sheet.getSubimage(sheetX, sheetY, frameWidth, frameHeight), originX, originY);
+    }
+}
@@ -0,0 +1,84 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import de.jeffreygroneberg.pixooj.objects.FrameBuffer;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * The frame as seen by {@link Node#paint(Surface, int, int)}, clipped to the region that is
+ * being repainted. Colors are {@code 0xRRGGBB} values.
+ */
+public class Surface {
+    private final FrameBuffer frame;
+    private Rectangle clip;
+    private long pixelsPainted;
+
+    Surface(FrameBuffer frame) {
+        this.frame = frame;
+        this.clip = new Rectangle(0, 0, frame.getSize(), frame.getSize());
+    }
+
+    void setClip(Rectangle clip) {
+        this.clip = clip;
+    }
+
+    /** The region being repainted, in scene coordinates. */
+    public Rectangle getClip() {
+        return new Rectangle(clip);
+    }
+
+    /** The number of pixels written since the surface was created. */
+    long getPixelsPainted() {
+        return pixelsPainted;
+    }
+
+    public void setPixel(int x, int y, int rgb) {
+        if (!clip.contains(x, y)) return;
+        frame.setPixel(x, y, rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF);
+        pixelsPainted++;
+    }
+
+    public void fillRectangle(int x, int y, int width, int height, int rgb) {
+        Rectangle area = clip.intersection(new Rectangle(x, y, width, height));
+        if (area.isEmpty()) return;
+        frame.fillRectangle(area.x, area.y, area.width, area.height, rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF);
+        pixelsPainted += (long) area.width * area.height;
+    }
+
+    /**
+     * Draws an image. Images with an alpha channel are blended onto the frame, so transparent
+     * pixels keep what is painted below them.
+     */
+    public void drawImage(BufferedImage image, int x, int y) {
+        Rectangle area = clip.intersection(new Rectangle(x, y, image.getWidth(), image.getHeight()));
+        if (area.isEmpty()) return;
+        pixelsPainted += (long) area.width * area.height;
+
+        if (!image.getColorModel().hasAlpha()) {
+            frame.drawImage(image.getSubimage(area.x - x, area.y - y, area.width, area.height), area.x, area.y);
+            return;
+        }
+        int[] argb = image.getRGB(area.x - x, area.y - y, area.width, area.height, null, 0, area.width);
+        for (int row = 0; row < area.height; row++) {
+            for (int column = 0; column < area.width; column++) {
+                int color = argb[row * area.width + column];
+                int alpha = color >>> 24;
+                if (alpha == 0) continue;
+                int px = area.x + column;
+                int py = area.y + row;
+                if (alpha < 255) {
+                    color = blend(frame.getPixel(px, py), color, alpha);
+                }
+                frame.setPixel(px, py, color >> 16 & 0xFF, color >> 8 & 0xFF, color & 0xFF);
+            }
+        }
+    }
+
+    private static int blend(int below, int above, int alpha) {
+        int r = ((above >> 16 & 0xFF) * alpha + (below >> 16 & 0xFF) * (255 - alpha)) / 255;
+        int g = ((above >> 8 & 0xFF) * alpha + (below >> 8 & 0xFF) * (255 - alpha)) / 255;
+        int b = ((above & 0xFF) * alpha + (below & 0xFF) * (255 - alpha)) / 255;
+        return r << 16 | g << 8 | b;
+    }
+}
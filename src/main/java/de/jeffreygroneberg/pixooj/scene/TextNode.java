@@ -0,0 +1,63 @@
+package de.jeffreygroneberg.pixooj.scene;
+
+import de.jeffreygroneberg.pixooj.constants.Font;
+import de.jeffreygroneberg.pixooj.constants.Palette;
+
+/**
+ * A line of text in the 3x5 pixel font used by {@code Pixoo.drawText}. Setting the text it
+ * already shows does not repaint anything, so values can be set on every update.
+ */
+public class TextNode extends Node {
+    private static final int GLYPH_WIDTH = 3;
+    private static final int GLYPH_HEIGHT = 5;
+    private static final int ADVANCE = 4;
+
+    private String text;
+    private Palette.Color color;
+
+    public TextNode(int x, int y, String text, Palette.Color color) {
+        super(x, y);
+        this.text = text;
+        this.color = color;
+    }
+
+    @Override
+    public int getWidth() {
+        return text.isEmpty() ? 0 : text.length() * ADVANCE - (ADVANCE - GLYPH_WIDTH);
+    }
+
+    @Override
+    public int getHeight() {
+        return text.isEmpty() ? 0 : GLYPH_HEIGHT;
+    }
+
+    public String getText() { return text; }
+
+    public void setText(String text) {
+        if (text.equals(this.text)) return;
+        invalidate();
+        this.text = text;
+    }
+
+    public Palette.Color getColor() { return color; }
+
+    public void setColor(Palette.Color color) {
+        if (color.equals(this.color)) return;
+        invalidate();
+        this.color = color;
+    }
+
+    @Override
+    protected void paint(Surface surface, int originX, int originY) {
+        int rgb = color.toInt();
+        for (int i = 0; i < text.length(); i++) {
+            int[] glyph = Font.retrieveGlyph(text.charAt(i));
+            if (glyph == null) continue;
+            for (int index = 0; index < glyph.length; index++) {
+                if (glyph[index] == 1) {
+                    surface.setPixel(originX + i * ADVANCE + index % GLYPH_WIDTH, originY + index / GLYPH_WIDTH, rgb);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package de.jeffreygroneberg.pixooj.utilities;
+
+import de.jeffreygroneberg.pixooj.events.ImageDecodeEvent;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Decodes images close to the size they will be displayed at.
+ * <p>
+ * Large sources are decoded with {@link ImageReadParam#setSourceSubsampling source subsampling},
+ * so only every n-th pixel and row ends up in memory. The result stays at least
+ * {@link #OVERSAMPLING} times larger than the target, so the final scale still has
+ * enough pixels to filter. Image readers are pooled and reused between decodes.
+ */
+public class ImageDecoder {
+    public static final int OVERSAMPLING = 2;
+    private static final int MAX_POOLED_READERS = 4;
+
+    private static final Map<ImageReaderSpi, Queue<ImageReader>> POOL = new ConcurrentHashMap<>();
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Reads an image, subsampled for the given target size.
+     * @param file The image file
+     * @param targetWidth The width the image will be scaled to
+     * @param targetHeight The height the image will be scaled to
+     * @return The decoded image, or null if no reader supports the file (like {@link ImageIO#read(File)})
+     * @throws IOException If the image cannot be read
+     */
+    public static BufferedImage read(File file, int targetWidth, int targetHeight) throws IOException {
+        ImageDecodeEvent event = new ImageDecodeEvent();
+        event.begin();
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open image file: " + file);
+            }
+            ImageReader reader = acquire(input);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                // Metadata is not needed for still images, so the reader may skip it
+                reader.setInput(input, true, true);
+                int step = subsampling(reader.getWidth(0), reader.getHeight(0), targetWidth, targetHeight);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+
+                event.end();
+                if (event.shouldCommit()) {
+                    event.file = file.getPath();
+                    event.sourceWidth = reader.getWidth(0);
+                    event.sourceHeight = reader.getHeight(0);
+                    event.subsampling = step;
+                    event.commit();
+                }
+                return image;
+            } finally {
+                release(reader);
+            }
+        }
+    }
+
+    /**
+     * Returns the subsampling step for decoding a source close to a target size.
+     * @param sourceWidth The width of the source image
+     * @param sourceHeight The height of the source image
+     * @param targetWidth The width the image will be scaled to
+     * @param targetHeight The height the image will be scaled to
+     * @return The step, 1 if the source should be decoded in full
+     */
+    public static int subsampling(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) return 1;
+        int step = Math.min(sourceWidth / (targetWidth * OVERSAMPLING), sourceHeight / (targetHeight * OVERSAMPLING));
+        return Math.max(1, step);
+    }
+
+    /**
+     * Returns a reader for the format of a stream, reusing a pooled reader if one is available.
+     * The stream position is not changed. Return the reader with {@link #release(ImageReader)}.
+     * @param input The image stream
+     * @return A reader without input, or null if no reader supports the stream
+     * @throws IOException If the stream cannot be read
+     */
+    public static ImageReader acquire(ImageInputStream input) throws IOException {
+        // Asking the providers directly avoids creating a reader for every registered format
+        Iterator<ImageReaderSpi> providers = IIORegistry.getDefaultInstance()
+                .getServiceProviders(ImageReaderSpi.class, true);
+        while (providers.hasNext()) {
+            ImageReaderSpi provider = providers.next();
+            if (provider.canDecodeInput(input)) {
+                ImageReader reader = POOL.computeIfAbsent(provider, key -> new ConcurrentLinkedQueue<>()).poll();
+                return reader != null ? reader : provider.createReaderInstance();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a reader to the pool. Its input is cleared; readers beyond the pool size are disposed.
+     * @param reader The reader from {@link #acquire(ImageInputStream)}
+     */
+    public static void release(ImageReader reader) {
+        reader.reset();
+        ImageReaderSpi provider = reader.getOriginatingProvider();
+        Queue<ImageReader> pooled = provider != null ? POOL.get(provider) : null;
+        if (pooled != null && pooled.size() < MAX_POOLED_READERS) {
+            pooled.offer(reader);
+        } else {
+            reader.dispose();
+        }
+    }
+}
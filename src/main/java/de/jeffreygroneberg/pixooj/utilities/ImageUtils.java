@@ -0,0 +1,138 @@
+package de.jeffreygroneberg.pixooj.utilities;
+
+import de.jeffreygroneberg.pixooj.events.ImageScaleEvent;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Utility class for scaling images and converting them into device-ready pixel data.
+ */
+public class ImageUtils {
+
+    /**
+     * Scales an image to the target dimensions using Graphics2D for better quality.
+     *
+     * @param originalImage The image to scale.
+     * @param targetWidth The target width.
+     * @param targetHeight The target height.
+     * @param highQuality If true, uses bicubic interpolation for scaling. Otherwise, uses bilinear.
+     * @return The scaled image.
+     */
+    public static BufferedImage scaleImage(BufferedImage originalImage, int targetWidth, int targetHeight, boolean highQuality) {
+        // Custom image types cannot be instantiated directly
+        int type = originalImage.getType() == BufferedImage.TYPE_CUSTOM
+                ? BufferedImage.TYPE_INT_ARGB
+                : originalImage.getType();
+        return scaleImage(originalImage, targetWidth, targetHeight, highQuality, type);
+    }
+
+    /**
+     * Scales an image into a new image of the given type.
+     * Use this for palette images, which would otherwise be quantized back to their palette.
+     *
+     * @param originalImage The image to scale.
+     * @param targetWidth The target width.
+     * @param targetHeight The target height.
+     * @param highQuality If true, uses bicubic interpolation for scaling. Otherwise, uses bilinear.
+     * @param imageType The BufferedImage type of the result.
+     * @return The scaled image.
+     */
+    public static BufferedImage scaleImage(BufferedImage originalImage, int targetWidth, int targetHeight,
+                                           boolean highQuality, int imageType) {
+        ImageScaleEvent event = new ImageScaleEvent();
+        event.begin();
+        BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, imageType);
+        Graphics2D g2d = scaledImage.createGraphics();
+        setScalingHints(g2d, highQuality);
+
+        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
+        g2d.dispose();
+
+        commit(event, originalImage, targetWidth, targetHeight, highQuality);
+        return scaledImage;
+    }
+
+    /**
+     * Scales an image to the size of a target image, but only updates one region of the target.
+     * The region gets the same pixels it would get if the whole image was scaled.
+     *
+     * @param originalImage The image to scale.
+     * @param target The image to draw into.
+     * @param region The region of the target to update.
+     * @param highQuality If true, uses bicubic interpolation for scaling. Otherwise, uses bilinear.
+     */
+    public static void scaleRegion(BufferedImage originalImage, BufferedImage target, Rectangle region, boolean highQuality) {
+        ImageScaleEvent event = new ImageScaleEvent();
+        event.begin();
+        Graphics2D g2d = target.createGraphics();
+        setScalingHints(g2d, highQuality);
+        g2d.setClip(region);
+
+        g2d.drawImage(originalImage, 0, 0, target.getWidth(), target.getHeight(), null);
+        g2d.dispose();
+
+        commit(event, originalImage, region.width, region.height, highQuality);
+    }
+
+    private static void setScalingHints(Graphics2D g2d, boolean highQuality) {
+        if (highQuality) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        } else {
+            // Default or less intensive, e.g., bilinear
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+    }
+
+    private static void commit(ImageScaleEvent event, BufferedImage originalImage, int targetWidth, int targetHeight,
+                               boolean highQuality) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.sourceWidth = originalImage.getWidth();
+            event.sourceHeight = originalImage.getHeight();
+            event.targetWidth = targetWidth;
+            event.targetHeight = targetHeight;
+            event.highQuality = highQuality;
+            event.commit();
+        }
+    }
+
+    /**
+     * Converts a BufferedImage to a raw RGB byte array.
+     * @param image The BufferedImage to convert.
+     * @return A byte array containing RGB pixel data.
+     */
+    public static byte[] toRgbBytes(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // Read all pixels at once instead of one getRGB call per pixel
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width); // ARGB format
+        // Each pixel is 3 bytes (R, G, B)
+        byte[] rgbBytes = new byte[pixels.length * 3];
+        int k = 0;
+        for (int pixel : pixels) {
+            rgbBytes[k++] = (byte) ((pixel >> 16) & 0xFF); // Red
+            rgbBytes[k++] = (byte) ((pixel >> 8) & 0xFF);  // Green
+            rgbBytes[k++] = (byte) (pixel & 0xFF);         // Blue
+        }
+        return rgbBytes;
+    }
+
+    /**
+     * Scales an image to a square device size if needed and converts it to RGB bytes.
+     * @param image The image to convert
+     * @param size The device size in pixels
+     * @param highQuality Use bicubic instead of bilinear interpolation when scaling
+     * @return A byte array of size * size * 3 RGB values
+     */
+    public static byte[] toDeviceRgbBytes(BufferedImage image, int size, boolean highQuality) {
+        if (image.getWidth() != size || image.getHeight() != size) {
+            image = scaleImage(image, size, size, highQuality);
+        }
+        return toRgbBytes(image);
+    }
+}
@@ -0,0 +1,98 @@
+package de.jeffreygroneberg.pixooj.utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Log arguments for request and response payloads.
+ * <p>
+ * The returned objects render only when SLF4J formats the message, so they cost nothing
+ * if the level is disabled. Long values such as the Base64 {@code PicData} of a frame are
+ * abbreviated to their start and length.
+ */
+public final class LogUtils {
+    /** String values longer than this are abbreviated. */
+    public static final int MAX_VALUE_LENGTH = 32;
+    /** Rendered payloads longer than this are cut off. */
+    public static final int MAX_PAYLOAD_LENGTH = 512;
+
+    private LogUtils() {
+    }
+
+    /**
+     * Renders a JSON request or response with long string values abbreviated.
+     * @param json The JSON node
+     * @return A log argument
+     */
+    public static Object summarize(JsonNode json) {
+        return lazy(() -> {
+            StringBuilder out = new StringBuilder();
+            append(out, json);
+            return abbreviate(out.toString(), MAX_PAYLOAD_LENGTH);
+        });
+    }
+
+    /**
+     * Renders UTF-8 text, cut off after {@link #MAX_PAYLOAD_LENGTH} characters.
+     * @param utf8 The text bytes
+     * @return A log argument
+     */
+    public static Object abbreviate(byte[] utf8) {
+        return lazy(() -> abbreviate(new String(utf8, 0, Math.min(utf8.length, MAX_PAYLOAD_LENGTH + 1),
+                StandardCharsets.UTF_8), MAX_PAYLOAD_LENGTH, utf8.length));
+    }
+
+    /**
+     * Cuts off text after a maximum length, noting the original length.
+     * @param text The text
+     * @param maxLength The maximum length
+     * @return The text or its abbreviation
+     */
+    public static String abbreviate(String text, int maxLength) {
+        return abbreviate(text, maxLength, text.length());
+    }
+
+    private static String abbreviate(String text, int maxLength, int length) {
+        if (text.length() <= maxLength && length <= maxLength) {
+            return text;
+        }
+        return text.substring(0, Math.min(text.length(), maxLength)) + "...(" + length + " chars)";
+    }
+
+    private static void append(StringBuilder out, JsonNode node) {
+        if (node.isObject()) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                if (!first) out.append(',');
+                first = false;
+                out.append('"').append(field.getKey()).append("\":");
+                append(out, field.getValue());
+            }
+            out.append('}');
+        } else if (node.isArray()) {
+            out.append('[');
+            for (int i = 0; i < node.size(); i++) {
+                if (i > 0) out.append(',');
+                append(out, node.get(i));
+            }
+            out.append(']');
+        } else if (node.isTextual()) {
+            out.append('"').append(abbreviate(node.textValue(), MAX_VALUE_LENGTH)).append('"');
+        } else {
+            out.append(node);
+        }
+    }
+
+    private static Object lazy(Supplier<String> renderer) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return renderer.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package de.jeffreygroneberg.pixooj.utilities;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lightweight reader for Pixoo command responses.
+ * <p>
+ * Most commands only need the {@code error_code} of the response, so instead of
+ * building a full JSON tree the body is scanned with a streaming parser. Only the
+ * top-level fields that were asked for are captured and scanning stops as soon as
+ * all of them have been found.
+ */
+public class ResponseReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String ERROR_CODE = "error_code";
+    private static final int MISSING_ERROR_CODE = -1;
+
+    /**
+     * Reads the error code and the requested top-level fields from a response body.
+     * @param body The raw response body
+     * @param fieldNames Additional top-level fields to capture (scalar values only)
+     * @return The parsed response
+     * @throws IOException If the body is not a JSON object
+     */
+    public static Response read(byte[] body, String... fieldNames) throws IOException {
+        Map<String, String> fields = fieldNames.length == 0
+                ? Collections.emptyMap()
+                : new HashMap<>(fieldNames.length * 2);
+        int errorCode = MISSING_ERROR_CODE;
+        int remaining = fieldNames.length + 1;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Response is not a JSON object");
+            }
+
+            while (remaining > 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if (ERROR_CODE.equals(name)) {
+                    errorCode = parser.getValueAsInt(MISSING_ERROR_CODE);
+                    remaining--;
+                } else if (contains(fieldNames, name)) {
+                    fields.put(name, value.isScalarValue() ? parser.getValueAsString() : null);
+                    remaining--;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return new Response(errorCode, fields, body);
+    }
+
+    private static boolean contains(String[] fieldNames, String name) {
+        for (String fieldName : fieldNames) {
+            if (fieldName.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parsed response with the error code and the captured fields.
+     */
+    public static class Response {
+        private final int errorCode;
+        private final Map<String, String> fields;
+        private final byte[] body;
+
+        public Response(int errorCode, Map<String, String> fields, byte[] body) {
+            this.errorCode = errorCode;
+            this.fields = fields;
+            this.body = body;
+        }
+
+        public int getErrorCode() { return errorCode; }
+
+        public boolean isSuccess() { return errorCode == 0; }
+
+        public byte[] getBody() { return body; }
+
+        public String getString(String name) {
+            return fields.get(name);
+        }
+
+        public int getInt(String name, int defaultValue) {
+            String value = fields.get(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        public long getLong(String name, long defaultValue) {
+            String value = fields.get(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationCache;
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class AnimationCacheTest {
+
+    private static final List<String> PAYLOADS = List.of("AAAA", "QUJD");
+
+    @TempDir
+    Path directory;
+
+    private File file(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    @Test
+    void testKeyDependsOnContentSizeAndScaling() throws IOException {
+        AnimationCache cache = new AnimationCache();
+        File a = file("a.gif", "first");
+        File b = file("b.gif", "first");
+
+        String key = cache.key(a, 64, true);
+        assertEquals(key, cache.key(a, 64, true));
+        // Copies share an entry
+        assertEquals(key, cache.key(b, 64, true));
+        assertNotEquals(key, cache.key(a, 32, true));
+        assertNotEquals(key, cache.key(a, 64, false));
+
+        Files.writeString(a.toPath(), "second, longer");
+        assertNotEquals(key, cache.key(a, 64, true));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesLeaveMemory() throws IOException {
+        AnimationCache cache = new AnimationCache(null, 2);
+        cache.put("a", PAYLOADS);
+        cache.put("b", PAYLOADS);
+        assertNotNull(cache.get("a"));
+        cache.put("c", PAYLOADS);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    void testFilesAreReadBackAfterARestart() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        new AnimationCache(cacheDirectory, 4).put("key", PAYLOADS);
+
+        AnimationCache restarted = new AnimationCache(cacheDirectory, 4);
+        EncodedAnimation animation = restarted.get("key");
+        assertNotNull(animation);
+        assertEquals(2, animation.getFrameCount());
+        assertEquals("QUJD", animation.getPayload(1));
+        assertNull(restarted.get("other"));
+    }
+
+    @Test
+    void testCorruptFilesAreAMissAndOverwritten() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        Files.createDirectories(cacheDirectory);
+
+        ByteBuffer hugeCount = EncodedAnimation.encode(PAYLOADS);
+        hugeCount.putInt(4, Integer.MAX_VALUE);
+        Files.write(cacheDirectory.resolve("huge.pxc"), hugeCount.array());
+        ByteBuffer decreasing = EncodedAnimation.encode(PAYLOADS);
+        decreasing.putInt(8 + 2 * 4, 2);
+        Files.write(cacheDirectory.resolve("decreasing.pxc"), decreasing.array());
+        Files.write(cacheDirectory.resolve("empty.pxc"), new byte[0]);
+
+        AnimationCache cache = new AnimationCache(cacheDirectory, 4);
+        assertNull(cache.get("huge"));
+        assertNull(cache.get("decreasing"));
+        assertNull(cache.get("empty"));
+
+        cache.put("huge", PAYLOADS);
+        cache.clearMemory();
+        assertEquals("AAAA", cache.get("huge").getPayload(0));
+    }
+}
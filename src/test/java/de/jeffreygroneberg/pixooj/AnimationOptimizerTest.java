@@ -0,0 +1,81 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationFrame;
+import de.jeffreygroneberg.pixooj.animations.AnimationOptimizer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class AnimationOptimizerTest {
+
+    private static AnimationFrame frame(int value, int delayMs) {
+        byte[] rgb = new byte[4 * 4 * 3];
+        Arrays.fill(rgb, (byte) value);
+        return new AnimationFrame(rgb, delayMs);
+    }
+
+    @Test
+    void testIdenticalFramesAreMerged() {
+        AnimationOptimizer.Result result = new AnimationOptimizer().optimize(List.of(
+                frame(1, 100), frame(1, 100), frame(2, 100), frame(2, 100)));
+        assertEquals(2, result.getUniqueFrames());
+        assertEquals(2, result.getFrames().size());
+        assertEquals(200, result.getSpeed());
+    }
+
+    @Test
+    void testNearIdenticalFramesAreMergedWithTolerance() {
+        List<AnimationFrame> frames = List.of(frame(10, 100), frame(12, 100), frame(200, 100));
+        assertEquals(3, new AnimationOptimizer().optimize(frames).getUniqueFrames());
+        assertEquals(2, new AnimationOptimizer(3, 0, 0).optimize(frames).getUniqueFrames());
+    }
+
+    @Test
+    void testMergedFramesAreNotResampledByDefault() {
+        AnimationOptimizer.Result result = new AnimationOptimizer().optimize(List.of(
+                frame(1, 100), frame(2, 100), frame(2, 100), frame(2, 100)));
+        assertEquals(2, result.getFrames().size());
+
+        // A short sequence with a long final hold
+        AnimationFrame[] frames = new AnimationFrame[11];
+        for (int i = 0; i < 10; i++) {
+            frames[i] = frame(i, 50);
+        }
+        frames[10] = frame(10, 3000);
+        result = new AnimationOptimizer().optimize(List.of(frames));
+        assertEquals(11, result.getFrames().size());
+        assertEquals(50, result.getSpeed());
+
+        // With room for it, the hold is kept by repeating the last frame
+        result = new AnimationOptimizer(0, 0, 80).optimize(List.of(frames));
+        assertEquals(70, result.getFrames().size());
+        assertEquals(50, result.getSpeed());
+        assertArrayEquals(frames[10].getRgb(), result.getFrames().get(69).getRgb());
+    }
+
+    @Test
+    void testPerFrameDelaysAreResampledOntoFixedSpeed() {
+        AnimationOptimizer.Result result = new AnimationOptimizer(0, 0, 10).optimize(List.of(
+                frame(1, 50), frame(2, 150), frame(3, 50)));
+        assertEquals(50, result.getSpeed());
+        assertEquals(5, result.getFrames().size());
+        assertArrayEquals(frame(2, 0).getRgb(), result.getFrames().get(1).getRgb());
+        assertArrayEquals(frame(2, 0).getRgb(), result.getFrames().get(3).getRgb());
+        assertArrayEquals(frame(3, 0).getRgb(), result.getFrames().get(4).getRgb());
+    }
+
+    @Test
+    void testFrameCountIsCapped() {
+        AnimationFrame[] frames = new AnimationFrame[40];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = frame(i, 50);
+        }
+        AnimationOptimizer.Result result = new AnimationOptimizer(0, 0, 10).optimize(List.of(frames));
+        assertEquals(10, result.getFrames().size());
+        assertEquals(200, result.getSpeed());
+    }
+}
@@ -0,0 +1,106 @@
+package de.jeffreygroneberg.pixooj;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.objects.DeviceState;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DeviceStateTest {
+
+    private static final long TTL_MS = 1000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void testValuesExpireAfterTheTtl() {
+        DeviceState state = new DeviceState(TTL_MS, now::get);
+        state.update(DeviceState.BRIGHTNESS, 50);
+        assertTrue(state.matches(DeviceState.BRIGHTNESS, 50));
+        assertFalse(state.matches(DeviceState.BRIGHTNESS, 51));
+
+        advanceMillis(TTL_MS - 1);
+        assertTrue(state.matches(DeviceState.BRIGHTNESS, 50));
+        advanceMillis(1);
+        assertFalse(state.matches(DeviceState.BRIGHTNESS, 50));
+    }
+
+    @Test
+    void testZeroTtlDisablesTheMirror() {
+        DeviceState state = new DeviceState(0, now::get);
+        state.update(DeviceState.BRIGHTNESS, 50);
+        assertFalse(state.matches(DeviceState.BRIGHTNESS, 50));
+
+        assertThrows(IllegalArgumentException.class, () -> new DeviceState(-1, now::get));
+        assertThrows(IllegalArgumentException.class, () -> state.setTtlMillis(-1));
+    }
+
+    @Test
+    void testConfigurationFollowsSettersUntilItExpires() throws IOException {
+        DeviceState state = new DeviceState(TTL_MS, now::get);
+        state.updateConfiguration(mapper.readTree("{\"Brightness\":20,\"LightSwitch\":1,\"DeviceName\":\"Pixoo\"}"));
+        assertTrue(state.matches(DeviceState.BRIGHTNESS, 20));
+        assertTrue(state.matches(DeviceState.SCREEN_ON, 1));
+
+        state.update(DeviceState.BRIGHTNESS, 30);
+        assertEquals(30, state.getConfiguration().get("Brightness").asInt());
+        assertEquals("Pixoo", state.getConfiguration().get("DeviceName").asText());
+
+        state.forget(DeviceState.SCREEN_ON);
+        assertFalse(state.matches(DeviceState.SCREEN_ON, 1));
+
+        advanceMillis(TTL_MS);
+        assertNull(state.getConfiguration());
+    }
+
+    @Test
+    void testDeviceTimeIsExtrapolated() throws IOException {
+        DeviceState state = new DeviceState(TTL_MS * 10, now::get);
+        state.updateDeviceTime(mapper.readTree("{\"UTCTime\":1000,\"LocalTime\":\"2026-01-01 23:59:59\"}"));
+
+        advanceMillis(2500);
+        JsonNode time = state.getDeviceTime();
+        assertEquals(1002, time.get("UTCTime").asLong());
+        assertEquals("2026-01-02 00:00:01", time.get("LocalTime").asText());
+
+        state.invalidate();
+        assertNull(state.getDeviceTime());
+    }
+
+    @Test
+    void testRedundantSettersAreNotSent() throws IOException {
+        try (PixooEmulator emulator = new PixooEmulator(16).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), 16, false, true, false, null);
+            pixoo.setBrightness(42);
+            pixoo.setBrightness(42);
+            assertEquals(1, emulator.getCommandCount("Channel/SetBrightness"));
+
+            pixoo.setBrightness(42, true);
+            assertEquals(2, emulator.getCommandCount("Channel/SetBrightness"));
+
+            // Drawing switches the channel, so the same channel is sent again after a push
+            pixoo.setChannel(1);
+            pixoo.setChannel(1);
+            pixoo.push();
+            pixoo.setChannel(1);
+            assertEquals(2, emulator.getCommandCount("Channel/SetIndex"));
+
+            pixoo.getDeviceState().setTtlMillis(0);
+            pixoo.setBrightness(42);
+            assertEquals(3, emulator.getCommandCount("Channel/SetBrightness"));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class EncodedAnimationTest {
+
+    private static final List<String> PAYLOADS = List.of("AAAA", "", "QUJDRA==");
+
+    @Test
+    void testPayloadsSurviveTheRoundTrip() throws IOException {
+        ByteBuffer data = EncodedAnimation.encode(PAYLOADS);
+        EncodedAnimation animation = EncodedAnimation.wrap(data);
+
+        assertEquals(3, animation.getFrameCount());
+        for (int i = 0; i < PAYLOADS.size(); i++) {
+            assertEquals(PAYLOADS.get(i), animation.getPayload(i));
+        }
+        assertEquals(8 + 4 * 4 + 12, animation.getByteSize());
+        assertThrows(IndexOutOfBoundsException.class, () -> animation.getPayload(3));
+    }
+
+    @Test
+    void testBufferIsReadFromItsPosition() throws IOException {
+        ByteBuffer data = EncodedAnimation.encode(PAYLOADS);
+        ByteBuffer padded = ByteBuffer.allocate(data.limit() + 5);
+        padded.position(5);
+        padded.put(data);
+        padded.position(5);
+
+        assertEquals("QUJDRA==", EncodedAnimation.wrap(padded).getPayload(2));
+    }
+
+    @Test
+    void testCorruptHeadersAreRejected() {
+        assertCorrupt(ByteBuffer.allocate(4));
+
+        ByteBuffer badMagic = EncodedAnimation.encode(PAYLOADS);
+        badMagic.putInt(0, 0x12345678);
+        assertCorrupt(badMagic);
+
+        // Too large to overflow into a small header length
+        for (int frameCount : new int[] {Integer.MAX_VALUE, Integer.MAX_VALUE / 4, -1, 4}) {
+            ByteBuffer data = EncodedAnimation.encode(PAYLOADS);
+            data.putInt(4, frameCount);
+            assertCorrupt(data);
+        }
+    }
+
+    @Test
+    void testCorruptOffsetsAreRejected() {
+        // Offsets start after magic and frame count
+        ByteBuffer decreasing = EncodedAnimation.encode(PAYLOADS);
+        decreasing.putInt(8 + 4, 6);
+        assertCorrupt(decreasing);
+
+        ByteBuffer negative = EncodedAnimation.encode(PAYLOADS);
+        negative.putInt(8, -4);
+        assertCorrupt(negative);
+
+        ByteBuffer pastEnd = EncodedAnimation.encode(PAYLOADS);
+        pastEnd.putInt(8 + 3 * 4, 13);
+        assertCorrupt(pastEnd);
+
+        ByteBuffer full = EncodedAnimation.encode(PAYLOADS);
+        assertCorrupt(full.slice(0, full.limit() - 1));
+    }
+
+    private static void assertCorrupt(ByteBuffer data) {
+        assertThrows(IOException.class, () -> EncodedAnimation.wrap(data));
+    }
+}
@@ -0,0 +1,163 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.constants.Font;
+import de.jeffreygroneberg.pixooj.constants.Palette;
+import de.jeffreygroneberg.pixooj.objects.FrameBuffer;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class FrameBufferTest {
+
+    private static final int SIZE = 64;
+
+    @Test
+    void testDrawingIsClippedToTheFrame() {
+        FrameBuffer frame = new FrameBuffer(SIZE);
+        frame.fillRectangle(-5, 60, 10, 10, 255, 0, 0);
+        BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 2, 2, new int[] {0xFF112233, 0xFF445566, 0x80778899, 0xFFAABBCC}, 0, 2);
+        frame.drawImage(image, 63, -1);
+        frame.setPixel(64, 0, 1, 1, 1);
+
+        assertEquals(0xFF0000, frame.getPixel(0, 63));
+        assertEquals(0xFF0000, frame.getPixel(4, 60));
+        assertEquals(0x000000, frame.getPixel(5, 60));
+        assertEquals(0x778899, frame.getPixel(63, 0));
+        assertEquals(0x000000, frame.getPixel(63, 1));
+    }
+
+    @Test
+    void testFillCoversEveryPixel() {
+        FrameBuffer frame = new FrameBuffer(16);
+        frame.fill(1, 2, 3);
+        byte[] rgb = frame.snapshot();
+        for (int i = 0; i < rgb.length; i += 3) {
+            assertArrayEquals(new byte[] {1, 2, 3}, new byte[] {rgb[i], rgb[i + 1], rgb[i + 2]}, "Pixel " + i / 3);
+        }
+    }
+
+    @Test
+    void testSnapshotsNeverSeeATornFill() throws InterruptedException {
+        FrameBuffer frame = new FrameBuffer(SIZE);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int seed = t;
+            Thread writer = new Thread(() -> {
+                int value = seed;
+                while (running.get()) {
+                    value = (value + 7) & 0xFF;
+                    frame.fill(value, value, value);
+                    // Pixels in single stripes keep the stripe locks contended
+                    frame.setPixel(value % SIZE, value % SIZE, value, value, value);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+
+        try {
+            for (int n = 0; n < 2000; n++) {
+                byte[] rgb = frame.snapshot();
+                // The bottom left pixel is never set on its own, so it shows the last fill
+                byte fill = rgb[(SIZE - 1) * SIZE * 3];
+                int distinct = 0;
+                for (byte value : rgb) {
+                    if (value != fill) distinct++;
+                }
+                // A snapshot holds one fill plus at most the single pixels drawn since
+                assertTrue(distinct <= 3 * 3 * 3, "Snapshot " + n + " mixes fills");
+            }
+        } finally {
+            running.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+    }
+
+    @Test
+    void testSetPixelsIsClipped() {
+        FrameBuffer frame = new FrameBuffer(16);
+        frame.setPixels(new int[] {0, 15, -1, 16, 3, 9}, new int[] {0, 15, 4, 4, -1, 2}, 5, 10, 20, 30);
+        assertEquals(0x0A141E, frame.getPixel(0, 0));
+        assertEquals(0x0A141E, frame.getPixel(15, 15));
+        // Only the first count pixels are set
+        assertEquals(0, frame.getPixel(9, 2));
+        byte[] rgb = frame.snapshot();
+        int set = 0;
+        for (int i = 0; i < rgb.length; i += 3) {
+            if (rgb[i] != 0) set++;
+        }
+        assertEquals(2, set);
+    }
+
+    @Test
+    void testLinesAndTextAreDrawnAsBefore() {
+        Pixoo pixoo = new Pixoo(null, 16, false, true, true, null);
+        pixoo.drawLine(-3, 2, 20, 9, Palette.WHITE);
+        pixoo.drawText("A1", 1, 11, new Palette.Color(300, 0, 0));
+        FrameBuffer frame = pixoo.getFrameBuffer();
+
+        // The row of the line in every column; the ends outside of the frame are clipped
+        int[] rows = {3, 3, 4, 4, 4, 4, 5, 5, 5, 6, 6, 6, 7, 7, 7, 7};
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 11; y++) {
+                assertEquals(y == rows[x] ? 0xFFFFFF : 0, frame.getPixel(x, y), "line at " + x + "," + y);
+            }
+        }
+        int[] a = Font.retrieveGlyph('A');
+        int[] one = Font.retrieveGlyph('1');
+        for (int index = 0; index < 15; index++) {
+            int x = index % 3;
+            int y = 11 + index / 3;
+            int expectedA = index < a.length && a[index] == 1 ? 0xFF0000 : 0;
+            int expectedOne = index < one.length && one[index] == 1 ? 0xFF0000 : 0;
+            assertEquals(expectedA, frame.getPixel(1 + x, y), "A at " + index);
+            assertEquals(expectedOne, frame.getPixel(5 + x, y), "1 at " + index);
+        }
+        pixoo.close();
+    }
+
+    @Test
+    void testSnapshotsNeverSeeHalfALine() throws InterruptedException {
+        FrameBuffer frame = new FrameBuffer(SIZE);
+        int[] xs = new int[SIZE];
+        int[] ys = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            xs[i] = i;
+            ys[i] = i;
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            int value = 0;
+            while (running.get()) {
+                value = (value + 1) & 0xFF;
+                // The diagonal crosses every stripe
+                frame.setPixels(xs, ys, SIZE, value, value, value);
+            }
+        });
+        writer.start();
+
+        try {
+            for (int n = 0; n < 2000; n++) {
+                byte[] rgb = frame.snapshot();
+                byte first = rgb[0];
+                for (int i = 1; i < SIZE; i++) {
+                    assertEquals(first, rgb[(i * SIZE + i) * 3], "Snapshot " + n + " has half a line");
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.FrameRecorder;
+import de.jeffreygroneberg.pixooj.animations.FrameRecording;
+import de.jeffreygroneberg.pixooj.animations.GeneratedFrameSource;
+import de.jeffreygroneberg.pixooj.configurations.SimulatorConfiguration;
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.objects.FrameReplayer;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class FrameRecorderTest {
+
+    private static final int SIZE = 16;
+    private static final int FRAME_BYTES = SIZE * SIZE * 3;
+    // Offsets in the file format documented in FrameRecording
+    private static final int HEADER_SIZE = 6;
+    private static final int RECORD_HEADER_SIZE = 19;
+
+    @TempDir
+    Path directory;
+
+    private static byte[] noise(long seed) {
+        byte[] rgb = new byte[FRAME_BYTES];
+        new Random(seed).nextBytes(rgb);
+        return rgb;
+    }
+
+    private static List<FrameRecording.Record> read(Path file) throws IOException {
+        List<FrameRecording.Record> records = new ArrayList<>();
+        Iterator<FrameRecording.Record> iterator = FrameRecording.open(file).records();
+        while (iterator.hasNext()) {
+            records.add(iterator.next());
+        }
+        return records;
+    }
+
+    /** Returns the file offsets of all records. */
+    private static List<Integer> recordPositions(ByteBuffer data) {
+        List<Integer> positions = new ArrayList<>();
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= data.limit()) {
+            positions.add(position);
+            position += RECORD_HEADER_SIZE + data.getInt(position + RECORD_HEADER_SIZE - 4);
+        }
+        return positions;
+    }
+
+    @Test
+    void testPushesAndAnimationFramesRoundTrip() throws IOException {
+        Path file = directory.resolve("round-trip.pxr");
+        byte[] first = noise(1);
+        byte[] second = noise(2);
+        try (FrameRecorder recorder = new FrameRecorder(file, SIZE)) {
+            recorder.recordPush(first);
+            for (int i = 0; i < 3; i++) {
+                recorder.recordAnimationFrame(i, 3, 120, noise(10 + i));
+            }
+            recorder.recordPush(second);
+        }
+
+        FrameRecording recording = FrameRecording.open(file);
+        assertEquals(SIZE, recording.getSize());
+        assertEquals(5, recording.getRecordCount());
+        assertEquals(Files.size(file), recording.getValidLength());
+
+        List<FrameRecording.Record> records = read(file);
+        assertEquals(FrameRecording.PUSH, records.get(0).getType());
+        assertArrayEquals(first, records.get(0).getRgb());
+        for (int i = 0; i < 3; i++) {
+            FrameRecording.Record record = records.get(1 + i);
+            assertEquals(FrameRecording.ANIMATION_FRAME, record.getType());
+            assertEquals(i, record.getIndex());
+            assertEquals(3, record.getFrameCount());
+            assertEquals(120, record.getSpeed());
+            assertArrayEquals(noise(10 + i), record.getRgb());
+        }
+        assertEquals(FrameRecording.PUSH, records.get(4).getType());
+        assertArrayEquals(second, records.get(4).getRgb());
+
+        assertTrue(records.get(0).isSessionStart());
+        for (int i = 1; i < records.size(); i++) {
+            assertFalse(records.get(i).isSessionStart());
+            assertTrue(records.get(i).getTimestampNanos() >= records.get(i - 1).getTimestampNanos());
+        }
+    }
+
+    @Test
+    void testSmallChangesAreRecordedAsDeltas() throws IOException {
+        Path file = directory.resolve("delta.pxr");
+        byte[] key = noise(3);
+        byte[] changed = key.clone();
+        changed[FRAME_BYTES / 2] ^= 0x55;
+
+        try (FrameRecorder recorder = new FrameRecorder(file, SIZE)) {
+            recorder.recordPush(key);
+            recorder.recordPush(changed);
+            // The array may be reused by the caller once the record was queued
+            changed[0] ^= 0x55;
+            recorder.recordPush(changed);
+            recorder.close();
+            assertEquals(3, recorder.getRecords());
+            assertEquals(0, recorder.getDroppedRecords());
+            assertEquals(Files.size(file), recorder.getBytesWritten());
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<Integer> positions = recordPositions(data);
+        int keyBytes = data.getInt(positions.get(0) + RECORD_HEADER_SIZE - 4);
+        int deltaBytes = data.getInt(positions.get(1) + RECORD_HEADER_SIZE - 4);
+        assertTrue(keyBytes > FRAME_BYTES, "key frame has " + keyBytes + " bytes");
+        assertTrue(deltaBytes < 32, "delta frame has " + deltaBytes + " bytes");
+
+        List<FrameRecording.Record> records = read(file);
+        assertArrayEquals(key, records.get(0).getRgb());
+        byte[] expected = key.clone();
+        expected[FRAME_BYTES / 2] ^= 0x55;
+        assertArrayEquals(expected, records.get(1).getRgb());
+        expected[0] ^= 0x55;
+        assertArrayEquals(expected, records.get(2).getRgb());
+    }
+
+    @Test
+    void testTruncatedRecordingIsReopenedForAppend() throws IOException {
+        Path file = directory.resolve("truncated.pxr");
+        try (FrameRecorder recorder = new FrameRecorder(file, SIZE)) {
+            recorder.recordPush(noise(4));
+            recorder.recordPush(noise(5));
+            recorder.recordPush(noise(6));
+        }
+        // A crash in the middle of the last record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 7);
+        }
+        FrameRecording truncated = FrameRecording.open(file);
+        assertEquals(2, truncated.getRecordCount());
+        assertTrue(truncated.getValidLength() < Files.size(file));
+
+        try (FrameRecorder recorder = new FrameRecorder(file, SIZE)) {
+            recorder.recordPush(noise(7));
+            recorder.recordPush(noise(8));
+        }
+        List<FrameRecording.Record> records = read(file);
+        assertEquals(4, records.size());
+        assertEquals(Files.size(file), FrameRecording.open(file).getValidLength());
+        assertArrayEquals(noise(4), records.get(0).getRgb());
+        assertArrayEquals(noise(5), records.get(1).getRgb());
+        // The appended session starts with a key frame
+        assertTrue(records.get(2).isSessionStart());
+        assertArrayEquals(noise(7), records.get(2).getRgb());
+        assertFalse(records.get(3).isSessionStart());
+        assertArrayEquals(noise(8), records.get(3).getRgb());
+
+        assertThrows(IOException.class, () -> new FrameRecorder(file, 32));
+    }
+
+    @Test
+    void testClosedRecorderRejectsRecords() throws IOException {
+        FrameRecorder recorder = new FrameRecorder(directory.resolve("closed.pxr"), SIZE);
+        assertThrows(IllegalArgumentException.class, () -> recorder.recordPush(new byte[3]));
+        recorder.close();
+        assertThrows(IOException.class, () -> recorder.recordPush(noise(9)));
+    }
+
+    @Test
+    void testReplayAsFastAsPossible() throws Exception {
+        Path file = directory.resolve("replay.pxr");
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            try (FrameRecorder recorder = new FrameRecorder(file, SIZE)) {
+                pixoo.setFrameRecorder(recorder);
+                pixoo.fillRgb(255, 0, 0);
+                pixoo.push();
+                pixoo.sendAnimation(new GeneratedFrameSource((index, g2d, size) -> { }, 3, SIZE, 100), 100);
+                pixoo.fillRgb(0, 0, 255);
+                pixoo.push();
+                pixoo.setFrameRecorder(null);
+            }
+            byte[] shown = emulator.getFramebuffer();
+            long frames = emulator.getFramesReceived();
+
+            // Slow down the recorded session, so waiting for it would be noticed
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            List<Integer> positions = recordPositions(data);
+            assertEquals(5, positions.size());
+            int last = positions.get(positions.size() - 1);
+            data.putLong(last + 1, data.getLong(last + 1) + TimeUnit.HOURS.toNanos(1));
+
+            pixoo.fillRgb(0, 0, 0);
+            pixoo.push();
+            FrameReplayer replayer = new FrameReplayer(pixoo, FrameRecording.wrap(ByteBuffer.wrap(bytes)));
+            replayer.setSpeedFactor(0);
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertEquals(5, replayer.replay()));
+
+            assertEquals(5, replayer.getFramesReplayed());
+            assertEquals(1, replayer.getAnimationsReplayed());
+            assertArrayEquals(shown, emulator.getFramebuffer());
+            // One push before the replay, then two pushes and three animation frames again
+            assertEquals(2 * frames + 1, emulator.getFramesReceived());
+        }
+    }
+
+    @Test
+    void testReplayDoesNotWaitBetweenSessions() throws Exception {
+        Path file = directory.resolve("sessions.pxr");
+        for (int session = 0; session < 2; session++) {
+            try (FrameRecorder recorder = new FrameRecorder(file, SIZE)) {
+                recorder.recordPush(noise(20 + session * 2));
+                recorder.recordPush(noise(21 + session * 2));
+            }
+        }
+
+        // 200 ms between the records of a session, an hour between the sessions
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        List<Integer> positions = recordPositions(data);
+        long start = data.getLong(positions.get(0) + 1);
+        long[] offsets = {0, TimeUnit.MILLISECONDS.toNanos(200), TimeUnit.HOURS.toNanos(1),
+                TimeUnit.HOURS.toNanos(1) + TimeUnit.MILLISECONDS.toNanos(200)};
+        for (int i = 0; i < 4; i++) {
+            data.putLong(positions.get(i) + 1, start + offsets[i]);
+        }
+
+        Pixoo pixoo = new Pixoo(null, SIZE, false, true, true, new SimulatorConfiguration(1));
+        FrameReplayer replayer = new FrameReplayer(pixoo, FrameRecording.wrap(ByteBuffer.wrap(bytes)));
+        long begin = System.nanoTime();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertEquals(4, replayer.replay()));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        // The gaps within both sessions were kept
+        assertTrue(elapsedMillis >= 400, "replay took " + elapsedMillis + " ms");
+        assertEquals(4, pixoo.getSimulator().getFrameCount());
+        pixoo.close();
+    }
+}
@@ -0,0 +1,183 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationFrame;
+import de.jeffreygroneberg.pixooj.animations.AnimationOptimizer;
+import de.jeffreygroneberg.pixooj.animations.FrameSource;
+import de.jeffreygroneberg.pixooj.animations.GeneratedFrameSource;
+import de.jeffreygroneberg.pixooj.animations.ImageSequenceSource;
+import de.jeffreygroneberg.pixooj.animations.SpriteSheetSource;
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class FrameSourceTest {
+
+    private static final int SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    private static BufferedImage solid(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    private File png(String name, int rgb) throws IOException {
+        File file = directory.resolve(name).toFile();
+        ImageIO.write(solid(SIZE, SIZE, rgb), "png", file);
+        return file;
+    }
+
+    private static int pixel(AnimationFrame frame, int x, int y) {
+        byte[] rgb = frame.getRgb();
+        int k = (y * SIZE + x) * 3;
+        return (rgb[k] & 0xFF) << 16 | (rgb[k + 1] & 0xFF) << 8 | (rgb[k + 2] & 0xFF);
+    }
+
+    @Test
+    void testImageSequenceIsOrderedByFrameNumber() throws Exception {
+        png("frame_10.png", 0x0000FF);
+        png("frame_2.png", 0x00FF00);
+        png("frame_1.png", 0xFF0000);
+        Files.createFile(directory.resolve("notes.txt"));
+
+        try (ImageSequenceSource source = ImageSequenceSource.fromDirectory(directory.toFile(), SIZE, 50)) {
+            assertEquals(3, source.getFrameCount());
+            for (int rgb : new int[]{0xFF0000, 0x00FF00, 0x0000FF}) {
+                AnimationFrame frame = source.next();
+                assertEquals(SIZE * SIZE * 3, frame.getRgb().length);
+                assertEquals(rgb, pixel(frame, 7, 7));
+                assertEquals(50, frame.getDelayMs());
+            }
+            assertNull(source.next());
+
+            source.rewind();
+            assertEquals(0xFF0000, pixel(source.next(), 0, 0));
+        }
+    }
+
+    @Test
+    void testImageSequenceFailures() throws IOException {
+        File empty = Files.createDirectory(directory.resolve("empty")).toFile();
+        assertThrows(IOException.class, () -> ImageSequenceSource.fromDirectory(empty, SIZE, 50));
+
+        File broken = directory.resolve("broken.png").toFile();
+        Files.write(broken.toPath(), new byte[]{1, 2, 3});
+        try (FrameSource source = new ImageSequenceSource(List.of(broken), SIZE, 50)) {
+            assertThrows(IOException.class, source::next);
+        }
+    }
+
+    @Test
+    void testSpriteSheetIsReadLeftToRightAndTopToBottom() {
+        // Three columns and two rows of 8x8 frames, the last one unused
+        int[] colors = {0xFF0000, 0x00FF00, 0x0000FF, 0xFFFF00, 0x00FFFF, 0xFFFFFF};
+        BufferedImage sheet = new BufferedImage(24, 16, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < colors.length; i++) {
+            sheet.createGraphics().drawImage(solid(8, 8, colors[i]), (i % 3) * 8, (i / 3) * 8, null);
+        }
+
+        try (SpriteSheetSource source = new SpriteSheetSource(sheet, 8, 8, 5, SIZE, 80)) {
+            assertEquals(5, source.getFrameCount());
+            for (int i = 0; i < 5; i++) {
+                AnimationFrame frame = source.next();
+                assertEquals(colors[i], pixel(frame, 0, 0), "frame " + i);
+                assertEquals(colors[i], pixel(frame, SIZE - 1, SIZE - 1), "frame " + i);
+            }
+            assertNull(source.next());
+        }
+        assertEquals(6, new SpriteSheetSource(sheet, 8, 8, SIZE, 80).getFrameCount());
+        assertThrows(IllegalArgumentException.class, () -> new SpriteSheetSource(sheet, 8, 8, 7, SIZE, 80));
+    }
+
+    @Test
+    void testGeneratedFramesStartOnABlackCanvas() {
+        GeneratedFrameSource.Generator generator = (index, g2d, size) -> {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(index, 0, 1, 1);
+        };
+        try (GeneratedFrameSource source = new GeneratedFrameSource(generator, 3, SIZE, 40)) {
+            for (int i = 0; i < 3; i++) {
+                AnimationFrame frame = source.next();
+                assertEquals(0xFFFFFF, pixel(frame, i, 0));
+                // The pixel of the previous frame was cleared
+                if (i > 0) assertEquals(0, pixel(frame, i - 1, 0));
+            }
+            assertNull(source.next());
+            source.rewind();
+            assertEquals(0xFFFFFF, pixel(source.next(), 0, 0));
+        }
+
+        try (GeneratedFrameSource endless = new GeneratedFrameSource(generator, -1, SIZE, 40)) {
+            assertEquals(-1, endless.getFrameCount());
+            for (int i = 0; i < 100; i++) {
+                assertNotNull(endless.next());
+            }
+        }
+    }
+
+    @Test
+    void testSourcesUploadToTheDevice() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+
+            pixoo.sendAnimation(new GeneratedFrameSource((index, g2d, size) -> { }, 4, SIZE, 100), 100);
+            assertEquals(4, emulator.getFramesReceived());
+
+            // Unknown frame count, so the frames are read before the upload
+            FrameSource unknownCount = new ImageSequenceSource(List.of(png("a.png", 0xFF0000)), SIZE, 100) {
+                @Override
+                public int getFrameCount() {
+                    return -1;
+                }
+            };
+            pixoo.sendAnimation(unknownCount, 100);
+            assertEquals(5, emulator.getFramesReceived());
+            assertEquals(0xFF0000, emulator.getPixel(3, 3));
+        }
+    }
+
+    @Test
+    void testEndlessSourcesAreRejected() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            pixoo.setMaxAnimationFrames(50);
+
+            GeneratedFrameSource endless = new GeneratedFrameSource((index, g2d, size) -> { }, -1, SIZE, 100);
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                assertThrows(IOException.class, () -> pixoo.sendAnimation(endless, 100));
+                endless.rewind();
+                assertThrows(IOException.class, () -> pixoo.sendAnimation(endless, new AnimationOptimizer()));
+            });
+            assertEquals(0, emulator.getFramesReceived());
+
+            // A source that ends right at the limit is still sent
+            pixoo.sendAnimation(new GeneratedFrameSource((index, g2d, size) -> { }, 50, SIZE, 100) {
+                @Override
+                public int getFrameCount() {
+                    return -1;
+                }
+            }, 100);
+            assertEquals(50, emulator.getFramesReceived());
+        }
+    }
+}
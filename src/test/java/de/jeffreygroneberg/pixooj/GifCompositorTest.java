@@ -0,0 +1,363 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationPipeline;
+import de.jeffreygroneberg.pixooj.animations.GifCompositor;
+import de.jeffreygroneberg.pixooj.utilities.ImageUtils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class GifCompositorTest {
+
+    private static final int SIZE = 16;
+    // Index 0 is transparent in patches
+    private static final IndexColorModel PALETTE = new IndexColorModel(8, 4,
+            new byte[] {0, (byte) 255, 0, 0}, new byte[] {0, 0, (byte) 255, 0}, new byte[] {0, 0, 0, (byte) 255});
+
+    @TempDir
+    Path directory;
+
+    /** A patch of a GIF frame: pixels are palette indices, written at an offset. */
+    private record Patch(int left, int top, int[][] pixels, String disposal, boolean transparent) {
+    }
+
+    private File writeGif(String name, List<Patch> patches) throws IOException {
+        File file = directory.resolve(name).toFile();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(output);
+            writer.prepareWriteSequence(streamMetadata(writer, patches.get(0).pixels().length));
+            for (Patch patch : patches) {
+                int height = patch.pixels().length;
+                int width = patch.pixels()[0].length;
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        image.getRaster().setSample(x, y, 0, patch.pixels()[y][x]);
+                    }
+                }
+                IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), null);
+                String format = metadata.getNativeMetadataFormatName();
+                IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+                IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+                descriptor.setAttribute("imageLeftPosition", Integer.toString(patch.left()));
+                descriptor.setAttribute("imageTopPosition", Integer.toString(patch.top()));
+                IIOMetadataNode control = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension").item(0);
+                control.setAttribute("disposalMethod", patch.disposal());
+                control.setAttribute("transparentColorFlag", patch.transparent() ? "TRUE" : "FALSE");
+                control.setAttribute("transparentColorIndex", "0");
+                control.setAttribute("delayTime", "10");
+                metadata.setFromTree(format, root);
+                writer.writeToSequence(new IIOImage(image, null, metadata), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    /** A global color table with the palette, whose background color is green. */
+    private static IIOMetadata streamMetadata(ImageWriter writer, int screen) throws IOException {
+        IIOMetadata metadata = writer.getDefaultStreamMetadata(null);
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = new IIOMetadataNode(format);
+        IIOMetadataNode descriptor = new IIOMetadataNode("LogicalScreenDescriptor");
+        descriptor.setAttribute("logicalScreenWidth", Integer.toString(screen));
+        descriptor.setAttribute("logicalScreenHeight", Integer.toString(screen));
+        descriptor.setAttribute("colorResolution", "8");
+        descriptor.setAttribute("pixelAspectRatio", "0");
+        root.appendChild(descriptor);
+        IIOMetadataNode table = new IIOMetadataNode("GlobalColorTable");
+        table.setAttribute("sizeOfGlobalColorTable", "4");
+        table.setAttribute("backgroundColorIndex", "2");
+        table.setAttribute("sortFlag", "FALSE");
+        for (int i = 0; i < 4; i++) {
+            IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+            entry.setAttribute("index", Integer.toString(i));
+            entry.setAttribute("red", Integer.toString(PALETTE.getRed(i)));
+            entry.setAttribute("green", Integer.toString(PALETTE.getGreen(i)));
+            entry.setAttribute("blue", Integer.toString(PALETTE.getBlue(i)));
+            table.appendChild(entry);
+        }
+        root.appendChild(table);
+        metadata.mergeTree(format, root);
+        return metadata;
+    }
+
+    private static List<GifCompositor.Frame> composite(File file, int size) throws IOException {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            reader.setInput(input);
+            GifCompositor compositor = new GifCompositor(reader, size, false);
+            List<GifCompositor.Frame> frames = new ArrayList<>();
+            GifCompositor.Frame frame;
+            while ((frame = compositor.next()) != null) {
+                frames.add(frame);
+            }
+            return frames;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static int[][] square(int size, int index) {
+        int[][] pixels = new int[size][size];
+        for (int[] row : pixels) Arrays.fill(row, index);
+        return pixels;
+    }
+
+    @Test
+    void testPatchesMatchFullFrames() throws IOException {
+        // 100 px composited for 16 px devices is subsampled by 3, so the odd offset is off the grid
+        int screen = 100;
+        int[][] base = new int[screen][screen];
+        for (int y = 0; y < screen; y++) {
+            for (int x = 0; x < screen; x++) {
+                base[y][x] = (x / 10 + y / 10) % 2 == 0 ? 1 : 3;
+            }
+        }
+        int[][] patch = square(17, 2);
+        patch[5][5] = 0;
+        int[][] full = new int[screen][];
+        for (int y = 0; y < screen; y++) {
+            full[y] = base[y].clone();
+        }
+        for (int y = 0; y < 17; y++) {
+            for (int x = 0; x < 17; x++) {
+                if (patch[y][x] != 0) full[41 + y][37 + x] = patch[y][x];
+            }
+        }
+
+        List<GifCompositor.Frame> optimized = composite(writeGif("optimized.gif", List.of(
+                new Patch(0, 0, base, "none", false),
+                new Patch(37, 41, patch, "none", true))), SIZE);
+        List<GifCompositor.Frame> plain = composite(writeGif("plain.gif", List.of(
+                new Patch(0, 0, base, "none", false),
+                new Patch(0, 0, full, "none", false))), SIZE);
+
+        assertArrayEquals(plain.get(1).getRgb(), optimized.get(1).getRgb());
+        // Only the region around the patch is updated
+        assertTrue(optimized.get(1).getDirtyArea().width < SIZE);
+    }
+
+    @Test
+    void testSubsampledPatchesAreAnchoredAtTheLogicalScreen() throws IOException {
+        // Colors depend on the position in the logical screen, so a misaligned patch shows
+        int screen = 100;
+        int[][] patch = new int[17][17];
+        for (int y = 0; y < 17; y++) {
+            for (int x = 0; x < 17; x++) {
+                patch[y][x] = 1 + (37 + x + 2 * (41 + y)) % 3;
+            }
+        }
+        File file = writeGif("anchored.gif", List.of(
+                new Patch(0, 0, square(screen, 1), "none", false),
+                new Patch(37, 41, patch, "none", false)));
+
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            reader.setInput(input);
+            GifCompositor compositor = new GifCompositor(reader, SIZE, false);
+            compositor.nextSource();
+            BufferedImage canvas = compositor.nextSource().getImage();
+
+            // Subsampled by 3: the canvas holds every third column and row of the logical screen
+            assertEquals(34, canvas.getWidth());
+            assertEquals(34, canvas.getHeight());
+            for (int cy = 0; cy < 34; cy++) {
+                for (int cx = 0; cx < 34; cx++) {
+                    int x = cx * 3;
+                    int y = cy * 3;
+                    boolean inPatch = x >= 37 && x < 54 && y >= 41 && y < 58;
+                    int index = inPatch ? 1 + (x + 2 * y) % 3 : 1;
+                    assertEquals(PALETTE.getRGB(index), canvas.getRGB(cx, cy), "canvas " + cx + "," + cy);
+                }
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    void testIncrementalScalingMatchesFullScaling() throws IOException {
+        int screen = 40;
+        int[][] base = new int[screen][screen];
+        for (int y = 0; y < screen; y++) {
+            for (int x = 0; x < screen; x++) {
+                base[y][x] = (x + 2 * y) % 4;
+            }
+        }
+        List<GifCompositor.Frame> frames = composite(writeGif("moving.gif", List.of(
+                new Patch(0, 0, base, "none", false),
+                new Patch(5, 7, square(6, 1), "restoreToPrevious", false),
+                new Patch(20, 3, square(9, 2), "none", false))), SIZE);
+
+        BufferedImage expected = new BufferedImage(screen, screen, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < screen; y++) {
+            for (int x = 0; x < screen; x++) {
+                expected.setRGB(x, y, PALETTE.getRGB(base[y][x]));
+            }
+        }
+        for (int y = 3; y < 12; y++) {
+            for (int x = 20; x < 29; x++) {
+                expected.setRGB(x, y, PALETTE.getRGB(2));
+            }
+        }
+        // The first patch was restored before the second one was drawn
+        assertArrayEquals(ImageUtils.toDeviceRgbBytes(expected, SIZE, false), frames.get(2).getRgb());
+    }
+
+    @Test
+    void testRestoreToBackgroundUsesBackgroundColorOrBlack() throws IOException {
+        List<GifCompositor.Frame> frames = composite(writeGif("background.gif", List.of(
+                new Patch(0, 0, square(SIZE, 1), "none", false),
+                new Patch(0, 0, square(4, 3), "restoreToBackgroundColor", false),
+                new Patch(8, 8, square(4, 3), "restoreToBackgroundColor", true),
+                new Patch(14, 14, square(2, 3), "none", false))), SIZE);
+
+        // Opaque frames are restored to the green background color
+        byte[] rgb = frames.get(2).getRgb();
+        assertArrayEquals(new byte[] {0, (byte) 255, 0}, new byte[] {rgb[0], rgb[1], rgb[2]});
+        // Transparent frames are cleared to black
+        rgb = frames.get(3).getRgb();
+        int k = (8 * SIZE + 8) * 3;
+        assertArrayEquals(new byte[] {0, 0, 0}, new byte[] {rgb[k], rgb[k + 1], rgb[k + 2]});
+        // Elsewhere the first frame is kept
+        k = (5 * SIZE + 5) * 3;
+        assertArrayEquals(new byte[] {(byte) 255, 0, 0}, new byte[] {rgb[k], rgb[k + 1], rgb[k + 2]});
+    }
+
+    @Test
+    void testPipelineMatchesCompositor() throws Exception {
+        int screen = 100;
+        int[][] base = new int[screen][screen];
+        for (int y = 0; y < screen; y++) {
+            for (int x = 0; x < screen; x++) {
+                base[y][x] = (x * y / 7) % 4;
+            }
+        }
+        File file = writeGif("pipeline.gif", List.of(
+                new Patch(0, 0, base, "none", false),
+                new Patch(31, 52, square(20, 2), "restoreToPrevious", true),
+                new Patch(61, 5, square(11, 3), "none", false)));
+        List<GifCompositor.Frame> frames = composite(file, SIZE);
+
+        List<String> uploaded = new ArrayList<>();
+        AnimationPipeline pipeline = new AnimationPipeline(SIZE, false);
+        AnimationPipeline.Result result = pipeline.run(file, (index, frameCount, payload) -> uploaded.add(payload));
+        assertTrue(result.isComplete());
+        assertNull(result.getPayloads());
+        assertEquals(frames.size(), uploaded.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertArrayEquals(frames.get(i).getRgb(), Base64.getDecoder().decode(uploaded.get(i)), "Frame " + i);
+        }
+
+        result = pipeline.run(file, (index, frameCount, payload) -> true, true);
+        assertEquals(uploaded, result.getPayloads());
+    }
+
+    private File movingGif() throws IOException {
+        int screen = 100;
+        int[][] base = new int[screen][screen];
+        for (int y = 0; y < screen; y++) {
+            for (int x = 0; x < screen; x++) {
+                base[y][x] = (x + y) % 4;
+            }
+        }
+        return writeGif("resume.gif", List.of(
+                new Patch(0, 0, base, "none", false),
+                new Patch(10, 10, square(20, 1), "none", false),
+                new Patch(60, 30, square(15, 2), "restoreToPrevious", false),
+                new Patch(40, 70, square(25, 3), "none", true)));
+    }
+
+    @Test
+    void testSkippedFramesAreScaledWithTheNextFrame() throws IOException {
+        File file = movingGif();
+        List<GifCompositor.Frame> frames = composite(file, SIZE);
+
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            reader.setInput(input);
+            GifCompositor compositor = new GifCompositor(reader, SIZE, false);
+            assertNotNull(compositor.next());
+            assertTrue(compositor.skip());
+            assertTrue(compositor.skip());
+            assertArrayEquals(frames.get(3).getRgb(), compositor.next().getRgb());
+            assertFalse(compositor.skip());
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    void testPipelineResumesWithoutPreparingEarlierFrames() throws Exception {
+        File file = movingGif();
+        List<GifCompositor.Frame> frames = composite(file, SIZE);
+
+        List<Integer> indices = new ArrayList<>();
+        List<String> uploaded = new ArrayList<>();
+        AnimationPipeline.Result result = new AnimationPipeline(SIZE, false).run(file, 2, (index, frameCount, payload) -> {
+            indices.add(index);
+            uploaded.add(payload);
+            return true;
+        }, true);
+
+        assertTrue(result.isComplete());
+        assertEquals(List.of(2, 3), indices);
+        assertEquals(2, result.getTimings().getFrames());
+        for (int i = 0; i < uploaded.size(); i++) {
+            assertArrayEquals(frames.get(i + 2).getRgb(), Base64.getDecoder().decode(uploaded.get(i)));
+        }
+        // A partial run has no payloads to cache
+        assertNull(result.getPayloads());
+    }
+
+    @Test
+    void testPipelineReportsErrorsOfTheDecodeThread() throws Exception {
+        File file = movingGif();
+        // Fails in the decode thread while it hands a frame to the prepare stage
+        ThreadPoolExecutor failing = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                throw new OutOfMemoryError("Simulated");
+            }
+        };
+        try {
+            AnimationPipeline pipeline = new AnimationPipeline(SIZE, false, failing);
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                OutOfMemoryError error = assertThrows(OutOfMemoryError.class,
+                        () -> pipeline.run(file, (index, frameCount, payload) -> true));
+                assertEquals("Simulated", error.getMessage());
+            });
+        } finally {
+            failing.shutdown();
+        }
+    }
+}
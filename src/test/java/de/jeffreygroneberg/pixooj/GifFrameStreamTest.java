@@ -0,0 +1,119 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationFrame;
+import de.jeffreygroneberg.pixooj.animations.GifFrameStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GifFrameStreamTest {
+
+    private static final File GIF = new File("assets/test_3.gif");
+    private static final int SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    private static List<AnimationFrame> readAll(GifFrameStream stream) throws Exception {
+        List<AnimationFrame> frames = new ArrayList<>();
+        AnimationFrame frame;
+        while ((frame = stream.next()) != null) {
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    @Test
+    void testRetainedFramesAreReplayedWithoutDecoding() throws Exception {
+        try (GifFrameStream stream = new GifFrameStream(GIF, SIZE, 2, true)) {
+            List<AnimationFrame> first = readAll(stream);
+            assertFalse(first.isEmpty());
+
+            stream.rewind();
+            List<AnimationFrame> replayed = readAll(stream);
+            assertEquals(first.size(), replayed.size());
+            for (int i = 0; i < first.size(); i++) {
+                assertSame(first.get(i), replayed.get(i), "Frame " + i);
+            }
+        }
+    }
+
+    @Test
+    void testRewindWithoutRetainingDecodesAgain() throws Exception {
+        try (GifFrameStream stream = new GifFrameStream(GIF, SIZE)) {
+            List<AnimationFrame> first = readAll(stream);
+            stream.rewind();
+            List<AnimationFrame> decoded = readAll(stream);
+
+            assertEquals(first.size(), decoded.size());
+            for (int i = 0; i < first.size(); i++) {
+                assertNotSame(first.get(i), decoded.get(i));
+                assertArrayEquals(first.get(i).getRgb(), decoded.get(i).getRgb(), "Frame " + i);
+                assertEquals(first.get(i).getDelayMs(), decoded.get(i).getDelayMs());
+            }
+        }
+    }
+
+    @Test
+    void testDecodeFailureReachesTheConsumer() throws Exception {
+        byte[] gif = Files.readAllBytes(GIF.toPath());
+        File truncated = directory.resolve("truncated.gif").toFile();
+        Files.write(truncated.toPath(), Arrays.copyOf(gif, gif.length / 2));
+
+        try (GifFrameStream stream = new GifFrameStream(truncated, SIZE, 1, true)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                // Frames before the damaged one are played, then the error arrives
+                int frames = 0;
+                IOException failure = null;
+                try {
+                    while (stream.next() != null) frames++;
+                } catch (IOException e) {
+                    failure = e;
+                }
+                assertNotNull(failure);
+                assertTrue(frames > 0);
+                assertNull(stream.next());
+
+                // A failed run is not replayed from memory, the next run decodes and fails again
+                stream.rewind();
+                assertThrows(IOException.class, () -> {
+                    while (stream.next() != null) {
+                        // Skip the frames before the damaged one
+                    }
+                });
+            });
+        }
+    }
+
+    @Test
+    void testClosingStopsABlockedDecoder() throws Exception {
+        String name = "gif-decoder-" + GIF.getName();
+        try (GifFrameStream stream = new GifFrameStream(GIF, SIZE, 1, false)) {
+            assertNotNull(stream.next());
+            // The queue is full, so the decoder waits instead of decoding the whole file
+            assertTrue(decoderAlive(name));
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (decoderAlive(name) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(decoderAlive(name));
+    }
+
+    private static boolean decoderAlive(String name) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals(name) && thread.isAlive());
+    }
+}
@@ -0,0 +1,143 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.utilities.ImageDecoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ImageDecoderTest {
+
+    @TempDir
+    Path directory;
+
+    /** Every pixel holds its own coordinates, so a decoded pixel shows where it was sampled. */
+    private File coordinates(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x << 12 | y);
+            }
+        }
+        File file = directory.resolve(name).toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    @Test
+    void testSubsamplingKeepsTheOversampling() {
+        assertEquals(1, ImageDecoder.subsampling(64, 64, 64, 64));
+        assertEquals(1, ImageDecoder.subsampling(255, 255, 64, 64));
+        assertEquals(2, ImageDecoder.subsampling(256, 256, 64, 64));
+        // The smaller ratio wins, so neither side drops below the oversampled target
+        assertEquals(18, ImageDecoder.subsampling(1000, 600, 16, 16));
+        assertEquals(1, ImageDecoder.subsampling(1000, 600, 0, 16));
+    }
+
+    @Test
+    void testLargeImagesAreDecodedSubsampled() throws IOException {
+        File file = coordinates("large.png", 1000, 600);
+        BufferedImage image = ImageDecoder.read(file, 16, 16);
+
+        // Every 18th column and row, starting at the first
+        assertEquals(56, image.getWidth());
+        assertEquals(34, image.getHeight());
+        assertTrue(image.getWidth() >= 16 * ImageDecoder.OVERSAMPLING);
+        assertTrue(image.getHeight() >= 16 * ImageDecoder.OVERSAMPLING);
+        assertEquals(18 * 5 << 12 | 18 * 7, image.getRGB(5, 7) & 0xFFFFFF);
+        assertEquals(18 * 55 << 12 | 18 * 33, image.getRGB(55, 33) & 0xFFFFFF);
+
+        // Small images and images without a target are decoded in full
+        BufferedImage full = ImageDecoder.read(file, 0, 0);
+        assertEquals(1000, full.getWidth());
+        assertEquals(600, full.getHeight());
+    }
+
+    @Test
+    void testUnsupportedFiles() throws IOException {
+        File text = directory.resolve("notes.txt").toFile();
+        Files.writeString(text.toPath(), "not an image");
+        assertNull(ImageDecoder.read(text, 16, 16));
+        assertThrows(IOException.class, () -> ImageDecoder.read(directory.resolve("missing.png").toFile(), 16, 16));
+    }
+
+    @Test
+    void testPooledReadersAreResetBetweenUses() throws IOException {
+        File first = coordinates("first.png", 64, 64);
+        File second = coordinates("second.png", 40, 20);
+
+        ImageReader reader;
+        AtomicInteger progress = new AtomicInteger();
+        try (ImageInputStream input = ImageIO.createImageInputStream(first)) {
+            reader = ImageDecoder.acquire(input);
+            reader.setInput(input);
+            reader.addIIOReadProgressListener((IIOReadProgressListener) Proxy.newProxyInstance(
+                    getClass().getClassLoader(), new Class<?>[]{IIOReadProgressListener.class},
+                    (proxy, method, args) -> {
+                        progress.incrementAndGet();
+                        return null;
+                    }));
+            assertEquals(64, reader.read(0).getWidth());
+            assertTrue(progress.get() > 0);
+            ImageDecoder.release(reader);
+        }
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(second)) {
+            ImageReader reused = ImageDecoder.acquire(input);
+            assertSame(reader, reused);
+            // Neither the input nor the listeners of the previous use are left
+            assertNull(reused.getInput());
+            progress.set(0);
+            reused.setInput(input);
+            BufferedImage image = reused.read(0);
+            assertEquals(40, image.getWidth());
+            assertEquals(39 << 12 | 19, image.getRGB(39, 19) & 0xFFFFFF);
+            assertEquals(0, progress.get());
+            ImageDecoder.release(reused);
+        }
+
+        // Decoding through the pool after that still reads the right file
+        assertEquals(20, ImageDecoder.read(second, 0, 0).getHeight());
+        assertEquals(64, ImageDecoder.read(first, 0, 0).getHeight());
+    }
+
+    @Test
+    void testPoolIsBounded() throws IOException {
+        File file = coordinates("pool.png", 8, 8);
+        List<ImageReader> readers = new ArrayList<>();
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            for (int i = 0; i < 8; i++) {
+                readers.add(ImageDecoder.acquire(input));
+            }
+            for (ImageReader reader : readers) {
+                ImageDecoder.release(reader);
+            }
+
+            List<ImageReader> pooled = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                pooled.add(ImageDecoder.acquire(input));
+            }
+            // Only the pooled readers come back, the others were disposed
+            long reused = pooled.stream().filter(reader -> readers.stream().anyMatch(r -> r == reader)).count();
+            assertEquals(4, reused);
+            for (ImageReader reader : pooled) {
+                ImageDecoder.release(reader);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.metrics.LatencyHistogram;
+import de.jeffreygroneberg.pixooj.metrics.PixooMetrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(99));
+        assertEquals(0, histogram.getMeanMicros());
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMaxMicros());
+        assertEquals(5000.5, histogram.getMeanMicros(), 0.001);
+
+        long p50 = histogram.getPercentileMicros(50);
+        long p99 = histogram.getPercentileMicros(99);
+        // Buckets are an eighth of a power of two wide, so upper bounds are at most 12.5% above the value
+        assertTrue(p50 >= 5000 && p50 <= 5000 * 1.125, "p50 was " + p50);
+        assertTrue(p99 >= 9900 && p99 <= 10_000, "p99 was " + p99);
+        assertEquals(10_000, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    void testSmallAndHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(3_000);
+        histogram.record(3_600_000_000_000L);
+        assertEquals(0, histogram.getPercentileMicros(1));
+        assertEquals(3, histogram.getPercentileMicros(50));
+        assertEquals(3_600_000_000L, histogram.getMaxMicros());
+    }
+
+    @Test
+    void testMetricsPerCommand() {
+        PixooMetrics metrics = new PixooMetrics();
+        metrics.requestStarted("Draw/SendHttpGif");
+        assertEquals(1, metrics.getRequestsInFlight());
+        metrics.requestCompleted("Draw/SendHttpGif", 100, 2_000_000, true);
+        metrics.requestStarted("Channel/SetBrightness");
+        metrics.requestCompleted("Channel/SetBrightness", 50, 1_000_000, false);
+
+        assertEquals(0, metrics.getRequestsInFlight());
+        assertEquals(150, metrics.getBytesSent());
+        assertEquals(1, metrics.getRequestFailures());
+        assertEquals(1L, metrics.getRequestCounts().get("Draw/SendHttpGif"));
+        assertEquals(1L, metrics.getRequestFailuresByCommand().get("Channel/SetBrightness"));
+        assertEquals(1, metrics.getRequestLatency("Draw/SendHttpGif").getCount());
+        assertNull(metrics.getRequestLatency("Device/SysReboot"));
+    }
+}
@@ -0,0 +1,44 @@
+package de.jeffreygroneberg.pixooj;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.jeffreygroneberg.pixooj.utilities.LogUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogUtilsTest {
+
+    @Test
+    void testSummarizeAbbreviatesLongValues() {
+        ObjectNode request = new ObjectMapper().createObjectNode();
+        request.put("Command", "Draw/SendHttpGif");
+        request.put("PicID", 7);
+        request.put("PicData", "A".repeat(16384));
+
+        String summary = LogUtils.summarize(request).toString();
+
+        assertTrue(summary.startsWith("{\"Command\":\"Draw/SendHttpGif\",\"PicID\":7,\"PicData\":\"AAAA"));
+        assertTrue(summary.contains("...(16384 chars)"));
+        assertTrue(summary.length() < 120);
+    }
+
+    @Test
+    void testAbbreviateKeepsShortText() {
+        assertEquals("{\"error_code\":0}", LogUtils.abbreviate("{\"error_code\":0}".getBytes(StandardCharsets.UTF_8)).toString());
+        assertEquals("abc...(6 chars)", LogUtils.abbreviate("abcdef", 3));
+    }
+
+    @Test
+    void testArgumentsRenderLazily() {
+        byte[] body = "x".repeat(100_000).getBytes(StandardCharsets.UTF_8);
+        Object argument = LogUtils.abbreviate(body);
+        body[0] = 'y';
+
+        String rendered = argument.toString();
+        assertTrue(rendered.startsWith("y"));
+        assertEquals(LogUtils.MAX_PAYLOAD_LENGTH + "...(100000 chars)".length(), rendered.length());
+    }
+}
@@ -0,0 +1,84 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.objects.PicIdCounter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PicIdCounterTest {
+
+    @Test
+    void testResetIsNeededWhenTheNextIdReachesTheLimit() {
+        PicIdCounter counter = new PicIdCounter(4);
+        counter.load(2);
+        assertFalse(counter.needsReset());
+        assertEquals(3, counter.next());
+        assertTrue(counter.needsReset());
+
+        assertThrows(IllegalArgumentException.class, () -> new PicIdCounter(1));
+        assertThrows(IllegalArgumentException.class, () -> counter.setResetLimit(1));
+        assertEquals(4, counter.getResetLimit());
+    }
+
+    @Test
+    void testSuccessfulResetRestartsTheCounter() {
+        PicIdCounter counter = new PicIdCounter(4);
+        counter.load(3);
+
+        assertTrue(counter.scheduleReset(() -> CompletableFuture.completedFuture(true)).join());
+        assertEquals(0, counter.current());
+        assertEquals(1, counter.next());
+        assertEquals(1, counter.getResetsScheduled());
+        assertEquals(1, counter.getResetsCompleted());
+        assertEquals(0, counter.getResetsFailed());
+    }
+
+    @Test
+    void testFailedResetKeepsTheCounter() {
+        PicIdCounter counter = new PicIdCounter(4);
+        counter.load(3);
+
+        assertFalse(counter.scheduleReset(() -> CompletableFuture.completedFuture(false)).join());
+        assertFalse(counter.scheduleReset(() -> CompletableFuture.failedFuture(new RuntimeException("offline"))).join());
+        assertFalse(counter.scheduleReset(() -> {
+            throw new IllegalStateException("no connection");
+        }).join());
+
+        assertEquals(3, counter.current());
+        assertTrue(counter.needsReset());
+        assertEquals(3, counter.getResetsScheduled());
+        assertEquals(0, counter.getResetsCompleted());
+        assertEquals(3, counter.getResetsFailed());
+    }
+
+    @Test
+    void testNextWaitsForAResetThatIsStarting() throws Exception {
+        PicIdCounter counter = new PicIdCounter(4);
+        counter.load(3);
+        CompletableFuture<Boolean> device = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<Integer>> id = new AtomicReference<>();
+
+        CompletableFuture<Boolean> reset = counter.scheduleReset(() -> {
+            // A push on another thread while the reset request is being sent
+            id.set(CompletableFuture.supplyAsync(counter::next));
+            return device;
+        });
+        // A second reset joins the one in flight
+        assertSame(reset, counter.scheduleReset(() -> CompletableFuture.completedFuture(true)));
+        assertFalse(counter.needsReset());
+
+        Thread.sleep(100);
+        assertFalse(id.get().isDone(), "next() handed out an ID during the reset");
+
+        device.complete(true);
+        assertEquals(1, id.get().get(5, TimeUnit.SECONDS));
+        assertEquals(1, counter.getResetsScheduled());
+        assertEquals(1, counter.getBlockedWaits());
+        assertTrue(counter.getBlockedNanos() > 0);
+    }
+}
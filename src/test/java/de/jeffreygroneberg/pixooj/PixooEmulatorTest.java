@@ -0,0 +1,176 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+import de.jeffreygroneberg.pixooj.configurations.EmulatorConfiguration;
+import de.jeffreygroneberg.pixooj.constants.Palette;
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.objects.AnimationUpload;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PixooEmulatorTest {
+
+    private static final int SIZE = 16;
+
+    private static EncodedAnimation animation(int frameCount) throws IOException {
+        List<String> payloads = new ArrayList<>();
+        for (int i = 0; i < frameCount; i++) {
+            byte[] rgb = new byte[SIZE * SIZE * 3];
+            rgb[0] = (byte) i;
+            payloads.add(Base64.getEncoder().encodeToString(rgb));
+        }
+        return EncodedAnimation.wrap(EncodedAnimation.encode(payloads));
+    }
+
+    @Test
+    void testPushedBufferIsDecodedIntoFramebuffer() throws IOException {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            pixoo.fillRgb(10, 20, 30);
+            pixoo.drawPixel(3, 4, new Palette.Color(255, 0, 0));
+            pixoo.push();
+
+            assertEquals(1, emulator.getPicturesShown());
+            assertEquals(0x0A141E, emulator.getPixel(0, 0));
+            assertEquals(0xFF0000, emulator.getPixel(3, 4));
+            assertEquals(pixoo.getPicIdCounter().current(), emulator.getLastPicId());
+        }
+    }
+
+    @Test
+    void testSettingsAreReportedByGetAllConf() throws IOException {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            pixoo.setBrightness(42);
+
+            assertEquals(42, emulator.getConfiguration().get("Brightness").asInt());
+            assertEquals(42, pixoo.getAllDeviceConfigurations(true).get("Brightness").asInt());
+        }
+    }
+
+    @Test
+    void testInvalidFrameIsRejected() throws IOException {
+        try (PixooEmulator emulator = new PixooEmulator(32).start()) {
+            // A 16 pixel client sends frames the 32 pixel emulator cannot show
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            pixoo.push();
+
+            assertEquals(0, emulator.getFramesReceived());
+            assertEquals(1, emulator.getCommandCount("Draw/SendHttpGif"));
+        }
+    }
+
+    @Test
+    void testUploadCompletesDespiteInjectedFaults() throws Exception {
+        EmulatorConfiguration config = new EmulatorConfiguration(0, 2, 0.1, 0.1);
+        try (PixooEmulator emulator = new PixooEmulator(SIZE, config).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            AnimationUpload upload = pixoo.createAnimationUpload(animation(40), 100);
+            upload.setMaxRetries(10);
+            upload.setRetryDelayMillis(1);
+
+            assertTrue(upload.run());
+            assertTrue(emulator.getErrorsInjected() + emulator.getDropsInjected() > 0);
+            assertTrue(upload.getRetries() > 0);
+            assertEquals(1, emulator.getPicturesShown());
+            assertEquals(40, emulator.getFramesReceived());
+        }
+    }
+
+    /** Sends requests from several threads at once and returns the injected errors and drops. */
+    private static long[] concurrentFaults(EmulatorConfiguration config) throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE, config).start()) {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://" + emulator.getAddress() + "/post"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"Command\":\"Channel/GetAllConf\"}"))
+                    .build();
+            ExecutorService threads = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> responses = new ArrayList<>();
+                for (int i = 0; i < 80; i++) {
+                    responses.add(threads.submit(() -> {
+                        try {
+                            client.send(request, HttpResponse.BodyHandlers.discarding());
+                        } catch (IOException e) {
+                            // Dropped
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> response : responses) {
+                    response.get();
+                }
+            } finally {
+                threads.shutdownNow();
+            }
+            assertEquals(80, emulator.getRequests());
+            return new long[]{emulator.getErrorsInjected(), emulator.getDropsInjected()};
+        }
+    }
+
+    @Test
+    void testSeededFaultsRepeatWithConcurrentRequests() throws Exception {
+        EmulatorConfiguration config = new EmulatorConfiguration(0, 3, 0.3, 0.2);
+        config.setSeed(7);
+        long[] first = concurrentFaults(config);
+        assertTrue(first[0] > 0);
+        assertTrue(first[1] > 0);
+        for (int run = 0; run < 3; run++) {
+            assertArrayEquals(first, concurrentFaults(config));
+        }
+    }
+
+    @Test
+    void testAbandonedAnimationIsDroppedByNewerPicture() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            AnimationUpload upload = pixoo.createAnimationUpload(animation(3), 100);
+            upload.setProgressListener((job, framesSent, frameCount) -> job.cancel());
+
+            assertFalse(upload.run());
+            assertEquals(1, emulator.getPendingPictures());
+
+            pixoo.push();
+            assertEquals(0, emulator.getPendingPictures());
+            assertEquals(1, emulator.getPicturesShown());
+        }
+    }
+
+    @Test
+    void testCancelledGifUploadResumesFromNextFrame() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            AnimationUpload upload = pixoo.createAnimationUpload(new File("assets/test_3.gif"), 100);
+            upload.setProgressListener((job, framesSent, frameCount) -> {
+                if (framesSent == 3) job.cancel();
+            });
+
+            assertFalse(upload.run());
+            assertEquals(AnimationUpload.State.CANCELLED, upload.getState());
+            assertEquals(3, upload.getNextOffset());
+            assertEquals(0, emulator.getPicturesShown());
+
+            upload.setProgressListener(null);
+            assertTrue(upload.run());
+            assertEquals(1, emulator.getPicturesShown());
+            // No frame was sent twice
+            assertEquals(upload.getFrameCount(), emulator.getFramesReceived());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.EncodedAnimation;
+import de.jeffreygroneberg.pixooj.configurations.EmulatorConfiguration;
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class PixooInitializationTest {
+
+    private static final int SIZE = 16;
+    private static final long LATENCY_MS = 500;
+
+    private static Pixoo lazyPixoo(String address) {
+        return new Pixoo(address, SIZE, false, true, false, null, true);
+    }
+
+    @Test
+    void testLazyConstructorReturnsBeforeTheDeviceAnswers() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE, new EmulatorConfiguration(LATENCY_MS, 0)).start()) {
+            long start = System.nanoTime();
+            Pixoo pixoo = lazyPixoo(emulator.getAddress());
+            long constructMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(constructMillis < LATENCY_MS, "Constructor took " + constructMillis + " ms");
+            assertFalse(pixoo.getReadyFuture().isDone());
+
+            assertTrue(pixoo.getReadyFuture().get(5, TimeUnit.SECONDS));
+            long readyMillis = (System.nanoTime() - start) / 1_000_000;
+            // Validation and counter loading were in flight at the same time
+            assertTrue(readyMillis < 2 * LATENCY_MS, "Initialization took " + readyMillis + " ms");
+            assertEquals(1, emulator.getCommandCount("Channel/GetAllConf"));
+            assertEquals(1, emulator.getCommandCount("Draw/GetHttpGifId"));
+        }
+    }
+
+    @Test
+    void testFirstPushWaitsForInitialization() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE, new EmulatorConfiguration(LATENCY_MS, 0)).start()) {
+            Pixoo pixoo = lazyPixoo(emulator.getAddress());
+            pixoo.fillRgb(1, 2, 3);
+            pixoo.push();
+
+            assertTrue(pixoo.getReadyFuture().isDone());
+            assertEquals(1, pixoo.getBuffersSent());
+            // The counter loaded in the background was continued, not overwritten
+            assertEquals(pixoo.getPicIdCounter().current(), emulator.getLastPicId());
+        }
+    }
+
+    @Test
+    void testRejectedInitializationCompletesReadyFutureWithFalse() throws Exception {
+        EmulatorConfiguration config = new EmulatorConfiguration(0, 0, 1.0, 0);
+        try (PixooEmulator emulator = new PixooEmulator(SIZE, config).start()) {
+            Pixoo pixoo = lazyPixoo(emulator.getAddress());
+            assertFalse(pixoo.getReadyFuture().get(5, TimeUnit.SECONDS));
+
+            // Pushes and animations still run, and report the device's errors
+            pixoo.push();
+            assertEquals(0, pixoo.getBuffersSent());
+            assertEquals(1, emulator.getCommandCount("Draw/SendHttpGif"));
+            assertFalse(pixoo.sendAnimation(animation(2), 100));
+        }
+    }
+
+    @Test
+    void testUnreachableDeviceCompletesReadyFutureWithFalse() throws Exception {
+        String address;
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            address = emulator.getAddress();
+        }
+
+        Pixoo pixoo = lazyPixoo(address);
+        assertFalse(pixoo.getReadyFuture().get(5, TimeUnit.SECONDS));
+        pixoo.push();
+        assertEquals(0, pixoo.getBuffersSent());
+        assertFalse(pixoo.sendAnimation(animation(2), 100));
+    }
+
+    private static EncodedAnimation animation(int frameCount) throws IOException {
+        String payload = Base64.getEncoder().encodeToString(new byte[SIZE * SIZE * 3]);
+        return EncodedAnimation.wrap(EncodedAnimation.encode(Collections.nCopies(frameCount, payload)));
+    }
+}
@@ -0,0 +1,110 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.Playlist;
+import de.jeffreygroneberg.pixooj.animations.PlaylistItem;
+import de.jeffreygroneberg.pixooj.emulator.PixooEmulator;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+import de.jeffreygroneberg.pixooj.objects.PlaylistPlayer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PlaylistPlayerTest {
+
+    private static final int SIZE = 16;
+    private static final int RED = 0xFF0000;
+    private static final int BLUE = 0x0000FF;
+
+    @TempDir
+    Path directory;
+
+    private File image(String name, int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        File file = directory.resolve(name).toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    private static PlaylistItem item(File file) {
+        return new PlaylistItem(file, 0, PlaylistItem.DEFAULT_SPEED_MS, 1);
+    }
+
+    @Test
+    void testPlaysItemsInOrder() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            Playlist playlist = new Playlist();
+            playlist.add(item(image("red.png", RED)));
+            playlist.add(item(image("blue.png", BLUE)));
+
+            try (PlaylistPlayer player = new PlaylistPlayer(pixoo, playlist)) {
+                assertEquals("red.png", player.playNext().getFile().getName());
+                assertEquals(RED, emulator.getPixel(3, 5));
+                assertEquals("blue.png", player.playNext().getFile().getName());
+                assertEquals(BLUE, emulator.getPixel(3, 5));
+                assertEquals("red.png", player.playNext().getFile().getName());
+                assertEquals(RED, emulator.getPixel(3, 5));
+            }
+            assertEquals(3, emulator.getPicturesShown());
+        }
+    }
+
+    @Test
+    void testPrefetchedItemIsPreparedAgainAfterItsFileChanged() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            Playlist playlist = new Playlist();
+            playlist.add(item(image("first.png", RED)));
+            File second = image("second.png", RED);
+            playlist.add(item(second));
+
+            try (PlaylistPlayer player = new PlaylistPlayer(pixoo, playlist)) {
+                // Prepares the second item in the background
+                player.playNext();
+
+                // No watcher, so only the modified time and size show the change
+                long modified = second.lastModified();
+                image("second.png", BLUE);
+                assertTrue(second.setLastModified(modified + 2000));
+
+                assertEquals(second, player.playNext().getFile());
+                assertEquals(BLUE, emulator.getPixel(0, 0));
+            }
+        }
+    }
+
+    @Test
+    void testBrokenItemIsSkippedUntilItChanges() throws Exception {
+        try (PixooEmulator emulator = new PixooEmulator(SIZE).start()) {
+            Pixoo pixoo = new Pixoo(emulator.getAddress(), SIZE, false, true, false, null);
+            File file = directory.resolve("broken.png").toFile();
+            Files.write(file.toPath(), new byte[]{1, 2, 3});
+            Playlist playlist = new Playlist();
+            playlist.add(item(file));
+
+            try (PlaylistPlayer player = new PlaylistPlayer(pixoo, playlist)) {
+                assertNull(player.playNext());
+                assertNull(player.playNext());
+                assertEquals(0, emulator.getFramesReceived());
+
+                image("broken.png", BLUE);
+                assertEquals(file, player.playNext().getFile());
+                assertEquals(BLUE, emulator.getPixel(0, 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.Playlist;
+import de.jeffreygroneberg.pixooj.animations.PlaylistItem;
+import de.jeffreygroneberg.pixooj.enums.PlaylistOrder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class PlaylistTest {
+
+    @TempDir
+    Path directory;
+
+    private static PlaylistItem item(String name) {
+        return new PlaylistItem(new File(name));
+    }
+
+    private static String next(Playlist playlist) {
+        return playlist.next().getFile().getName();
+    }
+
+    @Test
+    void testSequentialOrderWrapsAround() {
+        Playlist playlist = new Playlist();
+        assertNull(playlist.next());
+        assertTrue(playlist.peek(2).isEmpty());
+
+        playlist.add(item("a.gif"));
+        playlist.add(item("b.gif"));
+        assertEquals("a.gif", next(playlist));
+        assertEquals("b.gif", next(playlist));
+        assertEquals("a.gif", next(playlist));
+    }
+
+    @Test
+    void testPeekDoesNotAdvance() {
+        Playlist playlist = new Playlist();
+        playlist.add(item("a.gif"));
+        playlist.add(item("b.gif"));
+        playlist.add(item("c.gif"));
+
+        List<PlaylistItem> upcoming = playlist.peek(2);
+        assertEquals(2, upcoming.size());
+        assertEquals("a.gif", upcoming.get(0).getFile().getName());
+        assertEquals("b.gif", upcoming.get(1).getFile().getName());
+        assertEquals("a.gif", next(playlist));
+        assertEquals("b.gif", next(playlist));
+    }
+
+    @Test
+    void testAddAndRemoveWhilePlaying() {
+        Playlist playlist = new Playlist();
+        playlist.add(item("a.gif"));
+        playlist.add(item("b.gif"));
+        playlist.add(item("c.gif"));
+        assertEquals("a.gif", next(playlist));
+        playlist.peek(3);
+
+        // Planned items are replaced, so the removed item is not played and the added one is
+        assertTrue(playlist.remove(new File("b.gif")));
+        assertFalse(playlist.remove(new File("b.gif")));
+        playlist.add(item("d.gif"));
+        assertEquals("c.gif", next(playlist));
+        assertEquals("d.gif", next(playlist));
+
+        // The current item was removed, so the playlist starts from the beginning
+        assertTrue(playlist.remove(new File("d.gif")));
+        assertEquals("a.gif", next(playlist));
+
+        assertNotNull(playlist.find(new File("c.gif")));
+        assertNull(playlist.find(new File("d.gif")));
+        assertEquals(2, playlist.size());
+    }
+
+    @Test
+    void testShufflePlaysEveryItemOncePerCycle() {
+        Playlist playlist = new Playlist(PlaylistOrder.SHUFFLE, new Random(42));
+        for (String name : new String[]{"a.gif", "b.gif", "c.gif", "d.gif"}) {
+            playlist.add(item(name));
+        }
+        for (int cycle = 0; cycle < 3; cycle++) {
+            Set<String> played = new HashSet<>();
+            for (int i = 0; i < 4; i++) {
+                played.add(next(playlist));
+            }
+            assertEquals(4, played.size());
+        }
+    }
+
+    @Test
+    void testWeightedSkipsItemsWithoutWeight() {
+        Playlist playlist = new Playlist(PlaylistOrder.WEIGHTED, new Random(42));
+        playlist.add(new PlaylistItem(new File("a.gif"), 1000, 100, 0));
+        playlist.add(new PlaylistItem(new File("b.gif"), 1000, 100, 1));
+        playlist.add(new PlaylistItem(new File("c.gif"), 1000, 100, 3));
+
+        int c = 0;
+        for (int i = 0; i < 400; i++) {
+            String name = next(playlist);
+            assertNotEquals("a.gif", name);
+            if (name.equals("c.gif")) c++;
+        }
+        assertTrue(c > 250 && c < 350, "c.gif was picked " + c + " times");
+    }
+
+    @Test
+    void testFromDirectoryKeepsSupportedFilesSortedByName() throws IOException {
+        for (String name : new String[]{"b.png", "a.GIF", "notes.txt", "c.jpeg"}) {
+            Files.createFile(directory.resolve(name));
+        }
+        Playlist playlist = Playlist.fromDirectory(directory.toFile(), PlaylistOrder.SEQUENTIAL);
+        assertEquals(3, playlist.size());
+        assertEquals("a.GIF", next(playlist));
+        assertEquals("b.png", next(playlist));
+        assertEquals("c.jpeg", next(playlist));
+
+        assertTrue(playlist.getItems().get(0).isAnimation());
+        assertFalse(playlist.getItems().get(1).isAnimation());
+    }
+}
@@ -0,0 +1,99 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.animations.AnimationFrame;
+import de.jeffreygroneberg.pixooj.animations.PxaAnimation;
+import de.jeffreygroneberg.pixooj.animations.PxaWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class PxaAnimationTest {
+
+    private static final int SIZE = 16;
+
+    private static List<AnimationFrame> movingSquare(int frameCount) {
+        List<AnimationFrame> frames = new ArrayList<>();
+        for (int f = 0; f < frameCount; f++) {
+            byte[] rgb = new byte[SIZE * SIZE * 3];
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 4; x++) {
+                    int k = ((y + 2) * SIZE + (x + f) % SIZE) * 3;
+                    rgb[k] = (byte) 255;
+                    rgb[k + 2] = (byte) (f * 10);
+                }
+            }
+            frames.add(new AnimationFrame(rgb, 40 + f));
+        }
+        return frames;
+    }
+
+    private static void assertFramesEqual(List<AnimationFrame> expected, PxaAnimation animation) {
+        assertEquals(expected.size(), animation.getFrameCount());
+        Iterator<AnimationFrame> frames = animation.frames();
+        for (AnimationFrame frame : expected) {
+            AnimationFrame decoded = frames.next();
+            assertArrayEquals(frame.getRgb(), decoded.getRgb());
+            assertEquals(frame.getDelayMs(), decoded.getDelayMs());
+        }
+        assertFalse(frames.hasNext());
+    }
+
+    @Test
+    void testPaletteFramesRoundTrip() throws IOException {
+        List<AnimationFrame> frames = movingSquare(20);
+        PxaAnimation animation = PxaAnimation.wrap(PxaWriter.encode(frames, SIZE, 8));
+        assertTrue(animation.isPaletteIndexed());
+        assertFramesEqual(frames, animation);
+        // Random access decodes from the closest key frame
+        assertArrayEquals(frames.get(13).getRgb(), animation.getFrame(13).getRgb());
+        // Mostly unchanged frames are stored as small deltas
+        assertTrue(animation.getByteSize() < frames.size() * SIZE * SIZE / 4);
+    }
+
+    @Test
+    void testTrueColorFramesRoundTrip() throws IOException {
+        Random random = new Random(42);
+        List<AnimationFrame> frames = new ArrayList<>();
+        for (int f = 0; f < 3; f++) {
+            byte[] rgb = new byte[SIZE * SIZE * 3];
+            random.nextBytes(rgb);
+            frames.add(new AnimationFrame(rgb, 100));
+        }
+        PxaAnimation animation = PxaAnimation.wrap(PxaWriter.encode(frames, SIZE, 0));
+        assertFalse(animation.isPaletteIndexed());
+        assertFramesEqual(frames, animation);
+    }
+
+    @Test
+    void testFileIsMemoryMapped(@TempDir Path directory) throws IOException {
+        List<AnimationFrame> frames = movingSquare(5);
+        Path file = directory.resolve("square.pxa");
+        PxaWriter.write(frames, SIZE, file);
+        assertFramesEqual(frames, PxaAnimation.open(file));
+    }
+
+    @Test
+    void testGifConversion(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("test_2.pxa");
+        PxaWriter.convertGif(new File("assets/test_2.gif"), SIZE, file);
+        PxaAnimation animation = PxaAnimation.open(file);
+        assertEquals(SIZE, animation.getSize());
+        assertEquals(24, animation.getFrameCount());
+    }
+
+    @Test
+    void testInvalidDataIsRejected() {
+        assertThrows(IOException.class, () -> PxaAnimation.wrap(ByteBuffer.wrap(new byte[32])));
+    }
+}
@@ -0,0 +1,54 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.utilities.ResponseReader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class ResponseReaderTest {
+
+    private static byte[] json(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSuccessfulResponse() throws IOException {
+        ResponseReader.Response response = ResponseReader.read(json("{\"error_code\": 0}"));
+        assertTrue(response.isSuccess());
+        assertEquals(0, response.getErrorCode());
+    }
+
+    @Test
+    void testErrorResponse() throws IOException {
+        ResponseReader.Response response = ResponseReader.read(json("{\"error_code\": 5, \"msg\": \"bad\"}"));
+        assertFalse(response.isSuccess());
+        assertEquals(5, response.getErrorCode());
+    }
+
+    @Test
+    void testMissingErrorCodeIsNotSuccess() throws IOException {
+        ResponseReader.Response response = ResponseReader.read(json("{\"PicId\": 3}"));
+        assertFalse(response.isSuccess());
+    }
+
+    @Test
+    void testRequestedFieldsAreCapturedAndNestedValuesSkipped() throws IOException {
+        ResponseReader.Response response = ResponseReader.read(
+                json("{\"nested\": {\"PicId\": 99, \"list\": [1, 2]}, \"error_code\": 0, \"PicId\": 17, \"Name\": \"pixoo\"}"),
+                "PicId", "Name", "Absent");
+        assertTrue(response.isSuccess());
+        assertEquals(17, response.getInt("PicId", -1));
+        assertEquals("pixoo", response.getString("Name"));
+        assertNull(response.getString("Absent"));
+        assertEquals(-1, response.getInt("Absent", -1));
+    }
+
+    @Test
+    void testNonObjectBodyIsRejected() {
+        assertThrows(IOException.class, () -> ResponseReader.read(json("[0]")));
+    }
+}
@@ -0,0 +1,99 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.constants.Palette;
+import de.jeffreygroneberg.pixooj.objects.FrameBuffer;
+import de.jeffreygroneberg.pixooj.scene.GroupNode;
+import de.jeffreygroneberg.pixooj.scene.ImageNode;
+import de.jeffreygroneberg.pixooj.scene.RectNode;
+import de.jeffreygroneberg.pixooj.scene.Scene;
+import de.jeffreygroneberg.pixooj.scene.TextNode;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+public class SceneTest {
+
+    private static final int SIZE = 64;
+
+    @Test
+    void testIncrementalRenderMatchesFullRedraw() {
+        FrameBuffer frame = new FrameBuffer(SIZE);
+        Scene scene = new Scene(frame);
+        GroupNode panel = scene.getRoot().add(new GroupNode(4, 4));
+        panel.add(new RectNode(0, 0, 30, 12, Palette.BLUE));
+        TextNode value = panel.add(new TextNode(2, 3, "12", Palette.WHITE));
+        BufferedImage overlay = new BufferedImage(6, 6, BufferedImage.TYPE_INT_ARGB);
+        overlay.setRGB(0, 0, 6, 6, filled(36, 0x80FF0000), 0, 6);
+        ImageNode marker = scene.getRoot().add(new ImageNode(40, 40, overlay));
+        scene.render();
+
+        value.setText("345");
+        panel.setPosition(10, 20);
+        marker.setVisible(false);
+        RectNode bar = scene.getRoot().add(new RectNode(0, 60, 16, 2, Palette.GREEN));
+        scene.render();
+        bar.setSize(24, 2);
+        scene.getRoot().remove(panel);
+        scene.getRoot().add(panel);
+        marker.setVisible(true);
+        scene.render();
+
+        FrameBuffer expected = new FrameBuffer(SIZE);
+        Scene fresh = new Scene(expected);
+        fresh.getRoot().add(new ImageNode(40, 40, overlay));
+        fresh.getRoot().add(new RectNode(0, 60, 24, 2, Palette.GREEN));
+        // The panel was added again last, so it is painted on top
+        GroupNode freshPanel = fresh.getRoot().add(new GroupNode(10, 20));
+        freshPanel.add(new RectNode(0, 0, 30, 12, Palette.BLUE));
+        freshPanel.add(new TextNode(2, 3, "345", Palette.WHITE));
+        fresh.render();
+
+        assertArrayEquals(expected.snapshot(), frame.snapshot());
+    }
+
+    @Test
+    void testChangedTextOnlyRepaintsItsBounds() {
+        FrameBuffer frame = new FrameBuffer(SIZE);
+        Scene scene = new Scene(frame);
+        scene.getRoot().add(new RectNode(0, 0, SIZE, 8, Palette.BLUE));
+        TextNode value = scene.getRoot().add(new TextNode(20, 30, "88", Palette.WHITE));
+        assertEquals(List.of(new Rectangle(0, 0, SIZE, SIZE)), scene.render());
+
+        long painted = scene.getPixelsPainted();
+        value.setText("8");
+        List<Rectangle> damage = scene.render();
+
+        // The old bounds contain the new ones
+        assertEquals(List.of(new Rectangle(20, 30, 7, 5)), damage);
+        assertTrue(scene.getPixelsPainted() - painted < 7 * 5 * 2);
+        assertEquals(0xFFFFFF, frame.getPixel(20, 30));
+        assertEquals(0x000000, frame.getPixel(24, 30));
+        assertEquals(0x0000FF, frame.getPixel(24, 0));
+    }
+
+    @Test
+    void testNothingIsRepaintedWithoutChanges() {
+        Scene scene = new Scene(new FrameBuffer(SIZE));
+        TextNode value = scene.getRoot().add(new TextNode(0, 0, "1", Palette.WHITE));
+        scene.render();
+
+        value.setText("1");
+        value.setPosition(0, 0);
+        assertTrue(scene.render().isEmpty());
+
+        scene.setBackground(Palette.RED);
+        assertEquals(List.of(new Rectangle(0, 0, SIZE, SIZE)), scene.render());
+    }
+
+    private static int[] filled(int length, int argb) {
+        int[] pixels = new int[length];
+        Arrays.fill(pixels, argb);
+        return pixels;
+    }
+}
@@ -0,0 +1,181 @@
+package de.jeffreygroneberg.pixooj;
+
+import de.jeffreygroneberg.pixooj.configurations.SimulatorConfiguration;
+import de.jeffreygroneberg.pixooj.objects.Pixoo;
+import de.jeffreygroneberg.pixooj.objects.Simulator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SimulatorTest {
+
+    private static final int SIZE = 16;
+    private static final int RED = 0xFF0000;
+    private static final int WHITE = 0xFFFFFF;
+
+    @TempDir
+    Path directory;
+
+    private static int rgb(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) & 0xFFFFFF;
+    }
+
+    private static byte[] solid(int color) {
+        byte[] rgb = new byte[SIZE * SIZE * 3];
+        for (int k = 0; k < rgb.length; k += 3) {
+            rgb[k] = (byte) (color >> 16);
+            rgb[k + 1] = (byte) (color >> 8);
+            rgb[k + 2] = (byte) color;
+        }
+        return rgb;
+    }
+
+    @Test
+    void testPushedFramesAreUpscaled() {
+        Pixoo pixoo = new Pixoo(null, SIZE, false, true, true, new SimulatorConfiguration(4));
+        pixoo.drawPixelAtLocationRgb(2, 3, 255, 0, 0);
+        pixoo.push();
+
+        Simulator simulator = pixoo.getSimulator();
+        assertEquals(1, simulator.getFrameCount());
+        BufferedImage frame = simulator.getLastFrame();
+        assertEquals(SIZE * 4, frame.getWidth());
+        assertEquals(SIZE * 4, frame.getHeight());
+        for (int y = 0; y < SIZE * 4; y++) {
+            for (int x = 0; x < SIZE * 4; x++) {
+                boolean lit = x / 4 == 2 && y / 4 == 3;
+                assertEquals(lit ? RED : 0, rgb(frame, x, y), "pixel " + x + "," + y);
+            }
+        }
+        pixoo.close();
+    }
+
+    @Test
+    void testLedStyleDrawsRoundDots() {
+        Pixoo pixoo = new Pixoo(null, SIZE, false, true, true, new SimulatorConfiguration(10, true));
+        pixoo.fillRgb(255, 255, 255);
+        pixoo.push();
+        BufferedImage frame = pixoo.getSimulator().getLastFrame();
+
+        // Every device pixel has the same dot: lit in the middle, dark in the corners
+        boolean[] dot = new boolean[100];
+        for (int i = 0; i < 100; i++) {
+            dot[i] = rgb(frame, i % 10, i / 10) == WHITE;
+        }
+        assertTrue(dot[5 * 10 + 5]);
+        assertTrue(dot[5 * 10 + 1]);
+        assertFalse(dot[0]);
+        assertFalse(dot[9]);
+        assertFalse(dot[90]);
+        assertFalse(dot[99]);
+        int lit = 0;
+        for (int i = 0; i < 100; i++) {
+            if (dot[i]) lit++;
+            // The dot is symmetric
+            assertEquals(dot[i], dot[(i / 10) * 10 + 9 - i % 10]);
+            assertEquals(dot[i], dot[(9 - i / 10) * 10 + i % 10]);
+        }
+        // Close to a circle with a radius of 4.5 pixels
+        assertTrue(lit > 55 && lit < 72, "lit " + lit);
+
+        for (int y = 0; y < SIZE * 10; y++) {
+            for (int x = 0; x < SIZE * 10; x++) {
+                int color = rgb(frame, x, y);
+                assertEquals(dot[(y % 10) * 10 + x % 10] ? WHITE : 0, color, "pixel " + x + "," + y);
+            }
+        }
+        pixoo.close();
+    }
+
+    @Test
+    void testLedStyleKeepsSinglePixelsLit() {
+        try (Simulator simulator = new Simulator(SIZE, new SimulatorConfiguration(1, true))) {
+            simulator.render(solid(RED));
+            BufferedImage frame = simulator.getLastFrame();
+            assertEquals(SIZE, frame.getWidth());
+            assertEquals(RED, rgb(frame, 0, 0));
+            assertEquals(RED, rgb(frame, SIZE - 1, SIZE - 1));
+        }
+    }
+
+    @Test
+    void testListenersReceiveEveryFrame() {
+        try (Simulator simulator = new Simulator(SIZE, null)) {
+            assertEquals(4, simulator.getScale());
+            assertEquals(0, rgb(simulator.getLastFrame(), 0, 0));
+
+            List<Long> numbers = new ArrayList<>();
+            List<Integer> colors = new ArrayList<>();
+            Simulator.FrameListener listener = (frame, frameNumber) -> {
+                numbers.add(frameNumber);
+                colors.add(rgb(frame, 5, 5));
+            };
+            simulator.addFrameListener(listener);
+            simulator.render(solid(RED));
+            simulator.render(solid(WHITE));
+            simulator.removeFrameListener(listener);
+            simulator.render(solid(RED));
+
+            assertEquals(List.of(1L, 2L), numbers);
+            assertEquals(List.of(RED, WHITE), colors);
+            assertEquals(3, simulator.getFrameCount());
+        }
+    }
+
+    @Test
+    void testSnapshotsAreWrittenAtTheInterval() throws IOException {
+        SimulatorConfiguration config = new SimulatorConfiguration(2);
+        File output = directory.resolve("snapshots").toFile();
+        config.setOutputDirectory(output);
+        config.setSnapshotInterval(2);
+
+        try (Simulator simulator = new Simulator(SIZE, config)) {
+            simulator.render(solid(RED));
+            simulator.render(solid(WHITE));
+            simulator.render(solid(RED));
+            simulator.render(solid(RED));
+        }
+        String[] names = output.list();
+        assertNotNull(names);
+        Arrays.sort(names);
+        assertArrayEquals(new String[]{"frame-000002.png", "frame-000004.png"}, names);
+
+        BufferedImage second = ImageIO.read(new File(output, "frame-000002.png"));
+        assertEquals(SIZE * 2, second.getWidth());
+        assertEquals(WHITE, rgb(second, 7, 7));
+        assertEquals(RED, rgb(ImageIO.read(new File(output, "frame-000004.png")), 7, 7));
+    }
+
+    @Test
+    void testSnapshotsAreDroppedWhenTheWriterFallsBehind() {
+        SimulatorConfiguration config = new SimulatorConfiguration(20);
+        File output = directory.resolve("dropped").toFile();
+        config.setOutputDirectory(output);
+
+        int frames = 200;
+        try (Simulator simulator = new Simulator(SIZE, config)) {
+            for (int i = 0; i < frames; i++) {
+                simulator.render(solid(i % 2 == 0 ? RED : WHITE));
+            }
+            // Rendering did not wait for the writer
+            assertEquals(frames, simulator.getFrameCount());
+            assertTrue(simulator.getDroppedSnapshots() > 0);
+            simulator.close();
+
+            String[] written = output.list();
+            assertNotNull(written);
+            assertEquals(frames, written.length + simulator.getDroppedSnapshots());
+        }
+    }
+}